@@ -0,0 +1,94 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.example.ui.model.PhotoItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Copie d'une selection par {@link ExportService}, vers un dossier neuf a chaque appel. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExportBenchmark {
+
+  @Param({"200"})
+  public int photoCount;
+
+  @Param({"262144"})
+  public int photoBytes;
+
+  private final ExportService service = new ExportService();
+  private final List<PhotoItem> photos = new ArrayList<>();
+  private Path source;
+  private Path destination;
+
+  @Setup
+  public void setUp() throws IOException {
+    source = Files.createTempDirectory("export-bench-src-");
+    byte[] content = new byte[photoBytes];
+    new Random(42).nextBytes(content);
+    for (int i = 0; i < photoCount; i++) {
+      Path file = Files.write(source.resolve("IMG_" + i + ".jpg"), content);
+      photos.add(
+          new PhotoItem(
+              file,
+              file.getFileName().toString(),
+              LocalDate.of(2024, 1, 1).plusDays(i),
+              PhotoFileScanner.humanSize(photoBytes),
+              List.of(),
+              List.of(),
+              false));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void freshDestination() throws IOException {
+    destination = Files.createTempDirectory("export-bench-dst-");
+  }
+
+  @TearDown(Level.Invocation)
+  public void dropDestination() throws IOException {
+    delete(destination);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    delete(source);
+  }
+
+  @Benchmark
+  public int export() throws IOException {
+    return service.exportPhotos(photos, destination, null);
+  }
+
+  private static void delete(Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.example.infra;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.example.tools.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scan complet d'une {@link SyntheticLibrary} de 210 dossiers (4 200 images, 420 autres fichiers),
+ * sur tmpfs ({@code /dev/shm} si disponible) ou en memoire avec Jimfs. Compare aussi le listage
+ * rapide ({@code fastListing}) au parcours {@code Files.walkFileTree}; Jimfs n'a pas de listage
+ * rapide.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScanBenchmark {
+  @Param({"tmpfs", "jimfs"})
+  public String fileSystem;
+
+  @Param({"true", "false"})
+  public boolean fastListing;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private FileSystem jimfs;
+  private Path root;
+  private PhotoFileScanner scanner;
+
+  @Setup
+  public void setUp() throws IOException {
+    if ("jimfs".equals(fileSystem)) {
+      jimfs = Jimfs.newFileSystem(Configuration.unix());
+      root = Files.createDirectories(jimfs.getPath("/library"));
+    } else {
+      Path shm = Path.of("/dev/shm");
+      Path base =
+          Files.isDirectory(shm) && Files.isWritable(shm)
+              ? shm
+              : Path.of(System.getProperty("java.io.tmpdir"));
+      root = Files.createTempDirectory(base, "scan-bench-");
+    }
+    new SyntheticLibrary(42, SyntheticLibrary.Shape.defaults().withLayout(2, 14, 20)).writeTo(root);
+    // Quota d'E/S aligne sur le parametre: le type de peripherique detecte ne doit pas le brider
+    IoScheduler scheduler =
+        new IoScheduler(new IoScheduler.Limits(parallelism, parallelism, parallelism, parallelism));
+    scanner = new PhotoFileScanner(parallelism, fastListing, null, scheduler);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (jimfs != null) {
+      jimfs.close();
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public int scan() {
+    return scanner.scan(root).photos().size();
+  }
+}
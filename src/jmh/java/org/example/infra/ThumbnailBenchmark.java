@@ -0,0 +1,109 @@
+package org.example.infra;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javafx.application.Platform;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodage de miniatures par {@link ThumbnailService}, cache vide a chaque appel. Les resultats
+ * sont livres sur le thread JavaFX: il faut un affichage (ou Xvfb) pour demarrer la plateforme.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ThumbnailBenchmark {
+  private static final int IMAGES = 32;
+
+  @Param({"1600", "4000"})
+  public int sourceWidth;
+
+  @Param({"160"})
+  public int targetSize;
+
+  private Path directory;
+  private final List<Path> images = new ArrayList<>();
+  private ThumbnailService service;
+
+  @Setup
+  public void setUp() throws IOException {
+    try {
+      Platform.startup(() -> {});
+    } catch (IllegalStateException alreadyStarted) {
+      // Plateforme deja demarree dans cette JVM
+    }
+    directory = Files.createTempDirectory("thumb-bench-");
+    int height = sourceWidth * 3 / 4;
+    for (int i = 0; i < IMAGES; i++) {
+      BufferedImage image = new BufferedImage(sourceWidth, height, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      graphics.setPaint(new Color(i * 7 % 256, i * 31 % 256, i * 67 % 256));
+      graphics.fillRect(0, 0, sourceWidth, height);
+      graphics.setPaint(Color.WHITE);
+      graphics.drawString("photo " + i, sourceWidth / 3, height / 2);
+      graphics.dispose();
+      Path file = directory.resolve("photo-" + i + ".jpg");
+      ImageIO.write(image, "jpg", file.toFile());
+      images.add(file);
+    }
+    service = new ThumbnailService(IMAGES * 2);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    service.shutdown();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public int loadAll() throws InterruptedException {
+    service.evictExcept(Set.of());
+    CountDownLatch done = new CountDownLatch(images.size());
+    AtomicInteger loaded = new AtomicInteger();
+    for (Path image : images) {
+      service.load(
+          image,
+          targetSize,
+          result -> {
+            loaded.incrementAndGet();
+            done.countDown();
+          },
+          error -> done.countDown());
+    }
+    if (!done.await(30, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("Miniatures non livrees en 30 s");
+    }
+    return loaded.get();
+  }
+}
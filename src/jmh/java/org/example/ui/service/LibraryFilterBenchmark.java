@@ -0,0 +1,65 @@
+package org.example.ui.service;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.example.tools.SyntheticLibrary;
+import org.example.ui.model.PhotoItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link PhotoLibraryService#filter} pour chaque preset, avec et sans recherche texte. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryFilterBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int size;
+
+  @Param({"ALL", "FAVORITES", "RECENTS", "ALBUMS"})
+  public PhotoLibraryService.Filter preset;
+
+  @Param({"", "img_42", "vacances"})
+  public String search;
+
+  private PhotoLibraryService service;
+
+  @Setup
+  public void setUp() {
+    service = new PhotoLibraryService();
+    service.replaceAll(library(size));
+  }
+
+  @Benchmark
+  public int filter() {
+    return service.filter(search, preset).size();
+  }
+
+  /** Premiere page de la grille: page, prefetch et total, comme {@code MainView.refreshGrid}. */
+  @Benchmark
+  public int firstPage() {
+    PhotoLibraryService.Page page = service.query(search, preset, 0, 20, 4);
+    return page.items().size() + page.prefetch().size() + page.totalCount();
+  }
+
+  /** Bibliotheque synthetique de {@code size} photos, identique d'une execution a l'autre. */
+  static List<PhotoItem> library(int size) {
+    return new SyntheticLibrary(42, SyntheticLibrary.Shape.forPhotoCount(size))
+        .photoItems(Path.of("/library"));
+  }
+}
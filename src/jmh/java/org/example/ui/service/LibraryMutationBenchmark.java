@@ -0,0 +1,89 @@
+package org.example.ui.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.example.tools.SyntheticLibrary;
+import org.example.ui.model.PhotoItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mutations et agregats de {@link PhotoLibraryService}. {@code addPhotos} ajoute a chaque appel un
+ * lot de 1000 nouvelles photos: la bibliotheque grossit donc legerement au fil d'une iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryMutationBenchmark {
+  private static final int BATCH = 1000;
+
+  @Param({"10000", "100000", "1000000"})
+  public int size;
+
+  private PhotoLibraryService service;
+  private Path middle;
+  private List<Path> selection;
+  private boolean selectionFavorite;
+  private List<PhotoItem> batch;
+  private int batchNumber;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    service = new PhotoLibraryService();
+    List<PhotoItem> library = LibraryFilterBenchmark.library(size);
+    service.replaceAll(library);
+    middle = library.get(size / 2).path();
+    // Une photo sur dix, a la maniere d'une multi-selection dispersee
+    selection = new ArrayList<>(BATCH);
+    for (int i = 0; i < Math.min(size, BATCH * 10); i += 10) {
+      selection.add(library.get(i).path());
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void nextBatch() {
+    int lot = batchNumber++;
+    batch =
+        new SyntheticLibrary(lot, SyntheticLibrary.Shape.forPhotoCount(BATCH))
+            .photoItems(Path.of("/import", "lot-" + lot));
+  }
+
+  @Benchmark
+  public int addPhotos() {
+    return service.addPhotos(batch, "Import").addedCount();
+  }
+
+  @Benchmark
+  public int listAlbums() {
+    return service.listAlbums("").size();
+  }
+
+  @Benchmark
+  public boolean toggleFavorite() {
+    return service.toggleFavorite(middle);
+  }
+
+  /** Favori pose puis retire sur 1000 photos, en une seule ecriture a chaque fois. */
+  @Benchmark
+  public int favoriteSelection() {
+    selectionFavorite = !selectionFavorite;
+    return service.setFavorite(selection, selectionFavorite).updatedCount();
+  }
+}
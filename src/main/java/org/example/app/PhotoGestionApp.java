@@ -1,10 +1,14 @@
 package org.example.app;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import org.example.infra.ExportService;
+import org.example.infra.LibraryCatalog;
 import org.example.infra.PhotoFileScanner;
+import org.example.infra.ScanCheckpointStore;
 import org.example.infra.ThumbnailService;
 import org.example.ui.MainView;
 import org.example.ui.service.PhotoLibraryService;
@@ -14,6 +18,7 @@ import org.slf4j.LoggerFactory;
 public class PhotoGestionApp extends Application {
   private static final Logger log = LoggerFactory.getLogger(PhotoGestionApp.class);
   private MainView mainView;
+  private LibraryCatalog catalog;
 
   public static void launchApp(String[] args) {
     launch(args);
@@ -25,10 +30,11 @@ public class PhotoGestionApp extends Application {
         (thread, throwable) ->
             log.error("Exception non capturee sur {}", thread.getName(), throwable));
 
+    PhotoLibraryService library = new PhotoLibraryService();
     mainView =
         new MainView(
-            new PhotoLibraryService(),
-            new PhotoFileScanner(),
+            library,
+            PhotoFileScanner.parallel(ScanCheckpointStore.inUserHome()),
             new ThumbnailService(),
             new ExportService());
 
@@ -50,6 +56,35 @@ public class PhotoGestionApp extends Application {
     stage.show();
 
     log.info("UI principale initialisee (MainView)");
+    openCatalog(library);
+  }
+
+  /**
+   * Recharge la bibliotheque sauvegardee hors du thread JavaFX: la fenetre s'affiche tout de suite
+   * et la grille se remplit a la publication.
+   */
+  private void openCatalog(PhotoLibraryService library) {
+    catalog = LibraryCatalog.inUserHome();
+    catalog.setFailureListener(
+        error -> Platform.runLater(() -> mainView.showCatalogFailure(error.getMessage())));
+    mainView.setCatalogLoading(true);
+    Task<Integer> loading =
+        new Task<>() {
+          @Override
+          protected Integer call() {
+            return catalog.open(library);
+          }
+        };
+    loading.setOnSucceeded(event -> mainView.setCatalogLoading(false));
+    loading.setOnFailed(
+        event -> {
+          log.error("Rechargement du catalogue echoue", loading.getException());
+          mainView.setCatalogLoading(false);
+          mainView.showCatalogFailure("rechargement impossible");
+        });
+    Thread thread = new Thread(loading, "catalog-open");
+    thread.setDaemon(true);
+    thread.start();
   }
 
   @Override
@@ -57,5 +92,8 @@ public class PhotoGestionApp extends Application {
     if (mainView != null) {
       mainView.shutdown();
     }
+    if (catalog != null) {
+      catalog.close();
+    }
   }
 }
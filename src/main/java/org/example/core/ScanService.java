@@ -4,6 +4,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 import org.example.infra.FileSystemGateway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +20,12 @@ public class ScanService {
   }
 
   public List<Photo> scan(Path rootDirectory) {
+    return scan(rootDirectory, null, null);
+  }
+
+  /** Scan annulable: {@code cancelSignal} est consulte regulierement pendant le parcours. */
+  public List<Photo> scan(
+      Path rootDirectory, BooleanSupplier cancelSignal, LongConsumer progressCallback) {
     if (rootDirectory == null) {
       log.warn("Scan ignore: chemin nul");
       return List.of();
@@ -29,7 +37,8 @@ public class ScanService {
 
     log.info("Demarrage du scan du repertoire {}", rootDirectory);
     try {
-      List<Photo> photos = fileSystemGateway.listPhotos(rootDirectory);
+      List<Photo> photos =
+          fileSystemGateway.listPhotos(rootDirectory, cancelSignal, progressCallback);
       log.info("Scan termine: {} photos trouvees dans {}", photos.size(), rootDirectory);
       return photos;
     } catch (RuntimeException e) {
@@ -0,0 +1,185 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enumere les entrees d'un repertoire pour le scan en lisant le moins d'attributs possible.
+ *
+ * <p>La variante portable lit les attributs de chaque entree, comme {@code Files.walkFileTree}. La
+ * variante Linux s'appuie sur le nombre de liens du repertoire ({@code unix:nlink} = 2 + nombre de
+ * sous-repertoires sur ext4, xfs, tmpfs...): seules les images candidates sont lues, puis les
+ * autres entrees uniquement tant qu'il reste des sous-repertoires a trouver. Un dossier feuille
+ * rempli de documents ne coute donc qu'un seul appel systeme de plus que sa lecture. Si le compteur
+ * n'est pas fiable (btrfs renvoie 1), toutes les entrees sont lues pour ce repertoire.
+ *
+ * <p>Un compteur faux mais plausible ferait disparaitre des sous-arbres entiers: la variante Linux
+ * est donc reservee aux types de systemes de fichiers connus pour tenir ce compteur, verifiee sur
+ * la racine avant usage, et abandonnee pour tout repertoire situe sur un autre peripherique
+ * (montage reseau ou FUSE sous la racine).
+ */
+final class DirectoryLister {
+  private static final Logger log = LoggerFactory.getLogger(DirectoryLister.class);
+  private static final boolean LINUX =
+      System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+  // Systemes ou nlink d'un repertoire vaut toujours 2 + nombre de sous-repertoires
+  private static final Set<String> RELIABLE_LINK_COUNTS =
+      Set.of("ext2", "ext3", "ext4", "xfs", "tmpfs");
+
+  private final boolean linkCountHint;
+  private final Object device;
+  private final LongAdder attributeReads = new LongAdder();
+
+  record FileEntry(Path path, BasicFileAttributes attributes) {}
+
+  /**
+   * Resultat de l'enumeration d'un repertoire. {@code unreadFiles} regroupe les entrees ecartees
+   * sans lecture d'attributs: ce sont forcement des fichiers (tous les sous-repertoires ont ete
+   * trouves) qui ne sont pas des images candidates.
+   */
+  record Listing(
+      List<Path> directories, List<FileEntry> files, List<Path> unreadFiles, List<Path> failures) {}
+
+  private DirectoryLister(boolean linkCountHint, Object device) {
+    this.linkCountHint = linkCountHint;
+    this.device = device;
+  }
+
+  /**
+   * Choisit la variante Linux quand la racine est sur le systeme de fichiers par defaut, d'un type
+   * fiable, et que son compteur de liens correspond a ses sous-repertoires reels.
+   */
+  static DirectoryLister forRoot(Path root, boolean allowFastPath) {
+    Object device = null;
+    if (allowFastPath
+        && LINUX
+        && root.getFileSystem() == FileSystems.getDefault()
+        && root.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+      try {
+        String type = Files.getFileStore(root).type();
+        if (RELIABLE_LINK_COUNTS.contains(type)) {
+          device = Files.getAttribute(root, "unix:dev", LinkOption.NOFOLLOW_LINKS);
+        } else {
+          log.debug("Enumeration portable pour {}: systeme {} non reconnu", root, type);
+        }
+      } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+        log.debug("Enumeration portable pour {}: {}", root, e.getMessage());
+      }
+    }
+    DirectoryLister lister = new DirectoryLister(device != null, device);
+    if (lister.linkCountHint && !lister.verify(root)) {
+      log.info("Compteur de liens incoherent pour {}: enumeration portable", root);
+      lister = new DirectoryLister(false, null);
+    }
+    log.debug("Enumeration {} pour {}", lister.linkCountHint ? "rapide (nlink)" : "portable", root);
+    return lister;
+  }
+
+  /** Compare le compteur de liens de {@code dir} a ses sous-repertoires, tous lus. */
+  private boolean verify(Path dir) {
+    int expected = expectedSubdirectories(dir);
+    if (expected < 0) {
+      // Pas de compteur: chaque repertoire sera de toute facon lu en entier
+      return true;
+    }
+    int found = 0;
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      for (Path entry : entries) {
+        attributeReads.increment();
+        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+          found++;
+        }
+      }
+    } catch (IOException e) {
+      return false;
+    }
+    return found == expected;
+  }
+
+  boolean isFast() {
+    return linkCountHint;
+  }
+
+  /** Nombre d'appels de lecture d'attributs (stat) effectues depuis la creation. */
+  long attributeReads() {
+    return attributeReads.sum();
+  }
+
+  Listing list(Path dir, Predicate<Path> isCandidate) throws IOException {
+    int expectedDirectories = linkCountHint ? expectedSubdirectories(dir) : -1;
+    List<Path> directories = new ArrayList<>();
+    List<FileEntry> files = new ArrayList<>();
+    List<Path> failures = new ArrayList<>();
+    List<Path> deferred = new ArrayList<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      for (Path entry : entries) {
+        if (expectedDirectories < 0 || isCandidate.test(entry)) {
+          read(entry, directories, files, failures);
+        } else {
+          deferred.add(entry);
+        }
+      }
+    }
+    if (deferred.isEmpty()) {
+      return new Listing(directories, files, List.of(), failures);
+    }
+    // Les noms sans extension sont les plus susceptibles d'etre des dossiers
+    deferred.sort((a, b) -> Boolean.compare(hasExtension(a), hasExtension(b)));
+    int index = 0;
+    while (index < deferred.size() && directories.size() < expectedDirectories) {
+      read(deferred.get(index++), directories, files, failures);
+    }
+    return new Listing(directories, files, deferred.subList(index, deferred.size()), failures);
+  }
+
+  private void read(
+      Path entry, List<Path> directories, List<FileEntry> files, List<Path> failures) {
+    attributeReads.increment();
+    try {
+      BasicFileAttributes attrs =
+          Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      if (attrs.isDirectory()) {
+        directories.add(entry);
+      } else if (attrs.isRegularFile()) {
+        files.add(new FileEntry(entry, attrs));
+      }
+    } catch (IOException e) {
+      failures.add(entry);
+      log.warn("Lecture ignoree pour {}: {}", entry, e.getMessage());
+    }
+  }
+
+  private int expectedSubdirectories(Path dir) {
+    attributeReads.increment();
+    try {
+      Map<String, Object> attrs =
+          Files.readAttributes(dir, "unix:nlink,dev", LinkOption.NOFOLLOW_LINKS);
+      if (!device.equals(attrs.get("dev"))) {
+        // Point de montage sous la racine: son compteur n'est pas garanti
+        return -1;
+      }
+      int count = attrs.get("nlink") instanceof Integer value ? value : -1;
+      return count >= 2 ? count - 2 : -1;
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      return -1;
+    }
+  }
+
+  private static boolean hasExtension(Path entry) {
+    return entry.getFileName().toString().lastIndexOf('.') > 0;
+  }
+}
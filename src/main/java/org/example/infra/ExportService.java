@@ -17,6 +17,25 @@ public class ExportService {
   public int exportPhotos(
       List<PhotoItem> photos, Path destination, Consumer<Double> progressUpdater)
       throws IOException {
+    return copyAll(photos, destination, progressUpdater, null);
+  }
+
+  /**
+   * Variante qui alimente {@code tracker} (fichiers et octets copies, totaux connus d'avance) pour
+   * afficher debit et temps restant.
+   */
+  public int exportPhotosWithProgress(
+      List<PhotoItem> photos, Path destination, ProgressTracker tracker) throws IOException {
+    Objects.requireNonNull(tracker, "tracker");
+    return copyAll(photos, destination, null, tracker);
+  }
+
+  private int copyAll(
+      List<PhotoItem> photos,
+      Path destination,
+      Consumer<Double> progressUpdater,
+      ProgressTracker tracker)
+      throws IOException {
     Objects.requireNonNull(destination, "destination");
     if (photos == null || photos.isEmpty()) {
       log.warn("Export ignore: aucune photo a copier");
@@ -25,6 +44,9 @@ public class ExportService {
     Files.createDirectories(destination);
 
     int total = photos.size();
+    if (tracker != null) {
+      tracker.setTotals(total, totalSize(photos));
+    }
     int exported = 0;
     for (int i = 0; i < total; i++) {
       PhotoItem item = photos.get(i);
@@ -32,6 +54,9 @@ public class ExportService {
       if (!Files.exists(source)) {
         log.warn("Fichier source introuvable: {}", source);
         updateProgress(progressUpdater, i + 1, total);
+        if (tracker != null) {
+          tracker.addFiles(1);
+        }
         continue;
       }
       Path target = resolveTarget(destination, source.getFileName().toString());
@@ -45,12 +70,27 @@ public class ExportService {
             "Impossible de copier '" + source.getFileName() + "' : " + e.getMessage(), e);
       }
       updateProgress(progressUpdater, i + 1, total);
+      if (tracker != null) {
+        tracker.fileDone(Files.size(target));
+      }
     }
     updateProgress(progressUpdater, total, total);
     log.info("Export termine: {} fichiers copies vers {}", exported, destination);
     return exported;
   }
 
+  private static long totalSize(List<PhotoItem> photos) {
+    long bytes = 0;
+    for (PhotoItem item : photos) {
+      try {
+        bytes += Files.size(item.path());
+      } catch (IOException e) {
+        // Fichier manquant: signale pendant la copie
+      }
+    }
+    return bytes;
+  }
+
   private void updateProgress(Consumer<Double> progressUpdater, int current, int total) {
     if (progressUpdater != null && total > 0) {
       progressUpdater.accept(current / (double) total);
@@ -1,83 +1,73 @@
 package org.example.infra;
 
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 import org.example.core.Photo;
-import org.example.core.Rating;
-import org.example.core.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Acces au disque pour le modele du domaine ({@link Photo}). Le parcours est delegue au moteur de
+ * {@link PhotoFileScanner} via {@link ScanAdapter#corePhotos()}: memes extensions, parallelisme,
+ * annulation et progression que l'interface principale.
+ */
 public class FileSystemGateway {
   private static final Logger log = LoggerFactory.getLogger(FileSystemGateway.class);
-  private static final Set<String> IMAGE_EXT =
-      new HashSet<>(List.of("jpg", "jpeg", "png", "gif", "bmp", "webp", "heic"));
 
-  public List<Photo> listPhotos(Path rootDirectory) {
-    List<Photo> found = new ArrayList<>();
-    try {
-      Files.walkFileTree(
-          rootDirectory,
-          new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-              if (!attrs.isRegularFile()) {
-                return FileVisitResult.CONTINUE;
-              }
-              if (!isImage(file)) {
-                return FileVisitResult.CONTINUE;
-              }
-              toPhoto(file, attrs).ifPresent(found::add);
-              return FileVisitResult.CONTINUE;
-            }
+  /** Historiquement, ce parcours ne filtrait ni les dossiers caches ni les dossiers systeme. */
+  private static final PhotoFileScanner.ScanOptions DEFAULT_OPTIONS =
+      new PhotoFileScanner.ScanOptions(false, false, Integer.MAX_VALUE, 0, null);
 
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) {
-              log.warn("Lecture ignoree pour {}: {}", file, exc.getMessage());
-              return FileVisitResult.SKIP_SUBTREE;
-            }
-          });
-    } catch (IOException e) {
-      log.error("Echec de parcours du dossier {}", rootDirectory, e);
-      throw new IllegalStateException("Impossible de parcourir " + rootDirectory, e);
-    }
-    return List.copyOf(found);
+  private final PhotoFileScanner engine;
+  private final PhotoFileScanner.ScanOptions options;
+
+  public FileSystemGateway() {
+    this(PhotoFileScanner.parallel(), DEFAULT_OPTIONS);
   }
 
-  private Optional<Photo> toPhoto(Path file, BasicFileAttributes attrs) {
-    try {
-      Instant createdAt =
-          attrs.creationTime() != null
-              ? attrs.creationTime().toInstant()
-              : attrs.lastModifiedTime().toInstant();
-      long size = attrs.size();
-      String fileName = file.getFileName().toString();
-      return Optional.of(
-          new Photo(file, fileName, size, createdAt, Set.<Tag>of(), Rating.unrated()));
-    } catch (Exception e) {
-      log.warn("Impossible de convertir {} en Photo: {}", file, e.getMessage());
-      return Optional.empty();
-    }
+  public FileSystemGateway(PhotoFileScanner engine, PhotoFileScanner.ScanOptions options) {
+    this.engine = Objects.requireNonNull(engine, "engine");
+    this.options = options == null ? DEFAULT_OPTIONS : options;
   }
 
-  private boolean isImage(Path path) {
-    String name = path.getFileName().toString();
-    int idx = name.lastIndexOf('.');
-    if (idx < 0 || idx == name.length() - 1) {
-      return false;
+  public List<Photo> listPhotos(Path rootDirectory) {
+    return listPhotos(rootDirectory, null, null);
+  }
+
+  /**
+   * Liste les photos sous {@code rootDirectory}, triees par chemin. En cas d'annulation, les photos
+   * deja trouvees sont retournees; un sous-dossier illisible est ignore.
+   *
+   * @throws IllegalStateException si la racine elle-meme ne peut pas etre parcourue
+   */
+  public List<Photo> listPhotos(
+      Path rootDirectory, BooleanSupplier cancelSignal, LongConsumer progressCallback) {
+    if (rootDirectory == null || !Files.isDirectory(rootDirectory)) {
+      throw new IllegalStateException("Impossible de parcourir " + rootDirectory);
+    }
+    ConcurrentLinkedQueue<Photo> found = new ConcurrentLinkedQueue<>();
+    PhotoFileScanner.StreamResult result =
+        engine.scanWith(
+            List.of(rootDirectory),
+            cancelSignal,
+            progressCallback,
+            options,
+            ScanAdapter.corePhotos(),
+            found::add);
+    if (result.skippedDirectories().contains(rootDirectory)) {
+      log.error("Echec de parcours du dossier {}", rootDirectory);
+      throw new IllegalStateException("Impossible de parcourir " + rootDirectory);
+    }
+    if (!result.skippedDirectories().isEmpty()) {
+      log.warn(
+          "{} dossier(s) ignore(s) sous {}", result.skippedDirectories().size(), rootDirectory);
     }
-    String ext = name.substring(idx + 1).toLowerCase(Locale.ROOT);
-    return IMAGE_EXT.contains(ext);
+    return found.stream().sorted(Comparator.comparing(Photo::path)).toList();
   }
 }
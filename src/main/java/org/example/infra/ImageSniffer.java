@@ -0,0 +1,170 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconnait le format d'une image a partir de ses premiers octets (signature), independamment de
+ * son extension. Seuls {@value #HEADER_SIZE} octets sont lus, dans des tampons directs reutilises,
+ * et le resultat est memorise par fichier (cle du systeme de fichiers, date et taille) pour que les
+ * rescans ne relisent pas les fichiers inchanges.
+ */
+public class ImageSniffer {
+  private static final Logger log = LoggerFactory.getLogger(ImageSniffer.class);
+  static final int HEADER_SIZE = 32;
+  private static final int POOL_SIZE = 16;
+  private static final int MAX_CACHE_ENTRIES = 500_000;
+  private static final Set<String> HEIF_BRANDS =
+      Set.of("heic", "heix", "hevc", "hevx", "heim", "heis", "mif1", "msf1");
+
+  /** Extensions non standard verifiees par signature en plus des extensions d'image usuelles. */
+  private static final Set<String> ALTERNATE_EXT =
+      Set.of("jpe", "jfif", "jif", "dib", "heif", "hif");
+
+  public enum Format {
+    JPEG,
+    PNG,
+    GIF,
+    BMP,
+    WEBP,
+    HEIC
+  }
+
+  private record CachedSniff(long modifiedMillis, long size, Format format) {}
+
+  private final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(POOL_SIZE);
+  private final Map<Object, CachedSniff> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Indique si un fichier dont l'extension n'est pas une extension d'image merite d'etre verifie:
+   * fichiers sans extension ou extensions alternatives (jfif, jpe...).
+   */
+  public static boolean isSniffCandidate(Path file) {
+    String name = file.getFileName().toString();
+    int idx = name.lastIndexOf('.');
+    if (idx <= 0) {
+      return true;
+    }
+    return ALTERNATE_EXT.contains(name.substring(idx + 1).toLowerCase(Locale.ROOT));
+  }
+
+  public Optional<Format> sniff(Path file) {
+    try {
+      return sniff(
+          file, Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    } catch (IOException e) {
+      log.debug("Signature illisible pour {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /** Format detecte, ou vide si le contenu n'est pas une image reconnue ou est illisible. */
+  public Optional<Format> sniff(Path file, BasicFileAttributes attrs) {
+    Object key = attrs.fileKey() != null ? attrs.fileKey() : file.toAbsolutePath();
+    long modified = attrs.lastModifiedTime().toMillis();
+    CachedSniff cached = cache.get(key);
+    if (cached != null && cached.modifiedMillis() == modified && cached.size() == attrs.size()) {
+      return Optional.ofNullable(cached.format());
+    }
+    Format format = readFormat(file);
+    if (cache.size() >= MAX_CACHE_ENTRIES) {
+      cache.clear();
+    }
+    cache.put(key, new CachedSniff(modified, attrs.size(), format));
+    return Optional.ofNullable(format);
+  }
+
+  int cachedEntries() {
+    return cache.size();
+  }
+
+  private Format readFormat(Path file) {
+    ByteBuffer buffer = acquire();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int read;
+      do {
+        read = channel.read(buffer);
+      } while (read > 0 && buffer.hasRemaining());
+      buffer.flip();
+      return detect(buffer).orElse(null);
+    } catch (IOException e) {
+      log.debug("Signature illisible pour {}: {}", file, e.getMessage());
+      return null;
+    } finally {
+      buffer.clear();
+      buffers.offer(buffer);
+    }
+  }
+
+  private ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(HEADER_SIZE);
+  }
+
+  /** Reconnait une signature dans les octets disponibles de {@code header} (non consommes). */
+  static Optional<Format> detect(ByteBuffer header) {
+    int length = header.remaining();
+    int start = header.position();
+    if (length >= 3 && u8(header, start) == 0xFF && u8(header, start + 1) == 0xD8) {
+      return u8(header, start + 2) == 0xFF ? Optional.of(Format.JPEG) : Optional.empty();
+    }
+    if (length >= 8
+        && u8(header, start) == 0x89
+        && ascii(header, start + 1, 3).equals("PNG")
+        && u8(header, start + 4) == 0x0D
+        && u8(header, start + 5) == 0x0A
+        && u8(header, start + 6) == 0x1A
+        && u8(header, start + 7) == 0x0A) {
+      return Optional.of(Format.PNG);
+    }
+    if (length >= 6) {
+      String gif = ascii(header, start, 6);
+      if (gif.equals("GIF87a") || gif.equals("GIF89a")) {
+        return Optional.of(Format.GIF);
+      }
+    }
+    if (length >= 12
+        && ascii(header, start, 4).equals("RIFF")
+        && ascii(header, start + 8, 4).equals("WEBP")) {
+      return Optional.of(Format.WEBP);
+    }
+    if (length >= 12
+        && ascii(header, start + 4, 4).equals("ftyp")
+        && HEIF_BRANDS.contains(ascii(header, start + 8, 4))) {
+      return Optional.of(Format.HEIC);
+    }
+    if (length >= 14 && ascii(header, start, 2).equals("BM")) {
+      // Taille declaree de l'en-tete DIB: 12, 40, 52, 56, 64, 108 ou 124 octets
+      int dibSize = length >= 18 ? u8(header, start + 14) | u8(header, start + 15) << 8 : 40;
+      return dibSize >= 12 && dibSize <= 124 ? Optional.of(Format.BMP) : Optional.empty();
+    }
+    return Optional.empty();
+  }
+
+  private static int u8(ByteBuffer buffer, int index) {
+    return buffer.get(index) & 0xFF;
+  }
+
+  private static String ascii(ByteBuffer buffer, int index, int count) {
+    char[] chars = new char[count];
+    for (int i = 0; i < count; i++) {
+      chars[i] = (char) u8(buffer, index + i);
+    }
+    return new String(chars);
+  }
+}
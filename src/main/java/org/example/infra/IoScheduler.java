@@ -0,0 +1,320 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limite les acces disque concurrents par peripherique. Les chemins sont regroupes par numero de
+ * peripherique ({@code unix:dev}) ou, a defaut, par {@link FileStore}; chaque peripherique recoit
+ * un nombre de flux selon sa nature: un seul pour un disque rotatif (les lectures entrelacees y
+ * coutent des deplacements de tete), plusieurs pour un SSD, une valeur reglable pour un montage
+ * reseau.
+ *
+ * <p>Deux usages: {@link #acquire} pour un parcours qui bloque en attendant ses flux (scan d'une
+ * racine), {@link #execute} pour des taches courtes mises en file par peripherique sans bloquer les
+ * threads de l'executeur (miniatures). Des que le peripherique admet plusieurs flux, les parcours
+ * en laissent toujours un aux taches courtes: les miniatures avancent pendant un scan.
+ */
+public final class IoScheduler {
+  private static final Logger log = LoggerFactory.getLogger(IoScheduler.class);
+  private static final boolean LINUX =
+      System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+  private static final Set<String> NETWORK_TYPES =
+      Set.of(
+          "nfs",
+          "nfs4",
+          "cifs",
+          "smb",
+          "smbfs",
+          "smb3",
+          "afpfs",
+          "9p",
+          "davfs",
+          "webdav",
+          "fuse.sshfs",
+          "sshfs",
+          "fuse.rclone",
+          "ncpfs",
+          "afs");
+
+  /** Nature d'un peripherique, deduite au premier acces. */
+  public enum DeviceKind {
+    ROTATIONAL,
+    SOLID_STATE,
+    NETWORK,
+    UNKNOWN
+  }
+
+  /** Nombre de flux simultanes autorises par nature de peripherique. */
+  public record Limits(int rotational, int solidState, int network, int unknown) {
+    public Limits {
+      if (rotational < 1 || solidState < 1 || network < 1 || unknown < 1) {
+        throw new IllegalArgumentException("Chaque limite doit etre au moins 1");
+      }
+    }
+
+    public static Limits defaults() {
+      int cpus = Runtime.getRuntime().availableProcessors();
+      return new Limits(1, Math.max(4, cpus), 4, cpus);
+    }
+
+    public Limits withNetwork(int streams) {
+      return new Limits(rotational, solidState, streams, unknown);
+    }
+
+    int forKind(DeviceKind kind) {
+      return switch (kind) {
+        case ROTATIONAL -> rotational;
+        case SOLID_STATE -> solidState;
+        case NETWORK -> network;
+        case UNKNOWN -> unknown;
+      };
+    }
+  }
+
+  /** Flux obtenus sur un peripherique; a fermer pour les rendre. */
+  public static final class Permit implements AutoCloseable {
+    private final Device device;
+    private final int streams;
+    private boolean released;
+
+    private Permit(Device device, int streams) {
+      this.device = device;
+      this.streams = streams;
+    }
+
+    /** Permis hors ordonnanceur: rien a rendre. */
+    static Permit unlimited(int streams) {
+      return new Permit(null, streams);
+    }
+
+    public int streams() {
+      return streams;
+    }
+
+    @Override
+    public void close() {
+      if (!released && device != null) {
+        released = true;
+        device.streams.release(streams);
+        device.scanStreams.release(streams);
+        dispatch(device);
+      }
+    }
+  }
+
+  private record Queued(Runnable task, Executor executor) {}
+
+  private static final class Device {
+    private final DeviceKind kind;
+    private final int limit;
+    private final Semaphore streams;
+    // Part des flux ouverte aux parcours: tous sauf un, sauf s'il n'y en a qu'un
+    private final Semaphore scanStreams;
+    private final ConcurrentLinkedQueue<Queued> queued = new ConcurrentLinkedQueue<>();
+
+    private Device(DeviceKind kind, int limit) {
+      this.kind = kind;
+      this.limit = limit;
+      this.streams = new Semaphore(limit, true);
+      this.scanStreams = new Semaphore(Math.max(1, limit - 1), true);
+    }
+  }
+
+  private final Limits limits;
+  private final Map<Object, Device> devices = new ConcurrentHashMap<>();
+
+  public IoScheduler() {
+    this(Limits.defaults());
+  }
+
+  public IoScheduler(Limits limits) {
+    this.limits = Objects.requireNonNull(limits, "limits");
+  }
+
+  /** Instance partagee par le scan et les miniatures, pour que leurs limites se cumulent. */
+  public static IoScheduler system() {
+    return SystemHolder.INSTANCE;
+  }
+
+  private static final class SystemHolder {
+    private static final IoScheduler INSTANCE = new IoScheduler();
+  }
+
+  public DeviceKind kindOf(Path path) {
+    return deviceOf(path).kind;
+  }
+
+  /** Nombre maximal de flux simultanes sur le peripherique de {@code path}. */
+  public int limitFor(Path path) {
+    return deviceOf(path).limit;
+  }
+
+  /**
+   * Attend au moins un flux sur le peripherique de {@code path}, puis en prend jusqu'a {@code
+   * wanted} s'ils sont libres, sans jamais prendre le dernier flux d'un peripherique qui en a
+   * plusieurs (reserve a {@link #execute}). Retourne un permis vide ({@code streams() == 0}) si
+   * {@code shouldCancel} devient vrai pendant l'attente.
+   */
+  public Permit acquire(Path path, int wanted, BooleanSupplier shouldCancel) {
+    Device device = deviceOf(path);
+    if (!await(device.scanStreams, shouldCancel)) {
+      return Permit.unlimited(0);
+    }
+    if (!await(device.streams, shouldCancel)) {
+      device.scanStreams.release();
+      return Permit.unlimited(0);
+    }
+    int granted = 1;
+    int extra = wanted - 1;
+    while (extra > 0 && device.scanStreams.tryAcquire()) {
+      if (!device.streams.tryAcquire()) {
+        device.scanStreams.release();
+        break;
+      }
+      granted++;
+      extra--;
+    }
+    return new Permit(device, granted);
+  }
+
+  /** Attend un flux de {@code semaphore}; faux si l'attente est annulee ou interrompue. */
+  private static boolean await(Semaphore semaphore, BooleanSupplier shouldCancel) {
+    try {
+      while (!semaphore.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+        if (shouldCancel != null && shouldCancel.getAsBoolean()) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Soumet {@code task} a {@code executor} des qu'un flux est libre sur le peripherique de {@code
+   * path}. Les taches en attente restent dans la file du peripherique, pas dans celle de
+   * l'executeur: un disque lent n'occupe donc pas les threads dont un autre peripherique aurait
+   * besoin. Les flux sont partages avec {@link #acquire}.
+   */
+  public void execute(Path path, Runnable task, Executor executor) {
+    Device device = deviceOf(path);
+    device.queued.add(new Queued(task, executor));
+    dispatch(device);
+  }
+
+  private static void dispatch(Device device) {
+    while (!device.queued.isEmpty() && device.streams.tryAcquire()) {
+      Queued next = device.queued.poll();
+      if (next == null) {
+        device.streams.release();
+        continue;
+      }
+      try {
+        next.executor()
+            .execute(
+                () -> {
+                  try {
+                    next.task().run();
+                  } finally {
+                    device.streams.release();
+                    dispatch(device);
+                  }
+                });
+      } catch (RejectedExecutionException e) {
+        // Executeur arrete (fermeture de l'application): la tache est abandonnee
+        device.streams.release();
+        log.debug("Tache d'entree/sortie refusee: {}", e.getMessage());
+      }
+    }
+  }
+
+  private Device deviceOf(Path requested) {
+    Path path = existingAncestor(requested);
+    Object key = deviceKey(path);
+    return devices.computeIfAbsent(
+        key,
+        ignored -> {
+          DeviceKind kind = detectKind(path);
+          int limit = limits.forKind(kind);
+          log.info("Peripherique {} ({}): {} flux simultane(s)", key, kind, limit);
+          return new Device(kind, limit);
+        });
+  }
+
+  private static Object deviceKey(Path path) {
+    try {
+      if (path.getFileSystem() == FileSystems.getDefault()
+          && path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+        return Files.getAttribute(path, "unix:dev");
+      }
+      return Files.getFileStore(path);
+    } catch (IOException | UnsupportedOperationException e) {
+      // Chemin inaccessible: un groupe par systeme de fichiers suffit
+      return path.getFileSystem();
+    }
+  }
+
+  /** Un fichier pas encore cree (ou deja supprime) appartient au peripherique de son dossier. */
+  private static Path existingAncestor(Path path) {
+    Path current = path.toAbsolutePath();
+    while (current.getParent() != null && !Files.exists(current)) {
+      current = current.getParent();
+    }
+    return current;
+  }
+
+  private static DeviceKind detectKind(Path path) {
+    try {
+      FileStore store = Files.getFileStore(path);
+      if (NETWORK_TYPES.contains(store.type().toLowerCase(Locale.ROOT))) {
+        return DeviceKind.NETWORK;
+      }
+      if (LINUX && path.getFileSystem() == FileSystems.getDefault()) {
+        return rotationalFlag((Long) Files.getAttribute(path, "unix:dev"));
+      }
+    } catch (IOException | UnsupportedOperationException | ClassCastException e) {
+      log.debug("Nature du peripherique inconnue pour {}: {}", path, e.getMessage());
+    }
+    return DeviceKind.UNKNOWN;
+  }
+
+  /** Lit {@code queue/rotational} du peripherique bloc, ou de son disque pour une partition. */
+  private static DeviceKind rotationalFlag(long dev) {
+    long major = ((dev >>> 8) & 0xfff) | ((dev >>> 32) & ~0xfffL);
+    long minor = (dev & 0xff) | ((dev >>> 12) & ~0xffL);
+    Path block = Path.of("/sys/dev/block", major + ":" + minor);
+    try {
+      Path device = block.toRealPath();
+      for (Path candidate : new Path[] {device, device.getParent()}) {
+        Path flag = candidate == null ? null : candidate.resolve("queue/rotational");
+        if (flag != null && Files.isReadable(flag)) {
+          return Files.readString(flag).trim().equals("1")
+              ? DeviceKind.ROTATIONAL
+              : DeviceKind.SOLID_STATE;
+        }
+      }
+    } catch (IOException e) {
+      // tmpfs, overlay, fuse...: pas de peripherique bloc
+    }
+    return DeviceKind.UNKNOWN;
+  }
+}
@@ -0,0 +1,530 @@
+package org.example.infra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import org.example.ui.model.DirectoryTrie;
+import org.example.ui.model.PhotoItem;
+import org.example.ui.service.LibraryChange;
+import org.example.ui.service.PhotoLibraryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Catalogue persistant de la bibliotheque: un snapshot binaire compacte et un journal en ajout seul
+ * des changements publies depuis. A l'ouverture, le snapshot est relu puis le journal rejoue
+ * jusqu'au dernier enregistrement complet et intact (longueur et CRC); une fin abimee par un arret
+ * brutal est tronquee.
+ *
+ * <p>L'ecouteur de la bibliotheque ne fait qu'empiler les changements. Un thread unique les ecrit
+ * par lots et ne force le disque qu'une fois par lot: une action de l'interface n'attend jamais une
+ * ecriture. Un remplacement complet, ou un journal devenu trop gros, donne un nouveau snapshot et
+ * vide le journal.
+ */
+public final class LibraryCatalog implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(LibraryCatalog.class);
+  private static final int SNAPSHOT_MAGIC = 0x5047434c; // "PGCL"
+  private static final int JOURNAL_MAGIC = 0x50474a4c; // "PGJL"
+  private static final int VERSION = 1;
+  private static final int JOURNAL_HEADER_BYTES = 8;
+  // Longueur et CRC d'un enregistrement du journal
+  private static final int FRAME_HEADER_BYTES = 8;
+  private static final int MAX_FRAME_BYTES = 256 << 20;
+  private static final byte UPSERT = 'U';
+  private static final byte REMOVE = 'R';
+  private static final long DEFAULT_COMPACT_BYTES = 16L << 20;
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+  // Un repertoire ne peut pas etre ouvert (ni donc force) sous Windows
+  private static final boolean WINDOWS =
+      System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+  /** Changement a journaliser, ou demande de compaction ({@code change} nul). */
+  private record Task(long sequence, LibraryChange change) {}
+
+  private static final Task COMPACT = new Task(-1, null);
+  private static final Task STOP = new Task(-1, null);
+
+  private final Path snapshotFile;
+  private final Path journalFile;
+  private final long compactBytes;
+  private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+  private final Consumer<LibraryChange> listener = this::onChange;
+  private PhotoLibraryService library;
+  private FileChannel journal;
+  private Thread writer;
+  // Numero d'ordre persistant du dernier etat relu, et version de la bibliotheque correspondante
+  private long baseSequence;
+  private long baseVersion;
+  private long snapshotBytes;
+  // Plus rien n'est ecrit apres une erreur d'entree/sortie: la bibliotheque reste en memoire
+  private volatile boolean broken;
+  private volatile Consumer<? super IOException> failureListener = error -> {};
+
+  public LibraryCatalog(Path directory) {
+    this(directory, DEFAULT_COMPACT_BYTES);
+  }
+
+  /**
+   * @param compactBytes taille du journal au-dela de laquelle il est compacte en snapshot
+   */
+  LibraryCatalog(Path directory, long compactBytes) {
+    this.snapshotFile = directory.resolve("library.snapshot");
+    this.journalFile = directory.resolve("library.journal");
+    this.compactBytes = compactBytes;
+  }
+
+  /**
+   * Prevenu (sur le thread qui echoue) quand le catalogue cesse d'enregistrer les changements de la
+   * session, pour que l'utilisateur le sache.
+   */
+  public void setFailureListener(Consumer<? super IOException> listener) {
+    failureListener = listener == null ? error -> {} : listener;
+  }
+
+  /** Vrai si une erreur a interrompu l'enregistrement des changements. */
+  public boolean isBroken() {
+    return broken;
+  }
+
+  public static LibraryCatalog inUserHome() {
+    return new LibraryCatalog(
+        Path.of(System.getProperty("user.home", ""), ".photosgestion", "catalog"));
+  }
+
+  /**
+   * Recharge dans {@code library} (vide) les photos sauvegardees, puis journalise chacun de ses
+   * changements. Sans catalogue lisible, la bibliotheque reste vide et le catalogue repart de zero.
+   * Relit tout le snapshot: a appeler hors du thread JavaFX.
+   *
+   * @return nombre de photos rechargees
+   */
+  public synchronized int open(PhotoLibraryService library) {
+    if (this.library != null) {
+      throw new IllegalStateException("Catalogue deja ouvert");
+    }
+    List<PhotoItem> items = new ArrayList<>();
+    long sequence = readSnapshot(items);
+    int snapshotCount = items.size();
+    Map<Path, PhotoItem> state = null;
+    long journalEnd = JOURNAL_HEADER_BYTES;
+    try {
+      Path parent = journalFile.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      journal =
+          FileChannel.open(
+              journalFile,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      if (!hasJournalHeader()) {
+        journal.truncate(0);
+        journal.write(
+            ByteBuffer.allocate(JOURNAL_HEADER_BYTES).putInt(JOURNAL_MAGIC).putInt(VERSION).flip(),
+            0);
+      } else {
+        state = new LinkedHashMap<>(Math.max(16, items.size() * 2));
+        for (PhotoItem item : items) {
+          state.put(item.path(), item);
+        }
+        Replay replay = replayJournal(sequence, state);
+        journalEnd = replay.end();
+        sequence = Math.max(sequence, replay.lastSequence());
+        if (journalEnd < journal.size()) {
+          log.info("Journal du catalogue tronque a {} octets: fin incomplete ignoree", journalEnd);
+          journal.truncate(journalEnd);
+        }
+        if (replay.records() == 0) {
+          state = null;
+        } else {
+          log.info("Journal du catalogue rejoue: {} changements", replay.records());
+        }
+      }
+      journal.force(true);
+      journal.position(journalEnd);
+    } catch (IOException e) {
+      log.warn("Journal du catalogue indisponible ({}): {}", journalFile, e.getMessage());
+      fail(e);
+    }
+    List<PhotoItem> restored = state == null ? items : new ArrayList<>(state.values());
+    if (!restored.isEmpty()) {
+      library.restore(restored);
+    }
+    log.info(
+        "Catalogue ouvert: {} photos rechargees ({} depuis le snapshot)",
+        restored.size(),
+        snapshotCount);
+
+    this.library = library;
+    this.baseSequence = sequence;
+    synchronized (library) {
+      // Sous le verrou des ecrivains: aucune version ne passe entre la lecture et l'abonnement
+      this.baseVersion = library.snapshot().version();
+      library.addChangeListener(listener);
+    }
+    writer = new Thread(this::runWriter, "library-catalog");
+    writer.setDaemon(true);
+    writer.start();
+    if (!broken && journalEnd > Math.max(compactBytes, snapshotBytes / 2)) {
+      queue.add(COMPACT);
+    }
+    return restored.size();
+  }
+
+  /** Ecrit les changements en attente puis ferme le journal. */
+  @Override
+  public synchronized void close() {
+    if (library == null) {
+      return;
+    }
+    library.removeChangeListener(listener);
+    queue.add(STOP);
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writer.isAlive()) {
+      log.warn("Ecriture du catalogue non terminee apres {} s", CLOSE_TIMEOUT_SECONDS);
+    }
+    try {
+      if (journal != null) {
+        journal.close();
+      }
+    } catch (IOException e) {
+      log.warn("Fermeture du journal du catalogue {}: {}", journalFile, e.getMessage());
+    }
+    library = null;
+  }
+
+  /** Appele sous le verrou de la bibliotheque: empile seulement. */
+  private void onChange(LibraryChange change) {
+    queue.add(
+        change.reset() ? COMPACT : new Task(baseSequence + change.version() - baseVersion, change));
+  }
+
+  private void runWriter() {
+    List<Task> batch = new ArrayList<>();
+    ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    DataOutputStream framesOut = new DataOutputStream(frames);
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    boolean stopping = false;
+    while (!stopping) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      // Group commit: tout ce qui est arrive pendant l'ecriture precedente part ensemble
+      queue.drainTo(batch);
+      boolean compact = false;
+      frames.reset();
+      try {
+        for (Task task : batch) {
+          if (task == STOP) {
+            stopping = true;
+          } else if (task == COMPACT) {
+            compact = true;
+          } else if (!broken) {
+            appendFrame(framesOut, payload, task);
+          }
+        }
+        if (!broken && frames.size() > 0) {
+          ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+          while (buffer.hasRemaining()) {
+            journal.write(buffer);
+          }
+          journal.force(false);
+        }
+        if (!broken && (compact || journal.size() > Math.max(compactBytes, snapshotBytes / 2))) {
+          compact();
+        }
+      } catch (IOException e) {
+        // La bibliotheque continue en memoire plutot que d'echouer
+        log.warn("Ecriture du catalogue impossible ({}): {}", journalFile, e.getMessage());
+        fail(e);
+      }
+      batch.clear();
+    }
+  }
+
+  private void fail(IOException error) {
+    broken = true;
+    failureListener.accept(error);
+  }
+
+  private static void appendFrame(DataOutputStream frames, ByteArrayOutputStream payload, Task task)
+      throws IOException {
+    payload.reset();
+    DataOutputStream out = new DataOutputStream(payload);
+    LibraryChange change = task.change();
+    out.writeLong(task.sequence());
+    out.writeInt(change.added().size() + change.updated().size() + change.removed().size());
+    for (PhotoItem item : change.removed()) {
+      out.writeByte(REMOVE);
+      out.writeUTF(item.path().toString());
+    }
+    for (PhotoItem item : change.added()) {
+      writeUpsert(out, item);
+    }
+    for (LibraryChange.Update update : change.updated()) {
+      writeUpsert(out, update.current());
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    frames.writeInt(payload.size());
+    frames.writeInt((int) crc.getValue());
+    payload.writeTo(frames);
+  }
+
+  private static void writeUpsert(DataOutputStream out, PhotoItem item) throws IOException {
+    out.writeByte(UPSERT);
+    out.writeUTF(item.path().toString());
+    writeFields(out, item);
+  }
+
+  /** Etat courant de la bibliotheque en snapshot; le journal, deja couvert, est vide. */
+  private void compact() throws IOException {
+    PhotoLibraryService.Snapshot current = library.snapshot();
+    long sequence = baseSequence + current.version() - baseVersion;
+    // Snapshot renomme et repertoire force avant de vider le journal: jamais l'un sans l'autre
+    writeSnapshot(sequence, current.items());
+    // Un arret ici laisse des enregistrements deja couverts, ignores a la relecture
+    journal.truncate(JOURNAL_HEADER_BYTES);
+    journal.position(JOURNAL_HEADER_BYTES);
+    journal.force(true);
+    log.info("Catalogue compacte: {} photos, snapshot de {} octets", current.size(), snapshotBytes);
+  }
+
+  private void writeSnapshot(long sequence, List<PhotoItem> items) throws IOException {
+    Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try (FileChannel channel =
+            FileChannel.open(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(sequence);
+      out.writeInt(items.size());
+      // Repertoires ecrits une seule fois, a leur premiere photo
+      Map<DirectoryTrie.Node, Integer> directories = new IdentityHashMap<>();
+      for (PhotoItem item : items) {
+        Integer known = directories.get(item.directory());
+        if (known == null) {
+          out.writeInt(directories.size());
+          out.writeUTF(item.directory().path().toString());
+          directories.put(item.directory(), directories.size());
+        } else {
+          out.writeInt(known);
+        }
+        out.writeUTF(item.fileName());
+        writeFields(out, item);
+      }
+      out.flush();
+      channel.force(true);
+      snapshotBytes = channel.size();
+    }
+    try {
+      Files.move(
+          temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    forceDirectory(snapshotFile.toAbsolutePath().getParent());
+  }
+
+  /** Rend durable le renommage dans {@code directory}: sans cela, il peut etre perdu au reboot. */
+  private static void forceDirectory(Path directory) throws IOException {
+    if (WINDOWS || directory == null) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  /** Relit le snapshot dans {@code items}; rend son numero d'ordre, 0 sans snapshot lisible. */
+  private long readSnapshot(List<PhotoItem> items) {
+    if (!Files.isRegularFile(snapshotFile)) {
+      return 0;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+        log.warn("Snapshot du catalogue ignore (format inconnu): {}", snapshotFile);
+        return 0;
+      }
+      long sequence = in.readLong();
+      int count = in.readInt();
+      List<Path> directories = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int index = in.readInt();
+        if (index == directories.size()) {
+          directories.add(Path.of(in.readUTF()));
+        }
+        items.add(readFields(in, directories.get(index).resolve(in.readUTF())));
+      }
+      snapshotBytes = Files.size(snapshotFile);
+      return sequence;
+    } catch (IOException | RuntimeException e) {
+      // Le snapshot est ecrit a part puis deplace: illisible, il n'est pas recuperable
+      log.warn("Snapshot du catalogue illisible {}: {}", snapshotFile, e.getMessage());
+      items.clear();
+      return 0;
+    }
+  }
+
+  private boolean hasJournalHeader() throws IOException {
+    if (journal.size() < JOURNAL_HEADER_BYTES) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+    while (header.hasRemaining()) {
+      if (journal.read(header, header.position()) < 0) {
+        return false;
+      }
+    }
+    header.flip();
+    if (header.getInt() != JOURNAL_MAGIC || header.getInt() != VERSION) {
+      log.warn("Journal du catalogue ignore (format inconnu): {}", journalFile);
+      return false;
+    }
+    return true;
+  }
+
+  /** Fin du dernier enregistrement valide, dernier numero d'ordre lu et nombre rejoue. */
+  private record Replay(long end, long lastSequence, int records) {}
+
+  private Replay replayJournal(long snapshotSequence, Map<Path, PhotoItem> state)
+      throws IOException {
+    long size = journal.size();
+    long end = JOURNAL_HEADER_BYTES;
+    long lastSequence = 0;
+    int records = 0;
+    CRC32 crc = new CRC32();
+    // Flux non ferme: il fermerait aussi le canal du journal
+    DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(Channels.newInputStream(journal.position(end)), 1 << 16));
+    try {
+      while (end + FRAME_HEADER_BYTES <= size) {
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES || end + FRAME_HEADER_BYTES + length > size) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        crc.reset();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          log.warn("Journal du catalogue corrompu a l'octet {}: relecture arretee", end);
+          break;
+        }
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        long sequence = record.readLong();
+        // Deja couvert par le snapshot (arret entre snapshot et vidage du journal)
+        if (sequence > snapshotSequence) {
+          applyRecord(record, state);
+          records++;
+        }
+        lastSequence = Math.max(lastSequence, sequence);
+        end += FRAME_HEADER_BYTES + length;
+      }
+    } catch (EOFException truncated) {
+      // Fin incomplete: on garde ce qui precede
+    }
+    return new Replay(end, lastSequence, records);
+  }
+
+  private static void applyRecord(DataInputStream in, Map<Path, PhotoItem> state)
+      throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      byte type = in.readByte();
+      Path path = Path.of(in.readUTF());
+      if (type == REMOVE) {
+        state.remove(path);
+      } else if (type == UPSERT) {
+        state.put(path, readFields(in, path));
+      } else {
+        throw new IOException("Type d'enregistrement inconnu: " + type);
+      }
+    }
+  }
+
+  private static void writeFields(DataOutputStream out, PhotoItem item) throws IOException {
+    out.writeUTF(item.title());
+    out.writeLong(item.date().toEpochDay());
+    out.writeUTF(item.sizeLabel());
+    writeList(out, item.tags());
+    writeList(out, item.albums());
+    out.writeBoolean(item.favorite());
+  }
+
+  private static PhotoItem readFields(DataInputStream in, Path path) throws IOException {
+    String title = in.readUTF();
+    LocalDate date = LocalDate.ofEpochDay(in.readLong());
+    String sizeLabel = in.readUTF();
+    List<String> tags = readList(in);
+    List<String> albums = readList(in);
+    return new PhotoItem(path, title, date, sizeLabel, tags, albums, in.readBoolean());
+  }
+
+  private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+    int count = 0;
+    for (String value : values) {
+      count += value == null ? 0 : 1;
+    }
+    out.writeInt(count);
+    for (String value : values) {
+      if (value != null) {
+        out.writeUTF(value);
+      }
+    }
+  }
+
+  private static List<String> readList(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size == 0) {
+      return List.of();
+    }
+    String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = in.readUTF();
+    }
+    return List.of(values);
+  }
+}
@@ -0,0 +1,281 @@
+package org.example.infra;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Surveille les racines scannees avec un {@link WatchService} et pousse des diffs incrementaux. Les
+ * evenements sont regroupes par repertoire puis traites apres une periode de calme (debounce), de
+ * sorte qu'une copie massive ne declenche qu'un seul rescan cible des dossiers touches. En cas de
+ * debordement (OVERFLOW), seul le repertoire concerne est revisite recursivement.
+ */
+public class LibraryWatcher implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(LibraryWatcher.class);
+
+  private final PhotoFileScanner scanner;
+  private final ScanManifestStore manifestStore;
+  private final BiConsumer<Path, PhotoFileScanner.ScanDiff> listener;
+  private final long debounceNanos;
+  private final long maxDelayNanos;
+  private final Map<Path, WatchedRoot> roots = new ConcurrentHashMap<>();
+  private final Map<WatchKey, Registration> registrations = new ConcurrentHashMap<>();
+  private WatchService watchService;
+  private Thread worker;
+  private volatile boolean running;
+
+  private record Registration(WatchedRoot root, Path directory) {}
+
+  private static final class WatchedRoot {
+    private final Path root;
+    private final PhotoFileScanner.ScanOptions options;
+    private ScanManifest manifest;
+    private final Map<Path, Boolean> dirty = new HashMap<>();
+    // Repertoires ayant une cle active, pour ne pas parcourir toutes les inscriptions
+    private final Set<Path> registered = ConcurrentHashMap.newKeySet();
+
+    WatchedRoot(Path root, ScanManifest manifest, PhotoFileScanner.ScanOptions options) {
+      this.root = root;
+      this.manifest = manifest;
+      this.options = options;
+    }
+  }
+
+  /**
+   * @param listener recoit le diff d'une racine, sur le thread de surveillance
+   * @param manifestStore facultatif; le manifeste mis a jour y est enregistre apres chaque lot
+   */
+  public LibraryWatcher(
+      PhotoFileScanner scanner,
+      ScanManifestStore manifestStore,
+      Duration debounce,
+      BiConsumer<Path, PhotoFileScanner.ScanDiff> listener) {
+    this.scanner = Objects.requireNonNull(scanner, "scanner");
+    this.manifestStore = manifestStore;
+    this.listener = Objects.requireNonNull(listener, "listener");
+    Duration quiet = debounce == null || debounce.isNegative() ? Duration.ZERO : debounce;
+    this.debounceNanos = quiet.toNanos();
+    this.maxDelayNanos = Math.max(quiet.multipliedBy(8).toNanos(), TimeUnit.SECONDS.toNanos(2));
+  }
+
+  /**
+   * Commence a surveiller une racine et tous les repertoires de son manifeste. Le manifeste doit
+   * correspondre a l'etat actuellement charge dans la bibliotheque.
+   */
+  public synchronized void watch(
+      Path root, ScanManifest manifest, PhotoFileScanner.ScanOptions options) throws IOException {
+    Objects.requireNonNull(root, "root");
+    ensureStarted(root);
+    unwatch(root);
+    WatchedRoot watched =
+        new WatchedRoot(
+            root,
+            manifest == null ? ScanManifest.empty() : manifest,
+            options == null ? PhotoFileScanner.ScanOptions.defaults() : options);
+    roots.put(root, watched);
+    if (watched.manifest.isEmpty()) {
+      register(watched, root);
+    } else {
+      watched.manifest.directories().keySet().forEach(dir -> register(watched, dir));
+    }
+    log.info("Surveillance active pour {} ({} dossiers)", root, watched.registered.size());
+  }
+
+  public synchronized void unwatch(Path root) {
+    WatchedRoot removed = roots.remove(root);
+    if (removed == null) {
+      return;
+    }
+    registrations
+        .entrySet()
+        .removeIf(
+            entry -> {
+              if (entry.getValue().root() == removed) {
+                entry.getKey().cancel();
+                return true;
+              }
+              return false;
+            });
+    log.info("Surveillance arretee pour {}", root);
+  }
+
+  public boolean isWatching(Path root) {
+    return roots.containsKey(root);
+  }
+
+  @Override
+  public synchronized void close() {
+    running = false;
+    roots.clear();
+    registrations.clear();
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        log.debug("Fermeture du WatchService: {}", e.getMessage());
+      }
+      watchService = null;
+    }
+    if (worker != null) {
+      worker.interrupt();
+      worker = null;
+    }
+  }
+
+  private void ensureStarted(Path root) throws IOException {
+    if (running) {
+      return;
+    }
+    watchService = root.getFileSystem().newWatchService();
+    running = true;
+    worker = new Thread(this::runLoop, "library-watcher");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  private void register(WatchedRoot watched, Path dir) {
+    try {
+      WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      registrations.put(key, new Registration(watched, dir));
+      watched.registered.add(dir);
+    } catch (IOException e) {
+      log.warn("Impossible de surveiller {}: {}", dir, e.getMessage());
+    }
+  }
+
+  private void runLoop() {
+    WatchService service = watchService;
+    long firstPending = 0;
+    long lastEvent = 0;
+    while (running) {
+      try {
+        boolean pending = firstPending != 0;
+        WatchKey key =
+            pending
+                ? service.poll(
+                    Math.max(1, debounceNanos - (System.nanoTime() - lastEvent)),
+                    TimeUnit.NANOSECONDS)
+                : service.take();
+        long now = System.nanoTime();
+        if (key != null) {
+          if (collect(key)) {
+            lastEvent = now;
+            if (firstPending == 0) {
+              firstPending = now;
+            }
+          }
+        }
+        boolean quiet = now - lastEvent >= debounceNanos;
+        boolean overdue = firstPending != 0 && now - firstPending >= maxDelayNanos;
+        if (firstPending != 0 && (quiet || overdue)) {
+          flush();
+          firstPending = 0;
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        break;
+      } catch (RuntimeException e) {
+        log.error("Erreur pendant la surveillance des dossiers", e);
+      }
+    }
+    log.debug("Thread de surveillance termine");
+  }
+
+  private boolean collect(WatchKey key) {
+    Registration registration = registrations.get(key);
+    List<WatchEvent<?>> events = key.pollEvents();
+    if (!key.reset()) {
+      registrations.remove(key);
+      if (registration != null) {
+        registration.root().registered.remove(registration.directory());
+      }
+    }
+    if (registration == null || events.isEmpty()) {
+      return false;
+    }
+    WatchedRoot watched = registration.root();
+    Path dir = registration.directory();
+    synchronized (watched) {
+      for (WatchEvent<?> event : events) {
+        if (event.kind() == OVERFLOW) {
+          log.warn("Evenements perdus pour {}: rescan cible du dossier", dir);
+          watched.dirty.put(dir, true);
+          continue;
+        }
+        Path child = dir.resolve((Path) event.context());
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          // Nouveau dossier: il sera parcouru (et surveille) en entier
+          watched.dirty.put(child, true);
+        }
+        watched.dirty.putIfAbsent(dir, false);
+      }
+    }
+    return true;
+  }
+
+  private void flush() {
+    for (WatchedRoot watched : roots.values()) {
+      Map<Path, Boolean> batch;
+      synchronized (watched) {
+        if (watched.dirty.isEmpty()) {
+          continue;
+        }
+        batch = new HashMap<>(watched.dirty);
+        watched.dirty.clear();
+      }
+      PhotoFileScanner.RescanResult result =
+          scanner.rescanDirectories(watched.root, watched.manifest, batch, watched.options);
+      if (!result.complete()) {
+        continue;
+      }
+      watched.manifest = result.manifest();
+      registerNewDirectories(watched, result.rescannedDirectories());
+      if (manifestStore != null) {
+        manifestStore.save(watched.root, watched.manifest);
+      }
+      PhotoFileScanner.ScanDiff diff = result.diff();
+      log.info(
+          "Changements detectes sous {} ({} dossiers): {} ajouts, {} modifications, {}"
+              + " suppressions",
+          watched.root,
+          batch.size(),
+          diff.added().size(),
+          diff.modified().size(),
+          diff.removed().size());
+      if (!diff.isEmpty()) {
+        listener.accept(watched.root, diff);
+      }
+    }
+  }
+
+  private synchronized void registerNewDirectories(WatchedRoot watched, List<Path> directories) {
+    if (!running || roots.get(watched.root) != watched) {
+      return;
+    }
+    for (Path dir : directories) {
+      if (!watched.registered.contains(dir)) {
+        register(watched, dir);
+      }
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package org.example.infra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.example.ui.model.PhotoItem;
+
+/**
+ * Tampon borne alimente par les threads du scan. Un lot est livre des qu'il est plein, ou a la fin
+ * d'un repertoire si le dernier envoi date un peu, pour que l'interface voie arriver les photos
+ * meme dans des dossiers peu fournis. La livraison est synchrone: un consommateur lent ralentit le
+ * parcours (contre-pression) au lieu de laisser les resultats s'accumuler en memoire.
+ */
+final class PhotoBatchSink {
+  private static final long MAX_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+  private final int batchSize;
+  private final Consumer<List<PhotoItem>> consumer;
+  private List<PhotoItem> buffer;
+  private long lastDelivery = System.nanoTime();
+  private long delivered;
+
+  PhotoBatchSink(int batchSize, Consumer<List<PhotoItem>> consumer) {
+    this.batchSize = Math.max(1, batchSize);
+    this.consumer = consumer;
+    this.buffer = new ArrayList<>(this.batchSize);
+  }
+
+  synchronized void add(PhotoItem item) {
+    buffer.add(item);
+    if (buffer.size() >= batchSize) {
+      deliver();
+    }
+  }
+
+  synchronized void directoryCompleted() {
+    if (!buffer.isEmpty() && System.nanoTime() - lastDelivery >= MAX_LATENCY_NANOS) {
+      deliver();
+    }
+  }
+
+  synchronized void flush() {
+    if (!buffer.isEmpty()) {
+      deliver();
+    }
+  }
+
+  synchronized long deliveredCount() {
+    return delivered;
+  }
+
+  private void deliver() {
+    List<PhotoItem> batch = buffer;
+    buffer = new ArrayList<>(batchSize);
+    batch.sort(PhotoFileScanner.MOST_RECENT);
+    delivered += batch.size();
+    lastDelivery = System.nanoTime();
+    consumer.accept(batch);
+  }
+}
@@ -5,26 +5,46 @@ import java.io.UncheckedIOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.LongConsumer;
+import org.example.core.Photo;
+import org.example.core.Rating;
+import org.example.core.Tag;
+import org.example.ui.model.DirectoryTrie;
 import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,8 +69,103 @@ public class PhotoFileScanner {
           "recent",
           "sendto");
 
+  /** Ordre d'affichage commun, voir {@link PhotoOrdering#MOST_RECENT}. */
+  public static final Comparator<PhotoItem> MOST_RECENT = PhotoOrdering.MOST_RECENT;
+
+  private static final int PUBLISHER_BUFFER = 4;
+  // Date de modification illisible: le repertoire ne sera pas marque dans le point de controle
+  private static final long UNKNOWN_MODIFIED = Long.MIN_VALUE;
+  private final int parallelism;
+  private final boolean fastListing;
+  private final ScanCheckpointStore checkpoints;
+  private final IoScheduler ioScheduler;
+  private final LongAdder attributeReads = new LongAdder();
+  private final ImageSniffer sniffer = new ImageSniffer();
+
+  public PhotoFileScanner() {
+    this(1);
+  }
+
+  /**
+   * Cree un scanner dont le parcours est reparti sur {@code parallelism} threads (fork-join avec
+   * vol de taches). Une valeur de 1 conserve le parcours sequentiel historique. En mode parallele,
+   * le callback de progression peut etre appele depuis plusieurs threads.
+   */
+  public PhotoFileScanner(int parallelism) {
+    this(parallelism, true);
+  }
+
+  /**
+   * @param fastListing autorise l'enumeration Linux qui ne lit les attributs que des images
+   *     candidates (voir {@link DirectoryLister}); ignore hors Linux ou hors systeme par defaut
+   */
+  public PhotoFileScanner(int parallelism, boolean fastListing) {
+    this(parallelism, fastListing, null);
+  }
+
+  /**
+   * @param checkpoints si non nul, chaque racine scannee ecrit un point de controle et un scan
+   *     interrompu (annulation, disque deconnecte) reprend la ou il s'etait arrete
+   */
+  public PhotoFileScanner(int parallelism, boolean fastListing, ScanCheckpointStore checkpoints) {
+    this(parallelism, fastListing, checkpoints, null);
+  }
+
+  /**
+   * @param ioScheduler si non nul, chaque racine attend un flux sur son peripherique et n'utilise
+   *     pas plus de threads que ce peripherique n'en supporte (un seul sur un disque rotatif)
+   */
+  public PhotoFileScanner(
+      int parallelism,
+      boolean fastListing,
+      ScanCheckpointStore checkpoints,
+      IoScheduler ioScheduler) {
+    this.parallelism = Math.max(1, parallelism);
+    this.fastListing = fastListing;
+    this.checkpoints = checkpoints;
+    this.ioScheduler = ioScheduler;
+  }
+
+  public static PhotoFileScanner parallel() {
+    return new PhotoFileScanner(Runtime.getRuntime().availableProcessors());
+  }
+
+  /** Scanner de l'application: points de controle et limites par peripherique partagees. */
+  public static PhotoFileScanner parallel(ScanCheckpointStore checkpoints) {
+    return new PhotoFileScanner(
+        Runtime.getRuntime().availableProcessors(), true, checkpoints, IoScheduler.system());
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  /** Lectures d'attributs faites par les scans via {@link DirectoryLister} (diagnostic). */
+  long attributeReads() {
+    return attributeReads.sum();
+  }
+
+  /**
+   * @param sniffContent verifie la signature des fichiers (voir {@link ImageSniffer}): les faux
+   *     fichiers image sont ecartes et les images sans extension ou a extension alternative sont
+   *     retenues
+   */
   public record ScanOptions(
-      boolean skipHidden, boolean skipSystem, int maxDepth, long maxSizeBytes, LocalDate minDate) {
+      boolean skipHidden,
+      boolean skipSystem,
+      int maxDepth,
+      long maxSizeBytes,
+      LocalDate minDate,
+      boolean sniffContent) {
+    public ScanOptions(
+        boolean skipHidden,
+        boolean skipSystem,
+        int maxDepth,
+        long maxSizeBytes,
+        LocalDate minDate) {
+      this(skipHidden, skipSystem, maxDepth, maxSizeBytes, minDate, false);
+    }
+
     public static ScanOptions defaults() {
       return new ScanOptions(true, true, Integer.MAX_VALUE, 0, null);
     }
@@ -90,7 +205,8 @@ public class PhotoFileScanner {
     BooleanSupplier shouldCancel = cancelSignal != null ? cancelSignal : () -> false;
     LongConsumer progress = progressCallback != null ? progressCallback : count -> {};
     ScanOptions effectiveOptions = options == null ? ScanOptions.defaults() : options;
-    List<PhotoItem> aggregated = new ArrayList<>();
+    // Une sequence triee par racine, fusionnees une seule fois a la fin
+    List<List<PhotoItem>> runs = new ArrayList<>();
     List<Path> skippedDirectories = new ArrayList<>();
     AtomicLong visited = new AtomicLong(0);
     for (Path root : roots) {
@@ -101,8 +217,290 @@ public class PhotoFileScanner {
         log.warn("Racine ignoree car invalide: {}", root);
         continue;
       }
-      int itemsBefore = aggregated.size();
-      try {
+      ConcurrentLinkedQueue<PhotoItem> found = new ConcurrentLinkedQueue<>();
+      boolean completed =
+          walkRoot(
+              root,
+              shouldCancel,
+              progress,
+              null,
+              visited,
+              (scanRoot, file, attrs) -> toPhotoItem(scanRoot, file, attrs).ifPresent(found::add),
+              () -> {},
+              skippedDirectories,
+              effectiveOptions);
+      runs.add(sortRun(new ArrayList<>(found)));
+      if (!completed) {
+        break;
+      }
+    }
+    return new ScanResult(PhotoOrdering.mergeRuns(runs), List.copyOf(skippedDirectories));
+  }
+
+  /**
+   * Variante en flux de {@link #scan(List, BooleanSupplier, LongConsumer, ScanOptions)}: les photos
+   * sont livrees par lots d'au plus {@code batchSize} elements (chacun trie selon {@link
+   * #MOST_RECENT}) au fil des repertoires termines, sans jamais conserver le resultat complet. Le
+   * consommateur est appele sur un thread du scan, un lot a la fois; tant qu'il ne rend pas la
+   * main, le parcours est suspendu.
+   */
+  public StreamResult scanInBatches(
+      List<Path> roots,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      ScanOptions options,
+      int batchSize,
+      Consumer<List<PhotoItem>> batchConsumer) {
+    return scanInBatches(
+        roots, cancelSignal, progressCallback, null, options, batchSize, batchConsumer);
+  }
+
+  /**
+   * Comme {@link #scanInBatches(List, BooleanSupplier, LongConsumer, ScanOptions, int, Consumer)},
+   * avec la progression agregee dans {@code tracker}: fichiers parcourus, taille des images
+   * retenues et repertoires restant a lire. Un meme suivi peut etre partage par plusieurs scans
+   * simultanes.
+   */
+  public StreamResult scanInBatches(
+      List<Path> roots,
+      BooleanSupplier cancelSignal,
+      ScanOptions options,
+      int batchSize,
+      ProgressTracker tracker,
+      Consumer<List<PhotoItem>> batchConsumer) {
+    Objects.requireNonNull(tracker, "tracker");
+    return scanInBatches(roots, cancelSignal, null, tracker, options, batchSize, batchConsumer);
+  }
+
+  private StreamResult scanInBatches(
+      List<Path> roots,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      ProgressTracker tracker,
+      ScanOptions options,
+      int batchSize,
+      Consumer<List<PhotoItem>> batchConsumer) {
+    Objects.requireNonNull(batchConsumer, "batchConsumer");
+    PhotoBatchSink sink = new PhotoBatchSink(batchSize, batchConsumer);
+    StreamResult result =
+        walkRoots(
+            roots,
+            cancelSignal,
+            progressCallback,
+            tracker,
+            options,
+            (root, file, attrs) -> toPhotoItem(root, file, attrs).ifPresent(sink::add),
+            sink::directoryCompleted,
+            sink::flush);
+    return new StreamResult(sink.deliveredCount(), result.skippedDirectories(), result.complete());
+  }
+
+  /**
+   * Parcours generique: meme moteur (parallelisme, filtres, annulation, progression), mais chaque
+   * image retenue est convertie par {@code adapter} puis remise a {@code sink}. En mode parallele
+   * le {@code sink} est appele depuis plusieurs threads et doit etre thread-safe.
+   */
+  public <T> StreamResult scanWith(
+      List<Path> roots,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      ScanOptions options,
+      ScanAdapter<T> adapter,
+      Consumer<? super T> sink) {
+    Objects.requireNonNull(adapter, "adapter");
+    Objects.requireNonNull(sink, "sink");
+    LongAdder produced = new LongAdder();
+    StreamResult result =
+        walkRoots(
+            roots,
+            cancelSignal,
+            progressCallback,
+            null,
+            options,
+            (root, file, attrs) ->
+                adapter
+                    .adapt(root, file, attrs)
+                    .ifPresent(
+                        item -> {
+                          produced.increment();
+                          sink.accept(item);
+                        }),
+            () -> {},
+            () -> {});
+    return new StreamResult(produced.sum(), result.skippedDirectories(), result.complete());
+  }
+
+  private StreamResult walkRoots(
+      List<Path> roots,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      ProgressTracker tracker,
+      ScanOptions options,
+      MatchHandler matchHandler,
+      Runnable directoryHandler,
+      Runnable rootDone) {
+    if (roots == null || roots.isEmpty()) {
+      log.warn("Scan ignore: aucune racine fournie");
+      return new StreamResult(0, List.of(), true);
+    }
+    BooleanSupplier shouldCancel = cancelSignal != null ? cancelSignal : () -> false;
+    LongConsumer progress = progressCallback != null ? progressCallback : count -> {};
+    MatchHandler onMatch = matchHandler;
+    Runnable directoryDone = directoryHandler;
+    if (tracker != null) {
+      progress = progress.andThen(tracker.visitedCounter());
+      onMatch =
+          (root, file, attrs) -> {
+            tracker.addBytes(attrs.size());
+            matchHandler.accept(root, file, attrs);
+          };
+      directoryDone =
+          () -> {
+            tracker.directoryDone();
+            directoryHandler.run();
+          };
+    }
+    ScanOptions effectiveOptions = options == null ? ScanOptions.defaults() : options;
+    List<Path> skippedDirectories = new ArrayList<>();
+    AtomicLong visited = new AtomicLong(0);
+    boolean completed = true;
+    for (Path root : roots) {
+      if (shouldCancel.getAsBoolean()) {
+        completed = false;
+        break;
+      }
+      if (root == null || !Files.isDirectory(root)) {
+        log.warn("Racine ignoree car invalide: {}", root);
+        continue;
+      }
+      completed =
+          walkRoot(
+              root,
+              shouldCancel,
+              progress,
+              tracker,
+              visited,
+              onMatch,
+              directoryDone,
+              skippedDirectories,
+              effectiveOptions);
+      rootDone.run();
+      if (!completed) {
+        break;
+      }
+    }
+    return new StreamResult(0, List.copyOf(skippedDirectories), completed);
+  }
+
+  /**
+   * Expose {@link #scanInBatches} comme un {@link Flow.Publisher} froid: chaque abonnement lance
+   * son propre scan sur un thread dedie. La demande de l'abonne borne le nombre de lots en attente;
+   * au-dela, le parcours attend. Annuler l'abonnement interrompt le scan.
+   */
+  public Flow.Publisher<List<PhotoItem>> publish(
+      List<Path> roots, ScanOptions options, int batchSize) {
+    List<Path> scanRoots = roots == null ? List.of() : List.copyOf(roots);
+    return subscriber -> {
+      SubmissionPublisher<List<PhotoItem>> publisher =
+          new SubmissionPublisher<>(ForkJoinPool.commonPool(), PUBLISHER_BUFFER);
+      publisher.subscribe(subscriber);
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  scanInBatches(
+                      scanRoots,
+                      () -> publisher.isClosed() || !publisher.hasSubscribers(),
+                      null,
+                      options,
+                      batchSize,
+                      batch -> offerUntilAccepted(publisher, batch));
+                  publisher.close();
+                } catch (RuntimeException e) {
+                  log.error("Scan en flux echoue", e);
+                  publisher.closeExceptionally(e);
+                }
+              },
+              "scan-publisher");
+      thread.setDaemon(true);
+      thread.start();
+    };
+  }
+
+  private static void offerUntilAccepted(
+      SubmissionPublisher<List<PhotoItem>> publisher, List<PhotoItem> batch) {
+    // offer() avec delai plutot que submit(): un abonne qui annule ne bloque pas le scan
+    int lag;
+    do {
+      lag = publisher.offer(batch, 100, TimeUnit.MILLISECONDS, (subscriber, dropped) -> false);
+    } while (lag < 0 && publisher.hasSubscribers());
+  }
+
+  /** Parcourt une racine; retourne {@code false} si le scan a ete interrompu. */
+  private boolean walkRoot(
+      Path root,
+      BooleanSupplier shouldCancel,
+      LongConsumer progress,
+      ProgressTracker tracker,
+      AtomicLong visited,
+      MatchHandler onMatch,
+      Runnable directoryDone,
+      List<Path> skippedDirectories,
+      ScanOptions options) {
+    IoScheduler.Permit permit = acquireStreams(root, shouldCancel);
+    if (permit.streams() == 0) {
+      return false;
+    }
+    try (permit) {
+      return walkRoot(
+          root,
+          permit.streams(),
+          shouldCancel,
+          progress,
+          tracker,
+          visited,
+          onMatch,
+          directoryDone,
+          skippedDirectories,
+          options);
+    }
+  }
+
+  private boolean walkRoot(
+      Path root,
+      int streams,
+      BooleanSupplier shouldCancel,
+      LongConsumer progress,
+      ProgressTracker tracker,
+      AtomicLong visited,
+      MatchHandler onMatch,
+      Runnable directoryDone,
+      List<Path> skippedDirectories,
+      ScanOptions options) {
+    DirectoryLister lister = DirectoryLister.forRoot(root, fastListing);
+    ScanCheckpoint checkpoint = checkpoints == null ? null : checkpoints.open(root, options);
+    ConcurrentLinkedQueue<Path> skipped = new ConcurrentLinkedQueue<>();
+    WalkContext context =
+        new WalkContext(
+            root,
+            lister,
+            shouldCancel,
+            progress,
+            tracker,
+            visited,
+            onMatch,
+            directoryDone,
+            skipped,
+            options,
+            checkpoint);
+    boolean rootDone = false;
+    try {
+      if (checkpoint != null && checkpoint.isResumed()) {
+        replayCheckpoint(context);
+      }
+      if (streams > 1 || lister.isFast() || checkpoint != null) {
+        rootDone = walkInParallel(context, streams);
+      } else {
         Files.walkFileTree(
             root,
             EnumSet.noneOf(FileVisitOption.class),
@@ -112,27 +510,312 @@ public class PhotoFileScanner {
                 shouldCancel,
                 progress,
                 visited,
-                aggregated,
+                onMatch,
+                directoryDone,
                 skippedDirectories,
-                effectiveOptions));
-        if (shouldCancel.getAsBoolean()) {
-          log.info("Scan interrompu a la demande apres {} fichiers parcourus", visited);
-          break;
+                options));
+      }
+      attributeReads.add(lister.attributeReads());
+      if (shouldCancel.getAsBoolean()) {
+        log.info("Scan interrompu a la demande apres {} fichiers parcourus", visited);
+        return false;
+      }
+      log.info("Scan termine pour {} ({} fichiers parcourus au total)", root, visited);
+    } catch (IOException | UncheckedIOException e) {
+      log.error("Echec du scan du dossier {}", root, e);
+      skipped.add(root);
+    } finally {
+      skippedDirectories.addAll(
+          skipped.stream().filter(p -> !skippedDirectories.contains(p)).toList());
+      if (checkpoint != null) {
+        // Garde le point de controle tant qu'une partie de l'arbre reste a (re)parcourir
+        if (rootDone) {
+          checkpoint.delete();
+        } else {
+          checkpoint.close();
         }
-        int rootAdded = aggregated.size() - itemsBefore;
-        log.info("Scan termine: {} fichiers images dans {}", rootAdded, root);
-      } catch (IOException | UncheckedIOException e) {
-        log.error("Echec du scan du dossier {}", root, e);
-        if (!skippedDirectories.contains(root)) {
-          skippedDirectories.add(root);
+      }
+    }
+    return true;
+  }
+
+  /** Restitue les images deja retenues par le scan interrompu, sans relire le disque. */
+  private void replayCheckpoint(WalkContext context) {
+    List<ScanCheckpoint.SavedPhoto> saved = context.checkpoint().savedPhotos();
+    log.info(
+        "Reprise du scan de {} depuis un point de controle ({} images deja trouvees)",
+        context.root(),
+        saved.size());
+    for (ScanCheckpoint.SavedPhoto photo : saved) {
+      context.onMatch().accept(context.root(), photo.path(), new SavedAttributes(photo));
+    }
+    context.directoryDone().run();
+  }
+
+  /**
+   * Rescan incremental d'une racine a partir du manifeste du scan precedent. Un repertoire dont la
+   * date de modification n'a pas change n'est ni relu ni re-stat: ses images sont reprises du
+   * manifeste et seuls ses sous-repertoires sont revisites. Une image modifiee sur place sans
+   * renommage n'est donc detectee que si son dossier a change (ou lors d'un scan complet).
+   *
+   * <p>Un manifeste vide (ou issu d'autres options) produit un scan complet ou tout est "ajoute".
+   * En cas d'annulation, le diff est vide et le manifeste precedent est conserve.
+   */
+  public RescanResult rescan(
+      Path root,
+      ScanManifest previous,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      ScanOptions options) {
+    ScanOptions effectiveOptions = options == null ? ScanOptions.defaults() : options;
+    ScanManifest prior = previous == null ? ScanManifest.empty() : previous;
+    if (root == null || !Files.isDirectory(root)) {
+      log.warn("Rescan ignore: racine invalide {}", root);
+      return new RescanResult(ScanDiff.empty(), prior, List.of(), List.of(), false);
+    }
+    String optionsKey = effectiveOptions.toString();
+    ScanManifest baseline = optionsKey.equals(prior.optionsKey()) ? prior : ScanManifest.empty();
+    return runRescan(
+        root,
+        prior,
+        baseline,
+        effectiveOptions,
+        cancelSignal,
+        progressCallback,
+        Map.of(root, true),
+        false);
+  }
+
+  /**
+   * Rescan cible de quelques repertoires d'une racine deja scannee: chaque repertoire cible est
+   * relu meme si sa date n'a pas change (une image modifiee sur place ne touche pas son dossier).
+   * La valeur associee indique s'il faut aussi revisiter ses sous-repertoires; sinon seuls les
+   * nouveaux sous-repertoires sont parcourus. Le manifeste retourne reprend le precedent pour tout
+   * le reste de l'arbre.
+   */
+  public RescanResult rescanDirectories(
+      Path root, ScanManifest previous, Map<Path, Boolean> directories, ScanOptions options) {
+    ScanOptions effectiveOptions = options == null ? ScanOptions.defaults() : options;
+    ScanManifest prior = previous == null ? ScanManifest.empty() : previous;
+    if (root == null || !Files.isDirectory(root)) {
+      log.warn("Rescan ignore: racine invalide {}", root);
+      return new RescanResult(ScanDiff.empty(), prior, List.of(), List.of(), false);
+    }
+    if (prior.isEmpty() || !effectiveOptions.toString().equals(prior.optionsKey())) {
+      return rescan(root, prior, null, null, effectiveOptions);
+    }
+    Map<Path, Boolean> targets = new HashMap<>();
+    if (directories != null) {
+      directories.forEach(
+          (dir, recursive) -> {
+            if (dir != null && dir.startsWith(root)) {
+              targets.merge(dir, Boolean.TRUE.equals(recursive), Boolean::logicalOr);
+            }
+          });
+    }
+    // Un repertoire deja couvert par un ancetre revisite recursivement est inutile
+    targets
+        .keySet()
+        .removeIf(
+            dir -> {
+              for (Path parent = dir.getParent();
+                  parent != null && parent.startsWith(root);
+                  parent = parent.getParent()) {
+                if (Boolean.TRUE.equals(targets.get(parent))) {
+                  return true;
+                }
+              }
+              return false;
+            });
+    if (targets.isEmpty()) {
+      return new RescanResult(ScanDiff.empty(), prior, List.of(), List.of(), true);
+    }
+    return runRescan(root, prior, prior, effectiveOptions, null, null, targets, true);
+  }
+
+  private RescanResult runRescan(
+      Path root,
+      ScanManifest prior,
+      ScanManifest baseline,
+      ScanOptions options,
+      BooleanSupplier cancelSignal,
+      LongConsumer progressCallback,
+      Map<Path, Boolean> targets,
+      boolean targeted) {
+    RescanContext context =
+        new RescanContext(
+            root,
+            DirectoryLister.forRoot(root, fastListing),
+            baseline,
+            options,
+            cancelSignal != null ? cancelSignal : () -> false,
+            progressCallback != null ? progressCallback : count -> {},
+            targets.keySet(),
+            new AtomicLong(0),
+            new AtomicLong(0),
+            new ConcurrentHashMap<>(),
+            ConcurrentHashMap.newKeySet(),
+            new ConcurrentLinkedQueue<>(),
+            new ConcurrentLinkedQueue<>(),
+            new ConcurrentLinkedQueue<>(),
+            new ConcurrentLinkedQueue<>());
+    List<RescanTask> tasks = new ArrayList<>();
+    for (Map.Entry<Path, Boolean> target : targets.entrySet()) {
+      Path dir = target.getKey();
+      if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+        context.removeSubtree(dir);
+      } else if (shouldEnterDirectory(root, dir, options, context.skipped())) {
+        tasks.add(new RescanTask(context, dir, targeted, target.getValue()));
+      } else {
+        context.removeSubtree(dir);
+      }
+    }
+    try (IoScheduler.Permit permit = acquireStreams(root, context.shouldCancel())) {
+      if (permit.streams() > 0) {
+        ForkJoinPool pool = new ForkJoinPool(permit.streams());
+        try {
+          pool.invoke(
+              new RecursiveAction() {
+                @Override
+                protected void compute() {
+                  invokeAll(tasks);
+                }
+              });
+        } finally {
+          pool.shutdownNow();
         }
       }
     }
-    aggregated.sort(Comparator.comparing(PhotoItem::date).reversed());
-    return new ScanResult(aggregated, List.copyOf(skippedDirectories));
+    attributeReads.add(context.lister().attributeReads());
+    if (context.shouldCancel().getAsBoolean()) {
+      log.info("Rescan de {} interrompu; manifeste precedent conserve", root);
+      return new RescanResult(
+          ScanDiff.empty(), prior, List.copyOf(context.skipped()), List.of(), false);
+    }
+    Map<Path, ScanManifest.DirectoryState> directories;
+    if (targeted) {
+      directories = new HashMap<>(baseline.directories());
+      directories.keySet().removeAll(context.removedDirectories());
+      directories.putAll(context.directories());
+    } else {
+      directories = context.directories();
+    }
+    ScanDiff diff =
+        new ScanDiff(
+            sortRun(new ArrayList<>(context.added())),
+            sortRun(new ArrayList<>(context.modified())),
+            List.copyOf(context.removed()));
+    log.info(
+        "Rescan de {} termine: {} ajouts, {} modifications, {} suppressions ({} dossiers"
+            + " inchanges)",
+        targeted ? targets.keySet() : root,
+        diff.added().size(),
+        diff.modified().size(),
+        diff.removed().size(),
+        context.reusedDirectories());
+    return new RescanResult(
+        diff,
+        new ScanManifest(options.toString(), directories),
+        List.copyOf(context.skipped()),
+        List.copyOf(context.directories().keySet()),
+        true);
+  }
+
+  /** Fusion lineaire de deux listes deja triees, voir {@link PhotoOrdering#mergeSorted}. */
+  public static List<PhotoItem> mergeSorted(List<PhotoItem> left, List<PhotoItem> right) {
+    return PhotoOrdering.mergeSorted(left, right);
+  }
+
+  private List<PhotoItem> sortRun(List<PhotoItem> run) {
+    run.sort(MOST_RECENT);
+    return run;
+  }
+
+  /** Retourne {@code true} si tout l'arbre a ete parcouru sans annulation ni erreur. */
+  private boolean walkInParallel(WalkContext context, int streams) {
+    ForkJoinPool pool = new ForkJoinPool(streams);
+    try {
+      Path root = context.root();
+      if (!shouldEnterDirectory(root, root, context.options(), context.skipped())) {
+        return false;
+      }
+      DirectoryTask task = new DirectoryTask(context, root);
+      if (context.tracker() != null) {
+        context.tracker().directoriesQueued(1);
+      }
+      pool.invoke(task);
+      return task.subtreeComplete;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Sans ordonnanceur, toute la parallelisation demandee est accordee sans attente. */
+  private IoScheduler.Permit acquireStreams(Path root, BooleanSupplier shouldCancel) {
+    if (ioScheduler == null) {
+      return IoScheduler.Permit.unlimited(parallelism);
+    }
+    return ioScheduler.acquire(root, parallelism, shouldCancel);
+  }
+
+  private boolean shouldEnterDirectory(
+      Path root, Path dir, ScanOptions options, Collection<Path> skipped) {
+    if (options.skipHidden()) {
+      if (isHidden(dir) || dir.getFileName().toString().startsWith(".")) {
+        skipped.add(dir);
+        return false;
+      }
+    }
+    if (options.skipSystem()) {
+      String name = dir.getFileName().toString().toLowerCase(Locale.ROOT);
+      if (SYSTEM_DIR_NAMES.contains(name)) {
+        skipped.add(dir);
+        return false;
+      }
+    }
+    if (options.maxDepth() > 0) {
+      int depth = root.relativize(dir).getNameCount();
+      if (depth >= options.maxDepth()) {
+        return false;
+      }
+    }
+    if (!isReadableDirectory(dir)) {
+      skipped.add(dir);
+      log.warn("Repertoire ignore (acces refuse): {}", dir);
+      return false;
+    }
+    return true;
+  }
+
+  private boolean isWithinDepth(Path root, Path file, ScanOptions options) {
+    return options.maxDepth() <= 0 || root.relativize(file).getNameCount() <= options.maxDepth();
+  }
+
+  private boolean isCandidate(Path file, ScanOptions options) {
+    return isImage(file) || (options.sniffContent() && ImageSniffer.isSniffCandidate(file));
   }
 
-  private Optional<PhotoItem> toPhotoSafe(Path root, Path file, BasicFileAttributes attrs) {
+  private boolean matchesFilters(Path file, BasicFileAttributes attrs, ScanOptions options) {
+    if (!isCandidate(file, options)) {
+      return false;
+    }
+    if (options.maxSizeBytes() > 0 && attrs.size() > options.maxSizeBytes()) {
+      return false;
+    }
+    if (options.minDate() != null) {
+      LocalDate fileDate =
+          Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())
+              .atZone(ZoneId.systemDefault())
+              .toLocalDate();
+      if (fileDate.isBefore(options.minDate())) {
+        return false;
+      }
+    }
+    // Lecture de l'en-tete en dernier: les filtres sur les attributs ne coutent rien
+    return !options.sniffContent() || sniffer.sniff(file, attrs).isPresent();
+  }
+
+  static Optional<PhotoItem> toPhotoItem(Path root, Path file, BasicFileAttributes attrs) {
     long size = attrs.size();
     LocalDate date =
         Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())
@@ -144,22 +827,28 @@ public class PhotoFileScanner {
     return Optional.of(new PhotoItem(file, title, date, sizeLabel, List.of(), albums, false));
   }
 
-  private List<String> extractAlbums(Path root, Path file) {
-    if (root == null || file == null) {
-      return List.of();
+  static Optional<Photo> toCorePhoto(Path root, Path file, BasicFileAttributes attrs) {
+    try {
+      Instant createdAt =
+          attrs.creationTime() != null
+              ? attrs.creationTime().toInstant()
+              : attrs.lastModifiedTime().toInstant();
+      String fileName = file.getFileName().toString();
+      return Optional.of(
+          new Photo(file, fileName, attrs.size(), createdAt, Set.<Tag>of(), Rating.unrated()));
+    } catch (Exception e) {
+      log.warn("Impossible de convertir {} en Photo: {}", file, e.getMessage());
+      return Optional.empty();
     }
-    Path relative = root.relativize(file).getParent();
-    if (relative == null || relative.getNameCount() == 0) {
+  }
+
+  /** Albums = dossiers entre la racine et le fichier, partages via {@link DirectoryTrie}. */
+  private static List<String> extractAlbums(Path root, Path file) {
+    if (root == null || file == null || file.getParent() == null) {
       return List.of();
     }
-    List<String> albums = new ArrayList<>();
-    for (int i = 0; i < relative.getNameCount(); i++) {
-      String name = relative.getName(i).toString();
-      if (!name.isBlank()) {
-        albums.add(name);
-      }
-    }
-    return albums;
+    DirectoryTrie trie = DirectoryTrie.shared();
+    return trie.intern(file.getParent()).albumsBelow(trie.intern(root));
   }
 
   private boolean isImage(Path path) {
@@ -191,7 +880,8 @@ public class PhotoFileScanner {
     return true;
   }
 
-  private String humanSize(long bytes) {
+  /** Libelle de taille affiche sur les vignettes ("2.4 MB"). */
+  public static String humanSize(long bytes) {
     double size = bytes;
     String unit = "B";
     if (size > 1024) {
@@ -205,18 +895,146 @@ public class PhotoFileScanner {
     return String.format(Locale.ROOT, "%.1f %s", size, unit);
   }
 
+  /** Recoit chaque image retenue par le parcours, avec la racine en cours. */
+  @FunctionalInterface
+  private interface MatchHandler {
+    void accept(Path root, Path file, BasicFileAttributes attrs);
+  }
+
   public record ScanResult(List<PhotoItem> photos, List<Path> skippedDirectories) {
     public static ScanResult empty() {
       return new ScanResult(List.of(), List.of());
     }
   }
 
+  /** Bilan d'un scan en flux: les photos elles-memes ont deja ete livrees par lots. */
+  public record StreamResult(long photoCount, List<Path> skippedDirectories, boolean complete) {}
+
+  /** Differences entre deux scans d'une meme racine. */
+  public record ScanDiff(List<PhotoItem> added, List<PhotoItem> modified, List<Path> removed) {
+    public ScanDiff {
+      added = added == null ? List.of() : List.copyOf(added);
+      modified = modified == null ? List.of() : List.copyOf(modified);
+      removed = removed == null ? List.of() : List.copyOf(removed);
+    }
+
+    public static ScanDiff empty() {
+      return new ScanDiff(List.of(), List.of(), List.of());
+    }
+
+    public boolean isEmpty() {
+      return added.isEmpty() && modified.isEmpty() && removed.isEmpty();
+    }
+
+    /** Photos a inserer ou mettre a jour dans la bibliotheque. */
+    public List<PhotoItem> upserts() {
+      return mergeSorted(added, modified);
+    }
+  }
+
+  public record RescanResult(
+      ScanDiff diff,
+      ScanManifest manifest,
+      List<Path> skippedDirectories,
+      List<Path> rescannedDirectories,
+      boolean complete) {}
+
+  private record WalkContext(
+      Path root,
+      DirectoryLister lister,
+      BooleanSupplier shouldCancel,
+      LongConsumer progress,
+      ProgressTracker tracker,
+      AtomicLong visited,
+      MatchHandler onMatch,
+      Runnable directoryDone,
+      Collection<Path> skipped,
+      ScanOptions options,
+      ScanCheckpoint checkpoint) {}
+
+  /** Attributs reconstitues d'une image restituee par un point de controle. */
+  private record SavedAttributes(ScanCheckpoint.SavedPhoto photo) implements BasicFileAttributes {
+    @Override
+    public FileTime lastModifiedTime() {
+      return FileTime.fromMillis(photo.modifiedMillis());
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return true;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return false;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public long size() {
+      return photo.sizeBytes();
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+
+  private record RescanContext(
+      Path root,
+      DirectoryLister lister,
+      ScanManifest baseline,
+      ScanOptions options,
+      BooleanSupplier shouldCancel,
+      LongConsumer progress,
+      Set<Path> targets,
+      AtomicLong visited,
+      AtomicLong reusedDirectories,
+      Map<Path, ScanManifest.DirectoryState> directories,
+      Set<Path> removedDirectories,
+      Collection<PhotoItem> added,
+      Collection<PhotoItem> modified,
+      Collection<Path> removed,
+      Collection<Path> skipped) {
+
+    /** Retire un sous-arbre connu du manifeste: toutes ses images sont signalees supprimees. */
+    void removeSubtree(Path dir) {
+      ScanManifest.DirectoryState state = baseline.directory(dir);
+      if (state == null || !removedDirectories.add(dir)) {
+        return;
+      }
+      state.files().keySet().forEach(name -> removed.add(dir.resolve(name)));
+      state.subdirectories().forEach(name -> removeSubtree(dir.resolve(name)));
+    }
+  }
+
   private class ControlledVisitor extends SimpleFileVisitor<Path> {
     private final Path root;
     private final BooleanSupplier shouldCancel;
     private final LongConsumer progress;
     private final AtomicLong visited;
-    private final List<PhotoItem> aggregated;
+    private final MatchHandler onMatch;
+    private final Runnable directoryDone;
     private final List<Path> skipped;
     private final ScanOptions options;
 
@@ -225,14 +1043,16 @@ public class PhotoFileScanner {
         BooleanSupplier shouldCancel,
         LongConsumer progress,
         AtomicLong visited,
-        List<PhotoItem> aggregated,
+        MatchHandler onMatch,
+        Runnable directoryDone,
         List<Path> skipped,
         ScanOptions options) {
       this.root = root;
       this.shouldCancel = shouldCancel;
       this.progress = progress;
       this.visited = visited;
-      this.aggregated = aggregated;
+      this.onMatch = onMatch;
+      this.directoryDone = directoryDone;
       this.skipped = skipped;
       this.options = options == null ? ScanOptions.defaults() : options;
     }
@@ -242,31 +1062,9 @@ public class PhotoFileScanner {
       if (shouldCancel.getAsBoolean()) {
         return FileVisitResult.TERMINATE;
       }
-      if (options.skipHidden()) {
-        if (isHidden(dir) || dir.getFileName().toString().startsWith(".")) {
-          skipped.add(dir);
-          return FileVisitResult.SKIP_SUBTREE;
-        }
-      }
-      if (options.skipSystem()) {
-        String name = dir.getFileName().toString().toLowerCase(Locale.ROOT);
-        if (SYSTEM_DIR_NAMES.contains(name)) {
-          skipped.add(dir);
-          return FileVisitResult.SKIP_SUBTREE;
-        }
-      }
-      if (options.maxDepth() > 0) {
-        int depth = root.relativize(dir).getNameCount();
-        if (depth >= options.maxDepth()) {
-          return FileVisitResult.SKIP_SUBTREE;
-        }
-      }
-      if (!isReadableDirectory(dir)) {
-        skipped.add(dir);
-        log.warn("Repertoire ignore (acces refuse): {}", dir);
-        return FileVisitResult.SKIP_SUBTREE;
-      }
-      return FileVisitResult.CONTINUE;
+      return shouldEnterDirectory(root, dir, options, skipped)
+          ? FileVisitResult.CONTINUE
+          : FileVisitResult.SKIP_SUBTREE;
     }
 
     @Override
@@ -277,30 +1075,20 @@ public class PhotoFileScanner {
       if (!attrs.isRegularFile()) {
         return FileVisitResult.CONTINUE;
       }
-      if (options.maxDepth() > 0) {
-        int depth = root.relativize(file).getNameCount();
-        if (depth > options.maxDepth()) {
-          return FileVisitResult.CONTINUE;
-        }
+      if (!isWithinDepth(root, file, options)) {
+        return FileVisitResult.CONTINUE;
       }
       long count = visited.incrementAndGet();
       progress.accept(count);
-      if (!isImage(file)) {
-        return FileVisitResult.CONTINUE;
-      }
-      if (options.maxSizeBytes() > 0 && attrs.size() > options.maxSizeBytes()) {
-        return FileVisitResult.CONTINUE;
-      }
-      if (options.minDate() != null) {
-        LocalDate fileDate =
-            Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())
-                .atZone(ZoneId.systemDefault())
-                .toLocalDate();
-        if (fileDate.isBefore(options.minDate())) {
-          return FileVisitResult.CONTINUE;
-        }
+      if (matchesFilters(file, attrs, options)) {
+        onMatch.accept(root, file, attrs);
       }
-      toPhotoSafe(root, file, attrs).ifPresent(aggregated::add);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+      directoryDone.run();
       return FileVisitResult.CONTINUE;
     }
 
@@ -312,6 +1100,256 @@ public class PhotoFileScanner {
     }
   }
 
+  /** Date de modification de {@code dir}, ou {@link #UNKNOWN_MODIFIED} si illisible. */
+  private static long modifiedMillis(Path dir) {
+    try {
+      return Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis();
+    } catch (IOException e) {
+      return UNKNOWN_MODIFIED;
+    }
+  }
+
+  /**
+   * Tache fork-join traitant les fichiers d'un repertoire puis deleguant chaque sous-repertoire a
+   * une sous-tache, que les threads inactifs du pool peuvent voler.
+   */
+  private final class DirectoryTask extends RecursiveAction {
+    private final WalkContext context;
+    private final Path dir;
+    private boolean subtreeComplete;
+
+    DirectoryTask(WalkContext context, Path dir) {
+      this.context = context;
+      this.dir = dir;
+    }
+
+    @Override
+    protected void compute() {
+      ScanCheckpoint checkpoint = context.checkpoint();
+      if (context.shouldCancel().getAsBoolean()) {
+        return;
+      }
+      if (checkpoint != null && checkpoint.isSubtreeDone(dir)) {
+        subtreeComplete = true;
+        context.directoryDone().run();
+        return;
+      }
+      List<DirectoryTask> subTasks = new ArrayList<>();
+      // Lue avant le listing: un ajout pendant le parcours sera vu a la reprise
+      long modified = checkpoint == null ? UNKNOWN_MODIFIED : modifiedMillis(dir);
+      boolean listed = false;
+      try {
+        visitListing(
+            context.lister().list(dir, entry -> isCandidate(entry, context.options())),
+            modified,
+            subTasks);
+        listed = true;
+      } catch (IOException | UncheckedIOException e) {
+        context.skipped().add(dir);
+        log.warn("Lecture ignoree pour {}: {}", dir, e.getMessage());
+      }
+      if (context.tracker() != null) {
+        context.tracker().directoriesQueued(subTasks.size());
+      }
+      context.directoryDone().run();
+      if (!subTasks.isEmpty() && !context.shouldCancel().getAsBoolean()) {
+        invokeAll(subTasks);
+      }
+      subtreeComplete =
+          listed
+              && !context.shouldCancel().getAsBoolean()
+              && subTasks.stream().allMatch(task -> task.subtreeComplete);
+      if (subtreeComplete && checkpoint != null && modified != UNKNOWN_MODIFIED) {
+        checkpoint.markSubtreeDone(dir, modified);
+      }
+    }
+
+    private void visitListing(
+        DirectoryLister.Listing listing, long modified, List<DirectoryTask> subTasks) {
+      Path root = context.root();
+      ScanOptions options = context.options();
+      context.skipped().addAll(listing.failures());
+      for (Path sub : listing.directories()) {
+        if (shouldEnterDirectory(root, sub, options, context.skipped())) {
+          subTasks.add(new DirectoryTask(context, sub));
+        }
+      }
+      ScanCheckpoint checkpoint = context.checkpoint();
+      if (checkpoint != null && checkpoint.areFilesDone(dir)) {
+        // Images deja restituees depuis le point de controle
+        return;
+      }
+      List<ScanCheckpoint.SavedPhoto> retained = checkpoint == null ? null : new ArrayList<>();
+      for (DirectoryLister.FileEntry file : listing.files()) {
+        if (context.shouldCancel().getAsBoolean()) {
+          return;
+        }
+        if (!isWithinDepth(root, file.path(), options)) {
+          continue;
+        }
+        context.progress().accept(context.visited().incrementAndGet());
+        if (matchesFilters(file.path(), file.attributes(), options)) {
+          context.onMatch().accept(root, file.path(), file.attributes());
+          if (retained != null) {
+            retained.add(
+                new ScanCheckpoint.SavedPhoto(
+                    file.path(),
+                    file.attributes().size(),
+                    file.attributes().lastModifiedTime().toMillis()));
+          }
+        }
+      }
+      // Fichiers ecartes sans stat: comptes comme parcourus, jamais retenus
+      for (Path file : listing.unreadFiles()) {
+        if (isWithinDepth(root, file, options)) {
+          context.progress().accept(context.visited().incrementAndGet());
+        }
+      }
+      if (retained != null && listing.failures().isEmpty() && modified != UNKNOWN_MODIFIED) {
+        checkpoint.markFilesDone(dir, modified, retained);
+      }
+    }
+  }
+
+  /**
+   * Tache de rescan d'un repertoire: reutilise l'etat du manifeste si le repertoire est inchange
+   * (sauf relecture forcee), sinon relit ses entrees et compare chaque image a l'etat precedent.
+   */
+  private final class RescanTask extends RecursiveAction {
+    private final RescanContext context;
+    private final Path dir;
+    private final boolean forceRelist;
+    private final boolean recursive;
+
+    RescanTask(RescanContext context, Path dir, boolean forceRelist, boolean recursive) {
+      this.context = context;
+      this.dir = dir;
+      this.forceRelist = forceRelist;
+      this.recursive = recursive;
+    }
+
+    @Override
+    protected void compute() {
+      if (context.shouldCancel().getAsBoolean()) {
+        return;
+      }
+      ScanManifest.DirectoryState before = context.baseline().directory(dir);
+      List<RescanTask> subTasks = new ArrayList<>();
+      long modified;
+      try {
+        modified = Files.getLastModifiedTime(dir).toMillis();
+      } catch (IOException e) {
+        context.skipped().add(dir);
+        log.warn("Lecture ignoree pour {}: {}", dir, e.getMessage());
+        return;
+      }
+      if (!forceRelist && before != null && before.modifiedMillis() == modified) {
+        reuse(before, subTasks);
+      } else {
+        try {
+          relist(modified, before, subTasks);
+        } catch (IOException | UncheckedIOException e) {
+          context.skipped().add(dir);
+          log.warn("Lecture ignoree pour {}: {}", dir, e.getMessage());
+          if (before != null) {
+            subTasks.clear();
+            reuse(before, subTasks);
+          }
+        }
+      }
+      if (!subTasks.isEmpty() && !context.shouldCancel().getAsBoolean()) {
+        invokeAll(subTasks);
+      }
+    }
+
+    private void reuse(ScanManifest.DirectoryState before, List<RescanTask> subTasks) {
+      context.directories().put(dir, before);
+      context.reusedDirectories().incrementAndGet();
+      if (!before.files().isEmpty()) {
+        context.progress().accept(context.visited().addAndGet(before.files().size()));
+      }
+      for (String name : before.subdirectories()) {
+        Path sub = dir.resolve(name);
+        if (!shouldEnterDirectory(context.root(), sub, context.options(), context.skipped())) {
+          context.removeSubtree(sub);
+        } else if (recursive) {
+          subTasks.add(new RescanTask(context, sub, false, true));
+        }
+      }
+    }
+
+    private void relist(
+        long modified, ScanManifest.DirectoryState before, List<RescanTask> subTasks)
+        throws IOException {
+      List<String> subdirectories = new ArrayList<>();
+      Set<String> entered = new HashSet<>();
+      Map<String, ScanManifest.FileState> files = new HashMap<>();
+      List<PhotoItem> added = new ArrayList<>();
+      List<PhotoItem> changed = new ArrayList<>();
+      // Meme enumeration que le scan complet: seuls les candidats et les dossiers sont lus
+      DirectoryLister.Listing listing =
+          context.lister().list(dir, entry -> isCandidate(entry, context.options()));
+      context.skipped().addAll(listing.failures());
+      for (Path entry : listing.directories()) {
+        String name = entry.getFileName().toString();
+        subdirectories.add(name);
+        if (shouldEnterDirectory(context.root(), entry, context.options(), context.skipped())) {
+          entered.add(name);
+          boolean known = before != null && before.subdirectories().contains(name);
+          if ((recursive || !known) && !context.targets().contains(entry)) {
+            subTasks.add(new RescanTask(context, entry, false, true));
+          }
+        }
+      }
+      for (DirectoryLister.FileEntry file : listing.files()) {
+        if (context.shouldCancel().getAsBoolean()) {
+          return;
+        }
+        Path entry = file.path();
+        BasicFileAttributes attrs = file.attributes();
+        if (!isWithinDepth(context.root(), entry, context.options())) {
+          continue;
+        }
+        context.progress().accept(context.visited().incrementAndGet());
+        if (!matchesFilters(entry, attrs, context.options())) {
+          continue;
+        }
+        String name = entry.getFileName().toString();
+        ScanManifest.FileState state =
+            new ScanManifest.FileState(attrs.size(), attrs.lastModifiedTime().toMillis());
+        files.put(name, state);
+        ScanManifest.FileState previous = before == null ? null : before.files().get(name);
+        if (previous == null) {
+          toPhotoItem(context.root(), entry, attrs).ifPresent(added::add);
+        } else if (!previous.equals(state)) {
+          toPhotoItem(context.root(), entry, attrs).ifPresent(changed::add);
+        }
+      }
+      for (Path file : listing.unreadFiles()) {
+        if (isWithinDepth(context.root(), file, context.options())) {
+          context.progress().accept(context.visited().incrementAndGet());
+        }
+      }
+      if (before != null) {
+        for (String name : before.files().keySet()) {
+          if (!files.containsKey(name)) {
+            context.removed().add(dir.resolve(name));
+          }
+        }
+        for (String name : before.subdirectories()) {
+          if (!entered.contains(name)) {
+            context.removeSubtree(dir.resolve(name));
+          }
+        }
+      }
+      context.added().addAll(added);
+      context.modified().addAll(changed);
+      context
+          .directories()
+          .put(dir, new ScanManifest.DirectoryState(modified, subdirectories, files));
+    }
+  }
+
   private boolean isHidden(Path dir) {
     try {
       return Files.isHidden(dir);
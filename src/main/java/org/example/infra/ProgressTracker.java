@@ -0,0 +1,222 @@
+package org.example.infra;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Progression d'une tache longue (scan, export). Les threads de travail ne font qu'incrementer des
+ * compteurs sans verrou; un seul thread publie un {@link Snapshot} a cadence fixe (100 ms par
+ * defaut). L'interface recoit donc une dizaine de mises a jour par seconde, quel que soit le nombre
+ * de fichiers traites.
+ */
+public final class ProgressTracker implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(ProgressTracker.class);
+  public static final Duration DEFAULT_PERIOD = Duration.ofMillis(100);
+  private static final double SMOOTHING = 0.3;
+
+  private static final ScheduledExecutorService PUBLISHER =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "progress-publisher");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * Etat publie. Les totaux valent -1 s'ils sont inconnus (scan); l'ETA est alors estimee sur les
+   * repertoires restant a lire, et vaut {@code null} tant qu'aucune estimation n'est possible.
+   */
+  public record Snapshot(
+      long files,
+      long totalFiles,
+      long bytes,
+      long totalBytes,
+      long pendingDirectories,
+      double filesPerSecond,
+      double bytesPerSecond,
+      Duration eta,
+      Duration elapsed,
+      boolean finished) {
+
+    /** Avancement entre 0 et 1, ou -1 si le total est inconnu (barre indeterminee). */
+    public double fraction() {
+      if (finished) {
+        return 1.0;
+      }
+      if (totalBytes > 0) {
+        return Math.min(1.0, bytes / (double) totalBytes);
+      }
+      if (totalFiles > 0) {
+        return Math.min(1.0, files / (double) totalFiles);
+      }
+      return -1;
+    }
+  }
+
+  private final LongAdder files = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder directoriesQueued = new LongAdder();
+  private final LongAdder directoriesDone = new LongAdder();
+  private final AtomicLong totalFiles = new AtomicLong(-1);
+  private final AtomicLong totalBytes = new AtomicLong(-1);
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final Consumer<Snapshot> listener;
+  private final long startNanos = System.nanoTime();
+  private final ScheduledFuture<?> schedule;
+
+  // Etat du thread de publication uniquement
+  private long lastNanos = startNanos;
+  private long lastFiles;
+  private long lastBytes;
+  private long lastDirectories;
+  private double filesRate;
+  private double bytesRate;
+  private double directoriesRate;
+
+  public ProgressTracker(Consumer<Snapshot> listener) {
+    this(DEFAULT_PERIOD, listener);
+  }
+
+  /**
+   * Demarre la publication periodique. Le listener est appele sur le thread de publication; il doit
+   * rendre la main vite (typiquement un {@code updateMessage} de {@code Task}).
+   */
+  public ProgressTracker(Duration period, Consumer<Snapshot> listener) {
+    this.listener = Objects.requireNonNull(listener, "listener");
+    long periodNanos = Math.max(1, period.toNanos());
+    this.schedule =
+        PUBLISHER.scheduleAtFixedRate(
+            () -> publish(false), periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void setTotals(long fileCount, long byteCount) {
+    totalFiles.set(fileCount);
+    totalBytes.set(byteCount);
+  }
+
+  public void addFiles(long count) {
+    files.add(count);
+  }
+
+  public void addBytes(long count) {
+    bytes.add(count);
+  }
+
+  public void fileDone(long size) {
+    files.increment();
+    bytes.add(size);
+  }
+
+  public void directoriesQueued(int count) {
+    directoriesQueued.add(count);
+  }
+
+  public void directoryDone() {
+    directoriesDone.increment();
+  }
+
+  /**
+   * Adapte un compteur absolu (le {@code progressCallback} d'un scan, qui repart de 0 pour chaque
+   * appel) en increments: plusieurs scans simultanes peuvent ainsi alimenter le meme suivi.
+   */
+  public LongConsumer visitedCounter() {
+    AtomicLong seen = new AtomicLong();
+    return count -> {
+      long previous = seen.getAndAccumulate(count, Math::max);
+      if (count > previous) {
+        files.add(count - previous);
+      }
+    };
+  }
+
+  /**
+   * Arrete la publication et publie un dernier etat ({@code finished = true}) avant de rendre la
+   * main: un message pose ensuite par l'appelant n'est pas ecrase.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    schedule.cancel(false);
+    try {
+      PUBLISHER.submit(() -> publish(true)).get(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.debug("Dernier etat de progression non publie: {}", e.toString());
+    }
+  }
+
+  private void publish(boolean finished) {
+    long now = System.nanoTime();
+    long fileCount = files.sum();
+    long byteCount = bytes.sum();
+    long done = directoriesDone.sum();
+    long pending = Math.max(0, directoriesQueued.sum() - done);
+    double seconds = (now - lastNanos) / 1e9;
+    if (seconds > 0) {
+      filesRate = smooth(filesRate, (fileCount - lastFiles) / seconds);
+      bytesRate = smooth(bytesRate, (byteCount - lastBytes) / seconds);
+      directoriesRate = smooth(directoriesRate, (done - lastDirectories) / seconds);
+    }
+    lastNanos = now;
+    lastFiles = fileCount;
+    lastBytes = byteCount;
+    lastDirectories = done;
+    Snapshot snapshot =
+        new Snapshot(
+            fileCount,
+            totalFiles.get(),
+            byteCount,
+            totalBytes.get(),
+            pending,
+            filesRate,
+            bytesRate,
+            finished ? Duration.ZERO : eta(fileCount, byteCount, pending),
+            Duration.ofNanos(now - startNanos),
+            finished);
+    try {
+      listener.accept(snapshot);
+    } catch (RuntimeException e) {
+      // Une exception stopperait silencieusement la publication periodique
+      log.warn("Echec de publication de la progression", e);
+    }
+  }
+
+  private Duration eta(long fileCount, long byteCount, long pending) {
+    long bytesTotal = totalBytes.get();
+    if (bytesTotal > 0 && bytesRate > 0) {
+      return seconds(Math.max(0, bytesTotal - byteCount) / bytesRate);
+    }
+    long filesTotal = totalFiles.get();
+    if (filesTotal > 0 && filesRate > 0) {
+      return seconds(Math.max(0, filesTotal - fileCount) / filesRate);
+    }
+    if (pending > 0 && directoriesRate > 0) {
+      return seconds(pending / directoriesRate);
+    }
+    return null;
+  }
+
+  private static double smooth(double previous, double sample) {
+    return previous == 0 ? sample : previous + SMOOTHING * (sample - previous);
+  }
+
+  private static Duration seconds(double value) {
+    return Duration.ofMillis((long) (value * 1000));
+  }
+}
@@ -0,0 +1,32 @@
+package org.example.infra;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import org.example.core.Photo;
+import org.example.ui.model.PhotoItem;
+
+/**
+ * Convertit une image retenue par {@link PhotoFileScanner} dans le modele voulu par l'appelant. Le
+ * parcours, les filtres, l'annulation et la progression restent ceux du moteur de scan; seul le
+ * type produit change. Appele depuis les threads du scan: une implementation doit etre sans etat.
+ */
+@FunctionalInterface
+public interface ScanAdapter<T> {
+
+  /**
+   * @param root racine du scan en cours (sert a deduire les albums)
+   * @return vide pour ignorer le fichier
+   */
+  Optional<T> adapt(Path root, Path file, BasicFileAttributes attrs);
+
+  /** Modele de l'interface principale ({@code MainView}). */
+  static ScanAdapter<PhotoItem> photoItems() {
+    return PhotoFileScanner::toPhotoItem;
+  }
+
+  /** Modele du domaine, utilise par {@code ScanService} et {@code GalleryView}. */
+  static ScanAdapter<Photo> corePhotos() {
+    return PhotoFileScanner::toCorePhoto;
+  }
+}
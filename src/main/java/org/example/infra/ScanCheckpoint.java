@@ -0,0 +1,350 @@
+package org.example.infra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Point de controle d'un scan en cours, ecrit en ajout seul. Deux types d'enregistrements:
+ *
+ * <ul>
+ *   <li>{@code F}: les fichiers d'un repertoire ont ete traites, avec les images retenues;
+ *   <li>{@code S}: tout le sous-arbre d'un repertoire a ete parcouru sans erreur.
+ * </ul>
+ *
+ * <p>Chaque enregistrement garde la date de modification du repertoire lue avant son listing: un
+ * fichier ajoute ou retire depuis (disque rebranche puis complete, par exemple) la change, et le
+ * repertoire est relu a la reprise.
+ *
+ * <p>Les threads du scan ne font qu'empiler leurs enregistrements; ils sont ecrits par lots (taille
+ * ou delai atteint) par le premier thread qui obtient le verrou, les autres continuent sans
+ * attendre. Un fichier tronque (coupure, arret brutal) est relu jusqu'au dernier enregistrement
+ * complet.
+ */
+public final class ScanCheckpoint implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(ScanCheckpoint.class);
+  private static final int MAGIC = 0x5047434b; // "PGCK"
+  private static final int VERSION = 2;
+  private static final byte FILES_DONE = 'F';
+  private static final byte SUBTREE_DONE = 'S';
+  private static final int BATCH_RECORDS = 256;
+  private static final long BATCH_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /** Image retenue lors d'un scan precedent (chemin, taille, date de modification). */
+  public record SavedPhoto(Path path, long sizeBytes, long modifiedMillis) {}
+
+  /** Fichiers traites d'un repertoire, et sa date de modification a ce moment. */
+  private record FilesDone(long modifiedMillis, List<SavedPhoto> photos) {}
+
+  private record Entry(byte type, Path directory, long modifiedMillis, List<SavedPhoto> photos) {}
+
+  private final Path file;
+  private final Path root;
+  private final Map<Path, FilesDone> filesDone;
+  // Sous-arbres termines, avec la date de modification de leur repertoire
+  private final Map<Path, Long> subtreesDone;
+  private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private DataOutputStream out;
+  private volatile long lastWrite = System.nanoTime();
+  private boolean broken;
+
+  private ScanCheckpoint(
+      Path file, Path root, Map<Path, FilesDone> filesDone, Map<Path, Long> subtreesDone) {
+    this.file = file;
+    this.root = root;
+    this.filesDone = filesDone;
+    this.subtreesDone = subtreesDone;
+  }
+
+  /**
+   * Ouvre le point de controle d'une racine. Un fichier d'une autre racine, d'autres options ou
+   * plus ancien que {@code maxAgeMillis} est ignore. L'etat valide est reecrit (compacte), avec sa
+   * date de creation d'origine, avant d'accepter de nouveaux enregistrements: un scan sans cesse
+   * interrompu finit donc par repartir de zero.
+   */
+  static ScanCheckpoint open(Path file, Path root, String optionsKey, long maxAgeMillis)
+      throws IOException {
+    Map<Path, FilesDone> filesDone = new HashMap<>();
+    Map<Path, Long> subtreesDone = new HashMap<>();
+    long createdMillis = -1;
+    if (Files.isRegularFile(file)) {
+      createdMillis = readExisting(file, root, optionsKey, maxAgeMillis, filesDone, subtreesDone);
+      dropChangedDirectories(root, filesDone, subtreesDone);
+    }
+    if (createdMillis < 0) {
+      createdMillis = System.currentTimeMillis();
+    }
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    ScanCheckpoint checkpoint = new ScanCheckpoint(file, root, filesDone, subtreesDone);
+    checkpoint.out =
+        new DataOutputStream(
+            new BufferedOutputStream(
+                Files.newOutputStream(
+                    file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)));
+    checkpoint.out.writeInt(MAGIC);
+    checkpoint.out.writeInt(VERSION);
+    checkpoint.out.writeUTF(root.toString());
+    checkpoint.out.writeUTF(optionsKey);
+    checkpoint.out.writeLong(createdMillis);
+    for (Map.Entry<Path, FilesDone> entry : filesDone.entrySet()) {
+      FilesDone done = entry.getValue();
+      checkpoint.write(new Entry(FILES_DONE, entry.getKey(), done.modifiedMillis(), done.photos()));
+    }
+    for (Map.Entry<Path, Long> entry : subtreesDone.entrySet()) {
+      checkpoint.write(new Entry(SUBTREE_DONE, entry.getKey(), entry.getValue(), List.of()));
+    }
+    checkpoint.out.flush();
+    return checkpoint;
+  }
+
+  /** Rend la date de creation du point de controle relu, ou -1 s'il est ignore. */
+  private static long readExisting(
+      Path file,
+      Path root,
+      String optionsKey,
+      long maxAgeMillis,
+      Map<Path, FilesDone> filesDone,
+      Map<Path, Long> subtreesDone) {
+    long createdMillis = -1;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != VERSION
+          || !in.readUTF().equals(root.toString())
+          || !in.readUTF().equals(optionsKey)) {
+        log.info("Point de controle ignore pour {} (racine ou options differentes)", root);
+        return -1;
+      }
+      createdMillis = in.readLong();
+      if (System.currentTimeMillis() - createdMillis > maxAgeMillis) {
+        log.info("Point de controle perime ignore pour {}", root);
+        return -1;
+      }
+      while (true) {
+        byte type;
+        try {
+          type = in.readByte();
+        } catch (EOFException end) {
+          break;
+        }
+        Path dir = resolve(root, in.readUTF());
+        long modifiedMillis = in.readLong();
+        if (type == SUBTREE_DONE) {
+          subtreesDone.put(dir, modifiedMillis);
+          continue;
+        }
+        int count = in.readInt();
+        List<SavedPhoto> photos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          photos.add(new SavedPhoto(dir.resolve(in.readUTF()), in.readLong(), in.readLong()));
+        }
+        filesDone.put(dir, new FilesDone(modifiedMillis, photos));
+      }
+    } catch (EOFException truncated) {
+      log.info(
+          "Point de controle tronque pour {}: reprise au dernier enregistrement complet", root);
+    } catch (IOException e) {
+      log.warn("Point de controle illisible {}: {}", file, e.getMessage());
+      filesDone.clear();
+      subtreesDone.clear();
+      return -1;
+    }
+    return createdMillis;
+  }
+
+  /**
+   * Verifie chaque repertoire enregistre (date de modification) et les images retenues (presence,
+   * taille, date): un repertoire modifie depuis sera relu, et les sous-arbres qui le contiennent ne
+   * sont plus consideres termines.
+   */
+  private static void dropChangedDirectories(
+      Path root, Map<Path, FilesDone> filesDone, Map<Path, Long> subtreesDone) {
+    Set<Path> changed = new HashSet<>();
+    filesDone
+        .entrySet()
+        .removeIf(
+            entry -> {
+              FilesDone done = entry.getValue();
+              if (isUnchanged(entry.getKey(), done.modifiedMillis())
+                  && done.photos().stream().allMatch(ScanCheckpoint::isUnchanged)) {
+                return false;
+              }
+              changed.add(entry.getKey());
+              return true;
+            });
+    subtreesDone.forEach(
+        (dir, modifiedMillis) -> {
+          if (!isUnchanged(dir, modifiedMillis)) {
+            changed.add(dir);
+          }
+        });
+    for (Path dir : changed) {
+      filesDone.remove(dir);
+      for (Path ancestor = dir;
+          ancestor != null && ancestor.startsWith(root);
+          ancestor = ancestor.getParent()) {
+        subtreesDone.remove(ancestor);
+      }
+    }
+    if (!changed.isEmpty()) {
+      log.info("Point de controle de {}: {} dossier(s) modifie(s) a relire", root, changed.size());
+    }
+  }
+
+  private static boolean isUnchanged(Path dir, long modifiedMillis) {
+    try {
+      return Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis() == modifiedMillis;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static boolean isUnchanged(SavedPhoto photo) {
+    try {
+      BasicFileAttributes attrs =
+          Files.readAttributes(photo.path(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      return attrs.size() == photo.sizeBytes()
+          && attrs.lastModifiedTime().toMillis() == photo.modifiedMillis();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public boolean isResumed() {
+    return !filesDone.isEmpty() || !subtreesDone.isEmpty();
+  }
+
+  public boolean isSubtreeDone(Path dir) {
+    return subtreesDone.containsKey(dir);
+  }
+
+  public boolean areFilesDone(Path dir) {
+    return filesDone.containsKey(dir);
+  }
+
+  /** Images deja retenues avant l'interruption, a restituer sans relire le disque. */
+  public List<SavedPhoto> savedPhotos() {
+    List<SavedPhoto> photos = new ArrayList<>();
+    filesDone.values().forEach(done -> photos.addAll(done.photos()));
+    return photos;
+  }
+
+  /**
+   * @param modifiedMillis date de modification de {@code dir} lue avant son listing
+   */
+  void markFilesDone(Path dir, long modifiedMillis, List<SavedPhoto> photos) {
+    enqueue(new Entry(FILES_DONE, dir, modifiedMillis, List.copyOf(photos)));
+  }
+
+  void markSubtreeDone(Path dir, long modifiedMillis) {
+    enqueue(new Entry(SUBTREE_DONE, dir, modifiedMillis, List.of()));
+  }
+
+  private void enqueue(Entry entry) {
+    pending.add(entry);
+    if (pendingCount.incrementAndGet() >= BATCH_RECORDS
+        || System.nanoTime() - lastWrite >= BATCH_DELAY_NANOS) {
+      // Jamais bloquant: si un autre thread ecrit deja, il emportera aussi cet enregistrement
+      if (writeLock.tryLock()) {
+        try {
+          drain();
+        } finally {
+          writeLock.unlock();
+        }
+      }
+    }
+  }
+
+  /** Ecrit les enregistrements en attente et garde le fichier pour une reprise ulterieure. */
+  @Override
+  public void close() {
+    writeLock.lock();
+    try {
+      drain();
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+    } catch (IOException e) {
+      log.warn("Fermeture du point de controle {}: {}", file, e.getMessage());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Scan termine: le point de controle n'a plus d'utilite. */
+  public void delete() {
+    close();
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Suppression du point de controle {}: {}", file, e.getMessage());
+    }
+  }
+
+  private void drain() {
+    if (out == null || broken) {
+      pending.clear();
+      return;
+    }
+    try {
+      Entry entry;
+      while ((entry = pending.poll()) != null) {
+        pendingCount.decrementAndGet();
+        write(entry);
+      }
+      out.flush();
+      lastWrite = System.nanoTime();
+    } catch (IOException e) {
+      // Le scan continue sans point de controle plutot que d'echouer
+      broken = true;
+      log.warn("Ecriture du point de controle impossible ({}): {}", file, e.getMessage());
+    }
+  }
+
+  private void write(Entry entry) throws IOException {
+    out.writeByte(entry.type());
+    out.writeUTF(root.relativize(entry.directory()).toString());
+    out.writeLong(entry.modifiedMillis());
+    if (entry.type() == FILES_DONE) {
+      out.writeInt(entry.photos().size());
+      for (SavedPhoto photo : entry.photos()) {
+        out.writeUTF(photo.path().getFileName().toString());
+        out.writeLong(photo.sizeBytes());
+        out.writeLong(photo.modifiedMillis());
+      }
+    }
+  }
+
+  private static Path resolve(Path root, String relative) {
+    return relative.isEmpty() ? root : root.resolve(relative);
+  }
+}
@@ -0,0 +1,52 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Range les points de controle des scans en cours, un fichier par racine. */
+public class ScanCheckpointStore {
+  private static final Logger log = LoggerFactory.getLogger(ScanCheckpointStore.class);
+  private static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+
+  private final Path directory;
+  private final Duration maxAge;
+
+  public ScanCheckpointStore(Path directory) {
+    this(directory, DEFAULT_MAX_AGE);
+  }
+
+  /**
+   * @param maxAge au-dela, un point de controle est juge perime et le scan repart de zero
+   */
+  public ScanCheckpointStore(Path directory, Duration maxAge) {
+    this.directory = Objects.requireNonNull(directory, "directory");
+    this.maxAge = maxAge == null ? DEFAULT_MAX_AGE : maxAge;
+  }
+
+  public static ScanCheckpointStore inUserHome() {
+    return new ScanCheckpointStore(
+        Path.of(System.getProperty("user.home", ""), ".photosgestion", "checkpoints"));
+  }
+
+  /** Ouvre (ou reprend) le point de controle de {@code root}; {@code null} si impossible. */
+  public ScanCheckpoint open(Path root, PhotoFileScanner.ScanOptions options) {
+    try {
+      return ScanCheckpoint.open(fileFor(root), root, options.toString(), maxAge.toMillis());
+    } catch (IOException e) {
+      log.warn("Point de controle indisponible pour {}: {}", root, e.getMessage());
+      return null;
+    }
+  }
+
+  Path fileFor(Path root) {
+    String key = root.toAbsolutePath().normalize().toString();
+    return directory.resolve(
+        UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".checkpoint");
+  }
+}
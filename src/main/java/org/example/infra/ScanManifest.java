@@ -0,0 +1,156 @@
+package org.example.infra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Etat persiste d'un scan: pour chaque repertoire parcouru, sa date de modification, ses
+ * sous-repertoires et les images retenues (taille et date). Sert a sauter les sous-arbres inchanges
+ * lors d'un nouveau scan.
+ */
+public final class ScanManifest {
+  private static final Logger log = LoggerFactory.getLogger(ScanManifest.class);
+  private static final int MAGIC = 0x50474d46; // "PGMF"
+  private static final int VERSION = 1;
+
+  private final String optionsKey;
+  private final Map<Path, DirectoryState> directories;
+
+  public record FileState(long sizeBytes, long modifiedMillis) {}
+
+  public record DirectoryState(
+      long modifiedMillis, List<String> subdirectories, Map<String, FileState> files) {
+    public DirectoryState {
+      subdirectories = subdirectories == null ? List.of() : List.copyOf(subdirectories);
+      files = files == null ? Map.of() : Map.copyOf(files);
+    }
+  }
+
+  public ScanManifest(String optionsKey, Map<Path, DirectoryState> directories) {
+    this.optionsKey = optionsKey == null ? "" : optionsKey;
+    this.directories =
+        directories == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(directories));
+  }
+
+  public static ScanManifest empty() {
+    return new ScanManifest("", Map.of());
+  }
+
+  public String optionsKey() {
+    return optionsKey;
+  }
+
+  public Map<Path, DirectoryState> directories() {
+    return directories;
+  }
+
+  public DirectoryState directory(Path dir) {
+    return directories.get(dir);
+  }
+
+  public boolean isEmpty() {
+    return directories.isEmpty();
+  }
+
+  public int fileCount() {
+    return directories.values().stream().mapToInt(state -> state.files().size()).sum();
+  }
+
+  /** Charge un manifeste; un fichier absent ou illisible donne un manifeste vide. */
+  public static ScanManifest load(Path file, Path root) {
+    Objects.requireNonNull(root, "root");
+    if (file == null || !Files.isRegularFile(file)) {
+      return empty();
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        log.warn("Manifeste de scan ignore (format inconnu): {}", file);
+        return empty();
+      }
+      String storedRoot = in.readUTF();
+      if (!storedRoot.equals(root.toString())) {
+        log.warn("Manifeste de scan ignore (racine {} au lieu de {})", storedRoot, root);
+        return empty();
+      }
+      String optionsKey = in.readUTF();
+      int directoryCount = in.readInt();
+      Map<Path, DirectoryState> directories = new HashMap<>(directoryCount * 2);
+      for (int d = 0; d < directoryCount; d++) {
+        Path dir = resolve(root, in.readUTF());
+        long modified = in.readLong();
+        int subCount = in.readInt();
+        String[] subdirectories = new String[subCount];
+        for (int i = 0; i < subCount; i++) {
+          subdirectories[i] = in.readUTF();
+        }
+        int fileCount = in.readInt();
+        Map<String, FileState> files = new HashMap<>(fileCount * 2);
+        for (int i = 0; i < fileCount; i++) {
+          files.put(in.readUTF(), new FileState(in.readLong(), in.readLong()));
+        }
+        directories.put(dir, new DirectoryState(modified, List.of(subdirectories), files));
+      }
+      return new ScanManifest(optionsKey, directories);
+    } catch (IOException e) {
+      log.warn("Manifeste de scan illisible {}: {}", file, e.getMessage());
+      return empty();
+    }
+  }
+
+  /** Ecrit le manifeste dans un fichier temporaire puis le deplace atomiquement. */
+  public void save(Path file, Path root) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(root, "root");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(root.toString());
+      out.writeUTF(optionsKey);
+      out.writeInt(directories.size());
+      for (Map.Entry<Path, DirectoryState> entry : directories.entrySet()) {
+        DirectoryState state = entry.getValue();
+        out.writeUTF(root.relativize(entry.getKey()).toString());
+        out.writeLong(state.modifiedMillis());
+        out.writeInt(state.subdirectories().size());
+        for (String sub : state.subdirectories()) {
+          out.writeUTF(sub);
+        }
+        out.writeInt(state.files().size());
+        for (Map.Entry<String, FileState> fileEntry : state.files().entrySet()) {
+          out.writeUTF(fileEntry.getKey());
+          out.writeLong(fileEntry.getValue().sizeBytes());
+          out.writeLong(fileEntry.getValue().modifiedMillis());
+        }
+      }
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static Path resolve(Path root, String relative) {
+    return relative.isEmpty() ? root : root.resolve(relative);
+  }
+}
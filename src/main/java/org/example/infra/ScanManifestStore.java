@@ -0,0 +1,43 @@
+package org.example.infra;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Range un manifeste de scan par racine dans un dossier local de l'utilisateur. */
+public class ScanManifestStore {
+  private static final Logger log = LoggerFactory.getLogger(ScanManifestStore.class);
+  private final Path directory;
+
+  public ScanManifestStore(Path directory) {
+    this.directory = Objects.requireNonNull(directory, "directory");
+  }
+
+  public static ScanManifestStore inUserHome() {
+    return new ScanManifestStore(
+        Path.of(System.getProperty("user.home", ""), ".photosgestion", "manifests"));
+  }
+
+  public ScanManifest load(Path root) {
+    return ScanManifest.load(fileFor(root), root);
+  }
+
+  public void save(Path root, ScanManifest manifest) {
+    try {
+      manifest.save(fileFor(root), root);
+      log.info("Manifeste de scan enregistre pour {} ({} images)", root, manifest.fileCount());
+    } catch (IOException e) {
+      log.warn("Impossible d'enregistrer le manifeste de {}: {}", root, e.getMessage());
+    }
+  }
+
+  Path fileFor(Path root) {
+    String key = root.toAbsolutePath().normalize().toString();
+    return directory.resolve(
+        UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".manifest");
+  }
+}
@@ -24,13 +24,23 @@ public class ThumbnailService {
   private final Map<Path, Image> cache;
   private final int maxEntries;
   private final ExecutorService executor;
+  private final IoScheduler ioScheduler;
 
   public ThumbnailService() {
     this(128);
   }
 
   public ThumbnailService(int maxEntries) {
+    this(maxEntries, IoScheduler.system());
+  }
+
+  /**
+   * @param ioScheduler les chargements attendent un flux libre sur le peripherique de l'image: un
+   *     disque rotatif lit une miniature a la fois, pendant que les autres disques continuent
+   */
+  public ThumbnailService(int maxEntries, IoScheduler ioScheduler) {
     this.maxEntries = maxEntries;
+    this.ioScheduler = ioScheduler;
     this.cache =
         Collections.synchronizedMap(
             new LinkedHashMap<Path, Image>(maxEntries, 0.75f, true) {
@@ -110,7 +120,8 @@ public class ThumbnailService {
         new Task<>() {
           @Override
           protected Image call() {
-            return new Image(path.toUri().toString(), targetSize, targetSize, true, true, true);
+            // Chargement synchrone: la lecture doit avoir lieu pendant que le flux est reserve
+            return new Image(path.toUri().toString(), targetSize, targetSize, true, true, false);
           }
         };
 
@@ -141,7 +152,11 @@ public class ThumbnailService {
         });
 
     try {
-      executor.submit(task);
+      if (ioScheduler == null) {
+        executor.submit(task);
+      } else {
+        ioScheduler.execute(path, task, executor);
+      }
     } catch (RejectedExecutionException ex) {
       log.warn("Execution refusee pour le chargement de miniature {}", path, ex);
       if (onError != null) {
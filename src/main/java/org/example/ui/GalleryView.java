@@ -24,6 +24,7 @@ import javafx.stage.DirectoryChooser;
 import javafx.stage.Window;
 import org.example.core.Photo;
 import org.example.core.ScanService;
+import org.example.infra.ProgressTracker;
 import org.example.infra.ThumbnailService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,8 @@ public class GalleryView {
   private final TilePane grid;
   private final Label statusLabel;
   private final ProgressIndicator progressIndicator;
+  private final Button cancelButton;
+  private Task<List<Photo>> currentScan;
 
   public GalleryView(ScanService scanService) {
     this.scanService = scanService;
@@ -46,6 +49,9 @@ public class GalleryView {
     this.statusLabel = new Label("Aucune photo importee");
     this.progressIndicator = new ProgressIndicator();
     progressIndicator.setVisible(false);
+    this.cancelButton = new Button("Annuler");
+    cancelButton.setDisable(true);
+    cancelButton.setOnAction(event -> cancelScan());
 
     root.setTop(buildHeader());
     root.setCenter(buildContent());
@@ -56,6 +62,7 @@ public class GalleryView {
   }
 
   public void shutdown() {
+    cancelScan();
     thumbnailService.shutdown();
   }
 
@@ -68,7 +75,7 @@ public class GalleryView {
     Button importButton = new Button("Importer");
     importButton.setOnAction(event -> launchImport(importButton.getScene().getWindow()));
 
-    header.getChildren().addAll(title, importButton, statusLabel, progressIndicator);
+    header.getChildren().addAll(title, importButton, cancelButton, statusLabel, progressIndicator);
     return header;
   }
 
@@ -89,38 +96,74 @@ public class GalleryView {
       return;
     }
     Path path = selected.toPath();
+    cancelScan();
     statusLabel.setText("Scan en cours : " + path);
     progressIndicator.setVisible(true);
     Task<List<Photo>> scanTask =
         new Task<>() {
           @Override
           protected List<Photo> call() {
-            return scanService.scan(path);
+            // Message publie a la periode du suivi, pas a chaque fichier parcouru
+            try (ProgressTracker tracker =
+                new ProgressTracker(
+                    snapshot -> updateMessage("Fichiers parcourus : " + snapshot.files()))) {
+              return scanService.scan(path, this::isCancelled, tracker.visitedCounter());
+            }
           }
         };
+    scanTask
+        .messageProperty()
+        .addListener(
+            (obs, previous, message) -> {
+              if (message != null && !message.isBlank()) {
+                statusLabel.setText(message);
+              }
+            });
     scanTask.setOnSucceeded(
         event -> {
           List<Photo> photos = scanTask.getValue();
           renderPhotos(photos);
           statusLabel.setText(
               photos.isEmpty() ? "Aucune photo trouvee" : photos.size() + " photos chargees");
-          progressIndicator.setVisible(false);
+          endScan(scanTask);
+        });
+    scanTask.setOnCancelled(
+        event -> {
+          log.info("Import annule pendant le scan de {}", path);
+          statusLabel.setText("Scan annule");
+          endScan(scanTask);
         });
     scanTask.setOnFailed(
         event -> {
           Throwable error = scanTask.getException();
           log.error("Echec lors de l'import", error);
-          progressIndicator.setVisible(false);
+          endScan(scanTask);
           statusLabel.setText("Echec du scan");
           showError(
               "Import echoue",
               "Le dossier n'a pas pu etre scanne. Verifiez le disque et reessayez.");
         });
+    currentScan = scanTask;
+    cancelButton.setDisable(false);
     Thread worker = new Thread(scanTask, "scan-worker");
     worker.setDaemon(true);
     worker.start();
   }
 
+  private void cancelScan() {
+    if (currentScan != null && currentScan.isRunning()) {
+      currentScan.cancel();
+    }
+  }
+
+  private void endScan(Task<List<Photo>> scanTask) {
+    if (currentScan == scanTask) {
+      currentScan = null;
+      cancelButton.setDisable(true);
+      progressIndicator.setVisible(false);
+    }
+  }
+
   private void renderPhotos(List<Photo> photos) {
     grid.getChildren().clear();
     for (Photo photo : photos) {
@@ -1,13 +1,16 @@
 package org.example.ui;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -15,10 +18,19 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
@@ -56,12 +68,20 @@ import javafx.stage.Popup;
 import javafx.stage.Window;
 import javafx.util.Duration;
 import org.example.infra.ExportService;
+import org.example.infra.LibraryWatcher;
 import org.example.infra.PhotoFileScanner;
+import org.example.infra.ProgressTracker;
+import org.example.infra.ScanCheckpointStore;
+import org.example.infra.ScanManifest;
+import org.example.infra.ScanManifestStore;
 import org.example.infra.ThumbnailService;
 import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
+import org.example.ui.service.LibraryChange;
 import org.example.ui.service.PhotoLibraryService;
 import org.example.ui.service.PhotoLibraryService.AlbumInfo;
 import org.example.ui.service.PhotoLibraryService.Filter;
+import org.example.ui.service.PhotoLibraryService.Page;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,20 +93,39 @@ public class MainView {
   private final PhotoFileScanner scanner;
   private final ThumbnailService thumbnailService;
   private final ExportService exportService;
+  private final ScanManifestStore manifestStore;
+  private final LibraryWatcher libraryWatcher;
   private final TilePane grid;
   private final Button previousPageButton;
   private final Button nextPageButton;
   private final Label pageIndicator;
   private final Map<Path, PhotoCard> cardCache;
+  private final Consumer<LibraryChange> libraryListener;
   private final PauseTransition refreshThrottle;
   private final ToggleGroup filterGroup;
   private final TextField searchField;
   private final Label statusLabel;
   private final Label gridTitleLabel;
+  // Reste affiche: le catalogue n'enregistre plus les changements de la session
+  private final Label catalogWarning;
+  // Imports et scans attendent le rechargement de la bibliotheque sauvegardee
+  private final BooleanProperty catalogLoading = new SimpleBooleanProperty();
+  private final ExecutorService countExecutor;
   private int currentPage = 1;
   private int totalPages = 1;
+  // Version de la bibliotheque deja affichee par la grille
+  private long renderedVersion = -1;
+  // Dernier comptage demande; un comptage perime n'est ni lance ni applique
+  private volatile long countRequest;
+  private boolean countPending;
   private boolean showAlbumList = true;
+  private Path lastScanRoot;
+  private PhotoFileScanner.ScanOptions lastScanOptions;
+  private ScanManifest lastManifest = ScanManifest.empty();
+  private CheckBox watchToggle;
   private static final int PAGE_SIZE = 20;
+  private static final int PREFETCH_SIZE = 4;
+  private static final int SCAN_BATCH_SIZE = 256;
   private static final int DEFAULT_SCAN_DEPTH = Integer.MAX_VALUE;
   private static final Set<String> WINDOWS_SPECIAL_DIRS =
       Set.of(
@@ -116,7 +155,7 @@ public class MainView {
   public MainView() {
     this(
         new PhotoLibraryService(),
-        new PhotoFileScanner(),
+        PhotoFileScanner.parallel(ScanCheckpointStore.inUserHome()),
         new ThumbnailService(),
         new ExportService());
   }
@@ -131,6 +170,13 @@ public class MainView {
     this.scanner = scanner;
     this.thumbnailService = thumbnailService;
     this.exportService = exportService;
+    this.manifestStore = ScanManifestStore.inUserHome();
+    this.libraryWatcher =
+        new LibraryWatcher(
+            scanner,
+            manifestStore,
+            java.time.Duration.ofMillis(750),
+            (watchedRoot, diff) -> applyWatchedChanges(diff));
     this.grid = new TilePane();
     this.cardCache = new LinkedHashMap<>();
     this.previousPageButton = new Button("◀");
@@ -142,6 +188,18 @@ public class MainView {
     this.searchField = new TextField();
     this.statusLabel = new Label("Aucune photo importee");
     this.gridTitleLabel = new Label("Toutes vos photos scannees (0)");
+    this.catalogWarning = new Label();
+    this.countExecutor =
+        Executors.newSingleThreadExecutor(
+            task -> {
+              Thread thread = new Thread(task, "grid-count");
+              thread.setDaemon(true);
+              return thread;
+            });
+    PulseCoalescer<LibraryChange> libraryChanges =
+        new PulseCoalescer<>(LibraryChange::then, this::onLibraryChanged, Platform::runLater);
+    this.libraryListener = libraryChanges::offer;
+    photoService.addChangeListener(libraryListener);
     root.getStyleClass().add("app-root");
     root.setTop(buildHeader());
     root.setLeft(buildSidebar());
@@ -154,7 +212,30 @@ public class MainView {
     return root;
   }
 
+  /**
+   * Bibliotheque sauvegardee en cours de rechargement: imports et scans sont suspendus jusqu'a la
+   * fin, la grille se remplissant d'elle-meme a la publication.
+   */
+  public void setCatalogLoading(boolean loading) {
+    catalogLoading.set(loading);
+    statusLabel.setText(
+        loading
+            ? "Chargement de la bibliotheque..."
+            : photoService.isEmpty()
+                ? "Aucune photo importee"
+                : photoService.snapshot().size() + " photos rechargees");
+  }
+
+  /** Signale, jusqu'a la fin de la session, que les changements ne sont plus sauvegardes. */
+  public void showCatalogFailure(String reason) {
+    catalogWarning.setText("Bibliotheque non sauvegardee: " + reason);
+    catalogWarning.setVisible(true);
+  }
+
   public void shutdown() {
+    photoService.removeChangeListener(libraryListener);
+    libraryWatcher.close();
+    countExecutor.shutdownNow();
     thumbnailService.shutdown();
   }
 
@@ -179,10 +260,12 @@ public class MainView {
     Button scanAllButton = new Button("Scanner tout");
     scanAllButton.getStyleClass().add("secondary-button");
     scanAllButton.setMinHeight(40);
+    scanAllButton.disableProperty().bind(catalogLoading);
     scanAllButton.setOnAction(event -> runGlobalScan(scanAllButton.getScene().getWindow()));
     Button importButton = new Button("Importer des photos");
     importButton.getStyleClass().add("accent-button");
     importButton.setMinHeight(40);
+    importButton.disableProperty().bind(catalogLoading);
     importButton.setOnAction(event -> launchImport(importButton.getScene().getWindow()));
 
     Region spacer = new Region();
@@ -247,7 +330,11 @@ public class MainView {
     Button exportButton = createSecondaryButton("Exporter");
     exportButton.setOnAction(event -> handleExport(exportButton.getScene().getWindow()));
 
-    VBox quickButtons = new VBox(8, quickImport, createAlbum, exportButton);
+    watchToggle = new CheckBox("Suivre les changements du dossier");
+    watchToggle.setWrapText(true);
+    watchToggle.setOnAction(event -> updateWatching());
+
+    VBox quickButtons = new VBox(8, quickImport, createAlbum, exportButton, watchToggle);
 
     sidebar.getChildren().addAll(navTitle, navButtons, quickTitle, quickButtons);
     return sidebar;
@@ -286,6 +373,7 @@ public class MainView {
     Button primary = new Button("Importer un dossier");
     primary.getStyleClass().add("accent-button");
     primary.setMinHeight(42);
+    primary.disableProperty().bind(catalogLoading);
     primary.setOnAction(event -> launchImport(primary.getScene().getWindow()));
 
     Button secondary = new Button("Ouvrir les favoris");
@@ -303,7 +391,10 @@ public class MainView {
     hero.getChildren().addAll(text, spacer, secondary, primary);
 
     statusLabel.getStyleClass().add("status-label");
-    HBox statusRow = new HBox(statusLabel);
+    catalogWarning.getStyleClass().add("status-warning");
+    catalogWarning.setVisible(false);
+    catalogWarning.managedProperty().bind(catalogWarning.visibleProperty());
+    HBox statusRow = new HBox(12, statusLabel, catalogWarning);
     statusRow.setAlignment(Pos.CENTER_LEFT);
     statusRow.setPadding(new Insets(8, 0, 0, 0));
     return new VBox(8, hero, statusRow);
@@ -384,7 +475,6 @@ public class MainView {
           event -> {
             boolean nowFavorite = photoService.toggleFavorite(currentItem.path());
             updateFavorite(nowFavorite);
-            requestRefresh();
             statusLabel.setText(nowFavorite ? "Ajoute aux favoris" : "Retire des favoris");
             event.consume();
           });
@@ -681,26 +771,67 @@ public class MainView {
     }
   }
 
+  /**
+   * Suite d'un changement de la bibliotheque, deja fusionne par pulse. Des modifications sur place
+   * dans la grille complete ne touchent que les cartes concernees; tout le reste (ajouts,
+   * suppressions, filtre ou recherche actifs, liste des albums) relance la requete de la page.
+   */
+  private void onLibraryChanged(LibraryChange change) {
+    if (change.version() <= renderedVersion) {
+      return;
+    }
+    String search = searchField.getText();
+    boolean plainGrid = getActiveFilter() == Filter.ALL && (search == null || search.isBlank());
+    boolean inPlace =
+        change.updated().stream()
+            .allMatch(
+                update ->
+                    PhotoOrdering.MOST_RECENT.compare(update.previous(), update.current()) == 0);
+    if (change.reset()
+        || !change.added().isEmpty()
+        || !change.removed().isEmpty()
+        || !plainGrid
+        || !inPlace) {
+      requestRefresh();
+      return;
+    }
+    for (LibraryChange.Update update : change.updated()) {
+      PhotoCard card = cardCache.get(update.current().path());
+      if (card != null) {
+        card.updateContent(update.current(), card.mountedOnPage);
+      }
+    }
+    renderedVersion = change.version();
+    log.debug("Grille retouchee: {} photo(s) modifiee(s)", change.updated().size());
+  }
+
   private void refreshGrid() {
     Filter activeFilter = getActiveFilter();
     String search = searchField.getText();
+    renderedVersion = photoService.snapshot().version();
+    long request = ++countRequest;
+    countPending = false;
 
     if (activeFilter == Filter.ALBUMS && showAlbumList) {
       refreshAlbumsGrid(search);
       return;
     }
 
-    List<PhotoItem> filtered = photoService.filter(search, activeFilter);
-    int totalCount = filtered.size();
+    // Seule la page affichee est copiee, jamais le resultat entier
+    Page page = queryPage(search, activeFilter);
+    // Sans total immediat, la page suivante existe (prefetch rempli): le compte se fait a cote
+    countPending = !page.isCounted();
+    int totalCount = countPending ? page.seenCount() : page.totalCount();
     totalPages = Math.max(1, (int) Math.ceil((double) totalCount / PAGE_SIZE));
     if (currentPage > totalPages) {
       currentPage = totalPages;
+      page = queryPage(search, activeFilter);
     }
     if (totalCount == 0) {
       currentPage = 1;
       updateGridHeader(0, 0, currentPage, totalPages);
       updatePaginationControls();
-      boolean emptyLibrary = photoService.all().isEmpty();
+      boolean emptyLibrary = photoService.isEmpty();
       grid.getChildren().setAll(buildEmptyState(emptyLibrary));
       statusLabel.setText(
           emptyLibrary
@@ -714,11 +845,8 @@ public class MainView {
       return;
     }
 
-    int fromIndex = Math.min((currentPage - 1) * PAGE_SIZE, totalCount);
-    int toIndex = Math.min(fromIndex + PAGE_SIZE, totalCount);
-    List<PhotoItem> pageItems = filtered.subList(fromIndex, toIndex);
-    List<Path> prefetchPaths =
-        filtered.stream().skip(toIndex).limit(4).map(PhotoItem::path).toList();
+    List<PhotoItem> pageItems = page.items();
+    List<Path> prefetchPaths = page.prefetch();
 
     Set<Path> filteredPaths =
         pageItems.stream()
@@ -749,6 +877,9 @@ public class MainView {
     prefetchNext(prefetchPaths);
     updateGridHeader(pageItems.size(), totalCount, currentPage, totalPages);
     updatePaginationControls();
+    if (countPending) {
+      countInBackground(request, page);
+    }
     log.info(
         "Grid rafraichie: {} elements (filtre={}, recherche='{}', page {}/{})",
         grid.getChildren().size(),
@@ -781,7 +912,7 @@ public class MainView {
       currentPage = 1;
       updateGridHeader(0, 0, currentPage, totalPages);
       updatePaginationControls();
-      boolean emptyLibrary = photoService.all().isEmpty();
+      boolean emptyLibrary = photoService.isEmpty();
       grid.getChildren().setAll(buildEmptyAlbumsState(emptyLibrary));
       statusLabel.setText(
           emptyLibrary
@@ -831,6 +962,31 @@ public class MainView {
             + ")");
   }
 
+  /**
+   * Compte le resultat de {@code page} hors du thread JavaFX, puis met la pagination a jour si la
+   * grille affiche toujours la meme requete.
+   */
+  private void countInBackground(long request, Page page) {
+    int displayedCount = page.items().size();
+    countExecutor.execute(
+        () -> {
+          if (request != countRequest) {
+            return;
+          }
+          int totalCount = page.totalCount();
+          Platform.runLater(
+              () -> {
+                if (request != countRequest) {
+                  return;
+                }
+                countPending = false;
+                totalPages = Math.max(1, (int) Math.ceil((double) totalCount / PAGE_SIZE));
+                updateGridHeader(displayedCount, totalCount, currentPage, totalPages);
+                updatePaginationControls();
+              });
+        });
+  }
+
   private void updateGridHeader(int displayedCount, int totalCount, int page, int totalPages) {
     Filter activeFilter = getActiveFilter();
 
@@ -848,18 +1004,20 @@ public class MainView {
         .append(displayedCount)
         .append(" / ")
         .append(totalCount)
+        .append(countPending ? "+" : "")
         .append(", page ")
         .append(page)
         .append("/")
         .append(totalPages)
+        .append(countPending ? "+" : "")
         .append(")");
     gridTitleLabel.setText(builder.toString());
   }
 
   private void updatePaginationControls() {
-    pageIndicator.setText("Page " + currentPage + " / " + totalPages);
-    previousPageButton.setDisable(currentPage <= 1 || photoService.all().isEmpty());
-    nextPageButton.setDisable(currentPage >= totalPages || photoService.all().isEmpty());
+    pageIndicator.setText("Page " + currentPage + " / " + totalPages + (countPending ? "+" : ""));
+    previousPageButton.setDisable(currentPage <= 1 || photoService.isEmpty());
+    nextPageButton.setDisable(currentPage >= totalPages || photoService.isEmpty());
   }
 
   private void prefetchNext(List<Path> prefetchPaths) {
@@ -960,6 +1118,11 @@ public class MainView {
     runScan(owner, selectedDir.toPath());
   }
 
+  private Page queryPage(String search, Filter activeFilter) {
+    return photoService.query(
+        search, activeFilter, (currentPage - 1) * PAGE_SIZE, PAGE_SIZE, PREFETCH_SIZE);
+  }
+
   protected DirectoryChooser createDirectoryChooser() {
     return new DirectoryChooser();
   }
@@ -992,7 +1155,6 @@ public class MainView {
         .ifPresent(
             selection -> {
               photoService.createAlbum(selection.name(), selection.photos());
-              requestRefresh();
               statusLabel.setText("Album '" + selection.name() + "' cree");
               showToast(
                   owner,
@@ -1129,9 +1291,7 @@ public class MainView {
   }
 
   private Comparator<PhotoItem> byMostRecent() {
-    return Comparator.comparing(PhotoItem::date)
-        .reversed()
-        .thenComparing(PhotoItem::title, String.CASE_INSENSITIVE_ORDER);
+    return PhotoOrdering.MOST_RECENT;
   }
 
   private Comparator<PhotoItem> byName() {
@@ -1255,13 +1415,16 @@ public class MainView {
           @Override
           protected Integer call() throws Exception {
             updateMessage("Preparation de l'export...");
-            return exportService.exportPhotos(
-                selection,
-                destination,
-                progress -> {
-                  updateProgress(progress, 1.0);
-                  updateMessage(String.format("%.0f%%", progress * 100));
-                });
+            try (ProgressTracker tracker =
+                new ProgressTracker(
+                    snapshot -> {
+                      if (snapshot.fraction() >= 0) {
+                        updateProgress(snapshot.fraction(), 1.0);
+                      }
+                      updateMessage(describeExportProgress(snapshot));
+                    })) {
+              return exportService.exportPhotosWithProgress(selection, destination, tracker);
+            }
           }
         };
 
@@ -1376,6 +1539,9 @@ public class MainView {
     skipSystem.setSelected(true);
     skipSystem.getStyleClass().add("dialog-check");
 
+    CheckBox sniffContent = new CheckBox("Verifier le contenu des fichiers (plus lent)");
+    sniffContent.getStyleClass().add("dialog-check");
+
     TextField depthField = new TextField();
     depthField.setPromptText("Profondeur max (vide = illimite)");
     depthField.getStyleClass().add("dialog-field");
@@ -1388,10 +1554,11 @@ public class MainView {
     dateField.setPromptText("Date min (AAAA-MM-JJ, optionnel)");
     dateField.getStyleClass().add("dialog-field");
 
-    Label hint = new Label("Choisissez jusqu'a 5 filtres pour accelerer la recherche");
+    Label hint = new Label("Choisissez jusqu'a 6 filtres pour accelerer la recherche");
     hint.getStyleClass().add("dialog-muted");
 
-    VBox content = new VBox(10, hint, skipHidden, skipSystem, depthField, sizeField, dateField);
+    VBox content =
+        new VBox(10, hint, skipHidden, skipSystem, sniffContent, depthField, sizeField, dateField);
     content.setPadding(new Insets(10));
     dialog.getDialogPane().setContent(content);
 
@@ -1429,7 +1596,12 @@ public class MainView {
           }
 
           return new PhotoFileScanner.ScanOptions(
-              skipHidden.isSelected(), skipSystem.isSelected(), depth, maxSize, minDate);
+              skipHidden.isSelected(),
+              skipSystem.isSelected(),
+              depth,
+              maxSize,
+              minDate,
+              sniffContent.isSelected());
         });
     return dialog.showAndWait().orElse(null);
   }
@@ -1496,60 +1668,111 @@ public class MainView {
     List<Path> roots = candidateRoots.stream().filter(this::isUsableDirectory).distinct().toList();
     return new Task<>() {
       @Override
-      protected PhotoFileScanner.ScanResult call() {
+      protected PhotoFileScanner.ScanResult call() throws InterruptedException {
         if (roots.isEmpty()) {
           updateMessage("Aucun dossier valide");
           return PhotoFileScanner.ScanResult.empty();
         }
-        List<PhotoItem> aggregated = new ArrayList<>();
-        List<Path> skippedDirectories = new ArrayList<>();
         int total = roots.size();
+        // Chaque lot est une sequence deja triee: on les garde telles quelles pour la fusion finale
+        List<List<PhotoItem>> runs = new ArrayList<>();
+        AtomicInteger found = new AtomicInteger();
+        List<Path> skippedDirectories = new ArrayList<>();
         int processed = 0;
-        int photosCount = 0;
-        AtomicLong visited = new AtomicLong(0);
         updateProgress(0, total);
-        for (Path root : roots) {
-          if (isCancelled()) {
-            updateMessage("Scan annule");
-            break;
+        updateMessage(String.format(Locale.ROOT, "Scan de %d dossiers en parallele", total));
+        // Un message par periode du suivi, et non plus un par fichier parcouru
+        try (ProgressTracker tracker =
+                new ProgressTracker(
+                    snapshot -> updateMessage(describeScanProgress(snapshot, found.get())));
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+          CompletionService<RootScan> completion = new ExecutorCompletionService<>(executor);
+          for (Path root : roots) {
+            completion.submit(
+                () -> {
+                  PhotoFileScanner.StreamResult result =
+                      scanner.scanInBatches(
+                          List.of(root),
+                          this::isCancelled,
+                          options,
+                          SCAN_BATCH_SIZE,
+                          tracker,
+                          batch -> {
+                            synchronized (runs) {
+                              runs.add(batch);
+                            }
+                            found.addAndGet(batch.size());
+                          });
+                  return new RootScan(root, result);
+                });
           }
-          updateMessage("Scan de " + root.getFileName());
-          AtomicLong rootVisited = new AtomicLong(0);
-          PhotoFileScanner.ScanResult rootResult =
-              scanner.scan(
-                  List.of(root),
-                  this::isCancelled,
-                  count -> {
-                    long totalVisited = visited.get() + count;
-                    rootVisited.set(count);
-                    updateMessage(
-                        String.format(
-                            Locale.ROOT,
-                            "Scan de %s - fichiers parcourus: %d",
-                            root.getFileName(),
-                            totalVisited));
-                  },
-                  options);
-          List<PhotoItem> rootItems = rootResult.photos();
-          skippedDirectories.addAll(rootResult.skippedDirectories());
-          photosCount += rootItems.size();
-          aggregated.addAll(rootItems);
-          processed++;
-          visited.addAndGet(rootVisited.get());
-          updateProgress(processed, total);
-          updateMessage(
-              String.format(
-                  Locale.ROOT,
-                  "%d photos trouvees (%d fichiers parcourus)",
-                  photosCount,
-                  visited.get()));
+          for (int i = 0; i < total; i++) {
+            RootScan finished;
+            try {
+              finished = completion.take().get();
+            } catch (ExecutionException e) {
+              log.error("Scan d'une racine echoue", e.getCause());
+              continue;
+            }
+            skippedDirectories.addAll(finished.result().skippedDirectories());
+            processed++;
+            updateProgress(processed, total);
+            log.info(
+                "Racine terminee: {} ({} photos)", finished.root(), finished.result().photoCount());
+          }
+        }
+        if (isCancelled()) {
+          updateMessage("Scan annule");
         }
-        aggregated.sort((a, b) -> b.date().compareTo(a.date()));
-        return new PhotoFileScanner.ScanResult(aggregated, skippedDirectories);
+        return new PhotoFileScanner.ScanResult(PhotoOrdering.mergeRuns(runs), skippedDirectories);
       }
     };
   }
 
+  private record RootScan(Path root, PhotoFileScanner.StreamResult result) {}
+
+  private static String describeScanProgress(ProgressTracker.Snapshot snapshot, int photos) {
+    String text =
+        String.format(
+            Locale.ROOT,
+            "%d photos trouvees, %d fichiers parcourus (%.0f/s)",
+            photos,
+            snapshot.files(),
+            snapshot.filesPerSecond());
+    if (snapshot.pendingDirectories() > 0) {
+      text += String.format(Locale.ROOT, ", %d dossiers en attente", snapshot.pendingDirectories());
+    }
+    return text + describeRemaining(snapshot);
+  }
+
+  private static String describeVisitedProgress(ProgressTracker.Snapshot snapshot) {
+    return String.format(
+        Locale.ROOT,
+        "Fichiers parcourus: %d (%.0f/s)",
+        snapshot.files(),
+        snapshot.filesPerSecond());
+  }
+
+  private static String describeExportProgress(ProgressTracker.Snapshot snapshot) {
+    return String.format(
+            Locale.ROOT,
+            "%d / %d photos copiees (%s/s)",
+            snapshot.files(),
+            snapshot.totalFiles(),
+            PhotoFileScanner.humanSize((long) snapshot.bytesPerSecond()))
+        + describeRemaining(snapshot);
+  }
+
+  private static String describeRemaining(ProgressTracker.Snapshot snapshot) {
+    if (snapshot.finished() || snapshot.eta() == null) {
+      return "";
+    }
+    long seconds = Math.max(1, snapshot.eta().toSeconds());
+    return seconds < 60
+        ? String.format(Locale.ROOT, ", reste ~%d s", seconds)
+        : String.format(Locale.ROOT, ", reste ~%d min %02d s", seconds / 60, seconds % 60);
+  }
+
   protected void handleScanResults(Window owner, PhotoFileScanner.ScanResult result) {
     List<PhotoItem> items = result.photos();
     if (items == null || items.isEmpty()) {
@@ -1560,7 +1783,7 @@ public class MainView {
       return;
     }
     long duplicatesDetected =
-        items.stream().filter(item -> photoService.contains(item.path())).count();
+        photoService.containsAll(items.stream().map(PhotoItem::path).toList()).cardinality();
     showSkippedSummary(owner, result.skippedDirectories());
     Dialog<ScanSelection> dialog = buildScanSelectionDialog(owner, items);
     Optional<ScanSelection> selection = dialog == null ? Optional.empty() : dialog.showAndWait();
@@ -1574,7 +1797,8 @@ public class MainView {
               addResult.affectedAlbums().isEmpty()
                   ? "aucun album"
                   : String.join(", ", addResult.affectedAlbums());
-          int duplicateReport = (int) Math.max(addResult.duplicateCount(), duplicatesDetected);
+          // Les photos deja connues n'etaient pas proposees: les deux comptes ne se recouvrent pas
+          int duplicateReport = (int) (duplicatesDetected + addResult.duplicateCount());
           String message =
               String.format(
                   Locale.ROOT,
@@ -1660,8 +1884,8 @@ public class MainView {
     newAlbumField.setPromptText("Ou nommez un nouvel album");
     newAlbumField.getStyleClass().add("dialog-field");
 
-    List<PhotoItem> sorted = new ArrayList<>(items);
-    sorted.sort(byMostRecent());
+    // Les resultats du scan arrivent deja dans cet ordre
+    List<PhotoItem> sorted = PhotoOrdering.sortIfNeeded(new ArrayList<>(items));
 
     TilePane tilePane = new TilePane(10, 10);
     tilePane.setPrefColumns(4);
@@ -1691,9 +1915,10 @@ public class MainView {
     pageInput.getStyleClass().add("dialog-field");
 
     Map<PhotoItem, SelectionTile> selectionTiles = new LinkedHashMap<>();
-    for (PhotoItem item : sorted) {
-      boolean duplicate = photoService.contains(item.path());
-      SelectionTile tile = new SelectionTile(item, duplicate);
+    BitSet known = photoService.containsAll(sorted.stream().map(PhotoItem::path).toList());
+    for (int i = 0; i < sorted.size(); i++) {
+      PhotoItem item = sorted.get(i);
+      SelectionTile tile = new SelectionTile(item, known.get(i));
       selectionTiles.put(item, tile);
     }
 
@@ -1992,38 +2217,78 @@ public class MainView {
       return;
     }
     statusLabel.setText("Scan en cours...");
-    Task<PhotoFileScanner.ScanResult> task =
+    Task<ScanOutcome> task =
         new Task<>() {
           @Override
-          protected PhotoFileScanner.ScanResult call() {
-            AtomicLong visited = new AtomicLong(0);
-            return scanner.scan(
-                root,
-                this::isCancelled,
-                count -> {
-                  visited.set(count);
-                  updateMessage(String.format(Locale.ROOT, "Fichiers parcourus: %d", count));
-                },
-                options);
+          protected ScanOutcome call() {
+            // Rescan incremental des que la bibliotheque contient deja des photos de ce dossier,
+            // y compris restaurees par le catalogue apres un redemarrage
+            boolean incremental = !photoService.photosUnder(root).isEmpty();
+            ScanManifest previous = incremental ? manifestStore.load(root) : ScanManifest.empty();
+            PhotoFileScanner.RescanResult result;
+            // Meme suivi periodique que le scan global et l'export
+            try (ProgressTracker tracker =
+                new ProgressTracker(snapshot -> updateMessage(describeVisitedProgress(snapshot)))) {
+              result =
+                  scanner.rescan(
+                      root, previous, this::isCancelled, tracker.visitedCounter(), options);
+            }
+            if (!result.complete()) {
+              return new ScanOutcome(result, incremental, "Scan annule");
+            }
+            manifestStore.save(root, result.manifest());
+            // Bibliotheque ecrite ici: le thread JavaFX n'affiche que le message
+            PhotoFileScanner.ScanDiff diff = result.diff();
+            if (!incremental) {
+              List<PhotoItem> items = diff.added();
+              photoService.replaceAll(items);
+              return new ScanOutcome(
+                  result,
+                  false,
+                  items.isEmpty()
+                      ? "Aucune image trouvee dans le dossier"
+                      : "Import reussi: " + items.size() + " photos visibles dans la grille");
+            }
+            List<Path> removed = removalsSince(root, previous, options, result);
+            PhotoLibraryService.ChangeResult change =
+                photoService.applyChanges(diff.upserts(), removed);
+            return new ScanOutcome(
+                result,
+                true,
+                diff.isEmpty() && removed.isEmpty()
+                    ? "Aucun changement detecte dans le dossier"
+                    : String.format(
+                        Locale.ROOT,
+                        "Mise a jour: %d ajoutee(s), %d modifiee(s), %d retiree(s)",
+                        change.addedCount(),
+                        change.updatedCount(),
+                        change.removedCount()));
           }
         };
     task.setOnSucceeded(
         event -> {
-          PhotoFileScanner.ScanResult result = task.getValue();
-          List<PhotoItem> items = result.photos();
-          photoService.replaceAll(items);
+          ScanOutcome outcome = task.getValue();
+          PhotoFileScanner.RescanResult result = outcome.result();
+          String message = outcome.message();
+          if (!result.complete()) {
+            statusLabel.setText(message);
+            return;
+          }
+          if (lastScanRoot != null && !lastScanRoot.equals(root)) {
+            libraryWatcher.unwatch(lastScanRoot);
+          }
+          lastScanRoot = root;
+          lastScanOptions = options;
+          lastManifest = result.manifest();
+          updateWatching();
           resetPagination();
           refreshGridImmediately();
-          String message =
-              items.isEmpty()
-                  ? "Aucune image trouvee dans le dossier"
-                  : "Import reussi: " + items.size() + " photos visibles dans la grille";
           statusLabel.setText(message);
-          if (!items.isEmpty()) {
+          if (!photoService.isEmpty()) {
             showToast(owner, message);
           }
           showSkippedSummary(owner, result.skippedDirectories());
-          log.info("Import termine depuis {}", root);
+          log.info("Import termine depuis {} (incremental={})", root, outcome.incremental());
         });
     task.setOnFailed(
         event -> {
@@ -2035,6 +2300,76 @@ public class MainView {
     thread.start();
   }
 
+  /** Resultat d'un scan de dossier deja applique a la bibliotheque, et le message a afficher. */
+  private record ScanOutcome(
+      PhotoFileScanner.RescanResult result, boolean incremental, String message) {}
+
+  /**
+   * Chemins disparus depuis le scan precedent de {@code root}. Sans manifeste exploitable (absent,
+   * illisible ou issu d'autres options), le rescan voit tout comme ajoute et rien comme retire: les
+   * retraits se deduisent alors des photos de la bibliotheque sous ce dossier.
+   */
+  private List<Path> removalsSince(
+      Path root,
+      ScanManifest previous,
+      PhotoFileScanner.ScanOptions options,
+      PhotoFileScanner.RescanResult result) {
+    if (!result.complete()) {
+      return List.of();
+    }
+    if (!previous.isEmpty() && previous.optionsKey().equals(options.toString())) {
+      return result.diff().removed();
+    }
+    Set<Path> found = new HashSet<>();
+    for (PhotoItem item : result.diff().added()) {
+      found.add(item.path());
+    }
+    List<Path> removed = new ArrayList<>();
+    for (PhotoItem item : photoService.photosUnder(root)) {
+      Path path = item.path();
+      if (!found.contains(path)) {
+        removed.add(path);
+      }
+    }
+    return removed;
+  }
+
+  private void updateWatching() {
+    if (lastScanRoot != null) {
+      libraryWatcher.unwatch(lastScanRoot);
+    }
+    if (!watchToggle.isSelected()) {
+      return;
+    }
+    if (lastScanRoot == null) {
+      statusLabel.setText("Importez un dossier pour suivre ses changements");
+      watchToggle.setSelected(false);
+      return;
+    }
+    try {
+      libraryWatcher.watch(lastScanRoot, lastManifest, lastScanOptions);
+      statusLabel.setText("Suivi des changements actif pour " + lastScanRoot);
+    } catch (IOException e) {
+      log.warn("Surveillance impossible pour {}: {}", lastScanRoot, e.getMessage());
+      statusLabel.setText("Suivi des changements indisponible pour ce dossier");
+      watchToggle.setSelected(false);
+    }
+  }
+
+  /** Appele sur le thread de la surveillance: seul le message passe par le thread JavaFX. */
+  private void applyWatchedChanges(PhotoFileScanner.ScanDiff diff) {
+    PhotoLibraryService.ChangeResult change =
+        photoService.applyChanges(diff.upserts(), diff.removed());
+    String message =
+        String.format(
+            Locale.ROOT,
+            "Dossier mis a jour: %d ajoutee(s), %d modifiee(s), %d retiree(s)",
+            change.addedCount(),
+            change.updatedCount(),
+            change.removedCount());
+    Platform.runLater(() -> statusLabel.setText(message));
+  }
+
   public void showHelpDialog(Window owner) {
     log.info("Ouverture de l'aide");
     Alert dialog = new Alert(Alert.AlertType.INFORMATION);
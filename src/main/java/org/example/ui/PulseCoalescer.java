@@ -0,0 +1,48 @@
+package org.example.ui;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Regroupe des evenements recus de n'importe quel thread et les livre fusionnes, en un seul appel,
+ * au prochain tour du thread JavaFX: une rafale d'ecritures entre deux pulses ne declenche qu'une
+ * mise a jour de l'affichage.
+ */
+final class PulseCoalescer<T> {
+  private final BinaryOperator<T> merge;
+  private final Consumer<T> target;
+  private final Consumer<Runnable> fxExecutor;
+  private T pending;
+
+  /**
+   * @param merge fusion de l'evenement en attente avec le suivant
+   * @param fxExecutor {@code Platform::runLater} hors tests
+   */
+  PulseCoalescer(BinaryOperator<T> merge, Consumer<T> target, Consumer<Runnable> fxExecutor) {
+    this.merge = merge;
+    this.target = target;
+    this.fxExecutor = fxExecutor;
+  }
+
+  void offer(T event) {
+    boolean schedule;
+    synchronized (this) {
+      schedule = pending == null;
+      pending = schedule ? event : merge.apply(pending, event);
+    }
+    if (schedule) {
+      fxExecutor.accept(this::deliver);
+    }
+  }
+
+  private void deliver() {
+    T event;
+    synchronized (this) {
+      event = pending;
+      pending = null;
+    }
+    if (event != null) {
+      target.accept(event);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.example.ui.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Arbre des repertoires contenant des photos, chaque repertoire n'y figurant qu'une fois. Un {@link
+ * PhotoItem} ne garde que son noeud parent et son nom de fichier: le chemin complet, les albums
+ * deduits des dossiers et leurs noms sont partages par toutes les photos d'un meme repertoire au
+ * lieu d'etre recopies sur chacune.
+ *
+ * <p>Un noeud vit tant qu'une photo (ou un sous-repertoire) le tient: la table des chemins ne le
+ * garde que faiblement, les dossiers retires ou abandonnes ne s'accumulent donc pas.
+ */
+public final class DirectoryTrie {
+  private static final DirectoryTrie SHARED = new DirectoryTrie();
+
+  // Cle = chemin du noeud lui-meme, pour que l'entree vive autant que lui
+  private final WeakCache<Path, Node> byPath = new WeakCache<>();
+
+  /** Arbre commun a toutes les {@link PhotoItem}; l'identite des noeuds y vaut egalite. */
+  public static DirectoryTrie shared() {
+    return SHARED;
+  }
+
+  /** Noeud du repertoire {@code directory}, cree avec ses ancetres au besoin. */
+  public Node intern(Path directory) {
+    Objects.requireNonNull(directory, "directory");
+    Node known = byPath.get(directory);
+    if (known != null) {
+      return known;
+    }
+    Path parentPath = directory.getParent();
+    Path name = directory.getFileName();
+    Node node;
+    if (name == null || directory.toString().isEmpty()) {
+      // Racine ("/", "C:\") ou chemin vide: premier niveau de l'arbre
+      node = new Node(null, directory.toString(), directory);
+    } else {
+      Node parent = intern(parentPath != null ? parentPath : directory.getFileSystem().getPath(""));
+      node = new Node(parent, name.toString(), directory);
+    }
+    return byPath.putIfAbsent(directory, node);
+  }
+
+  /** Noeud deja connu de {@code directory}, ou {@code null}; ne cree rien. */
+  public Node find(Path directory) {
+    return directory == null ? null : byPath.get(directory);
+  }
+
+  /** Nombre de repertoires connus (diagnostic). */
+  public int size() {
+    return byPath.size();
+  }
+
+  /** Repertoire de l'arbre. Toutes les methodes sont sures en acces concurrent. */
+  public static final class Node {
+    private final Node parent;
+    private final String name;
+    private final Path path;
+    private final List<String> nameAsAlbum;
+    private volatile AlbumPath albumPath;
+
+    private record AlbumPath(Node base, List<String> albums) {}
+
+    private Node(Node parent, String name, Path path) {
+      this.parent = parent;
+      this.name = name.intern();
+      this.path = path;
+      this.nameAsAlbum = parent == null || name.isBlank() ? List.of() : List.of(this.name);
+    }
+
+    public Node parent() {
+      return parent;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public Path path() {
+      return path;
+    }
+
+    /** Ce noeud est-il {@code ancestor} ou l'un de ses descendants? */
+    public boolean isWithin(Node ancestor) {
+      for (Node current = this; current != null; current = current.parent) {
+        if (current == ancestor) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Chemin du fichier {@code fileName} dans ce repertoire, construit a la demande. */
+    public Path resolve(String fileName) {
+      return fileName.isEmpty() ? path : path.resolve(fileName);
+    }
+
+    /** Album par defaut d'une photo: le nom de ce repertoire (liste partagee). */
+    public List<String> nameAsAlbum() {
+      return nameAsAlbum;
+    }
+
+    /**
+     * Noms des repertoires entre {@code base} (exclu) et ce noeud (inclus), c'est-a-dire les albums
+     * d'une photo scannee depuis {@code base}. Vide si {@code base} n'est pas un ancetre. Le
+     * resultat est memorise pour la derniere racine demandee.
+     */
+    public List<String> albumsBelow(Node base) {
+      AlbumPath cached = albumPath;
+      if (cached != null && cached.base() == base) {
+        return cached.albums();
+      }
+      List<String> names = new ArrayList<>();
+      Node current = this;
+      while (current != null && current != base) {
+        if (!current.name.isBlank()) {
+          names.add(current.name);
+        }
+        current = current.parent;
+      }
+      List<String> albums;
+      if (current == null) {
+        albums = List.of();
+      } else {
+        Collections.reverse(names);
+        albums = List.copyOf(names);
+      }
+      albumPath = new AlbumPath(base, albums);
+      return albums;
+    }
+
+    @Override
+    public String toString() {
+      return path.toString();
+    }
+  }
+}
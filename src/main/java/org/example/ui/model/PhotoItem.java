@@ -6,17 +6,32 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
-public record PhotoItem(
-    Path path,
-    String title,
-    String normalizedTitle,
-    LocalDate date,
-    String sizeLabel,
-    List<String> tags,
-    List<String> normalizedTags,
-    List<String> albums,
-    List<String> normalizedAlbums,
-    boolean favorite) {
+/**
+ * Photo affichee par l'interface. Immuable, avec les accesseurs d'un record.
+ *
+ * <p>Pour tenir des bibliotheques d'un million de photos, rien n'est recopie d'une photo a l'autre:
+ * le repertoire est un noeud partage de {@link DirectoryTrie} et le chemin complet est reconstruit
+ * a la demande; les listes (albums, tags), les libelles de taille et les dates identiques sont
+ * partages entre photos.
+ */
+public final class PhotoItem {
+  // Tables faibles: une valeur n'y reste que tant qu'une photo la tient
+  private static final WeakCache<List<String>, List<String>> SHARED_LISTS = new WeakCache<>();
+  private static final WeakCache<List<String>, List<String>> NORMALIZED_LISTS = new WeakCache<>();
+  private static final WeakCache<String, String> SHARED_LABELS = new WeakCache<>();
+  private static final WeakCache<LocalDate, LocalDate> SHARED_DATES = new WeakCache<>();
+
+  private final DirectoryTrie.Node directory;
+  private final String fileName;
+  private final String title;
+  private final String normalizedTitle;
+  private final LocalDate date;
+  private final String sizeLabel;
+  private final List<String> tags;
+  private final List<String> normalizedTags;
+  private final List<String> albums;
+  private final List<String> normalizedAlbums;
+  private final boolean favorite;
 
   public PhotoItem(
       Path path,
@@ -32,37 +47,212 @@ public record PhotoItem(
         normalize(title),
         date,
         sizeLabel,
-        safeList(tags),
-        normalizeList(tags),
-        safeList(albums),
-        normalizeList(albums),
+        tags,
+        normalizedList(tags),
+        albums,
+        normalizedList(albums),
         favorite);
   }
 
-  public PhotoItem {
+  public PhotoItem(
+      Path path,
+      String title,
+      String normalizedTitle,
+      LocalDate date,
+      String sizeLabel,
+      List<String> tags,
+      List<String> normalizedTags,
+      List<String> albums,
+      List<String> normalizedAlbums,
+      boolean favorite) {
     Objects.requireNonNull(path, "path");
     Objects.requireNonNull(title, "title");
     Objects.requireNonNull(normalizedTitle, "normalizedTitle");
     Objects.requireNonNull(date, "date");
     Objects.requireNonNull(sizeLabel, "sizeLabel");
-    tags = safeList(tags);
-    normalizedTags = safeList(normalizedTags);
-    albums = safeList(albums);
-    normalizedAlbums = safeList(normalizedAlbums);
+    Path name = path.getFileName();
+    Path parent = path.getParent();
+    if (name == null) {
+      this.directory = DirectoryTrie.shared().intern(path);
+      this.fileName = "";
+    } else {
+      this.directory =
+          DirectoryTrie.shared().intern(parent != null ? parent : path.getFileSystem().getPath(""));
+      this.fileName = name.toString();
+    }
+    // Le titre est presque toujours le nom du fichier: une seule chaine pour les deux
+    this.title = title.equals(fileName) ? fileName : title;
+    this.normalizedTitle = normalizedTitle.equals(this.title) ? this.title : normalizedTitle;
+    this.date = WeakCache.intern(SHARED_DATES, date);
+    this.sizeLabel = WeakCache.intern(SHARED_LABELS, sizeLabel);
+    this.tags = sharedList(tags);
+    this.normalizedTags = sharedList(normalizedTags);
+    this.albums = sharedList(albums);
+    this.normalizedAlbums = sharedList(normalizedAlbums);
+    this.favorite = favorite;
+  }
+
+  /** Copie ne changeant que albums et favori: rien n'est renormalise ni relu dans l'arbre. */
+  private PhotoItem(
+      PhotoItem source, List<String> albums, List<String> normalizedAlbums, boolean favorite) {
+    this.directory = source.directory;
+    this.fileName = source.fileName;
+    this.title = source.title;
+    this.normalizedTitle = source.normalizedTitle;
+    this.date = source.date;
+    this.sizeLabel = source.sizeLabel;
+    this.tags = source.tags;
+    this.normalizedTags = source.normalizedTags;
+    this.albums = albums;
+    this.normalizedAlbums = normalizedAlbums;
+    this.favorite = favorite;
+  }
+
+  /** Meme photo avec d'autres albums; {@code this} si rien ne change. */
+  public PhotoItem withAlbums(List<String> newAlbums) {
+    List<String> shared = sharedList(newAlbums);
+    return shared.equals(albums)
+        ? this
+        : new PhotoItem(this, shared, normalizedList(shared), favorite);
+  }
+
+  /** Meme photo avec un autre statut favori; {@code this} si rien ne change. */
+  public PhotoItem withFavorite(boolean newFavorite) {
+    return newFavorite == favorite
+        ? this
+        : new PhotoItem(this, albums, normalizedAlbums, newFavorite);
+  }
+
+  /** Chemin complet, reconstruit depuis le repertoire partage. */
+  public Path path() {
+    return directory.resolve(fileName);
+  }
+
+  /** Repertoire de la photo dans {@link DirectoryTrie#shared()}. */
+  public DirectoryTrie.Node directory() {
+    return directory;
+  }
+
+  public String fileName() {
+    return fileName;
+  }
+
+  public String title() {
+    return title;
+  }
+
+  public String normalizedTitle() {
+    return normalizedTitle;
+  }
+
+  public LocalDate date() {
+    return date;
+  }
+
+  public String sizeLabel() {
+    return sizeLabel;
+  }
+
+  public List<String> tags() {
+    return tags;
+  }
+
+  public List<String> normalizedTags() {
+    return normalizedTags;
   }
 
-  private static List<String> safeList(List<String> source) {
-    return source == null ? List.of() : List.copyOf(source);
+  public List<String> albums() {
+    return albums;
+  }
+
+  public List<String> normalizedAlbums() {
+    return normalizedAlbums;
+  }
+
+  public boolean favorite() {
+    return favorite;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof PhotoItem that)) {
+      return false;
+    }
+    return directory == that.directory
+        && favorite == that.favorite
+        && fileName.equals(that.fileName)
+        && title.equals(that.title)
+        && normalizedTitle.equals(that.normalizedTitle)
+        && date.equals(that.date)
+        && sizeLabel.equals(that.sizeLabel)
+        && tags.equals(that.tags)
+        && normalizedTags.equals(that.normalizedTags)
+        && albums.equals(that.albums)
+        && normalizedAlbums.equals(that.normalizedAlbums);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        directory.path(),
+        fileName,
+        title,
+        normalizedTitle,
+        date,
+        sizeLabel,
+        tags,
+        normalizedTags,
+        albums,
+        normalizedAlbums,
+        favorite);
+  }
+
+  @Override
+  public String toString() {
+    return "PhotoItem[path="
+        + path()
+        + ", title="
+        + title
+        + ", date="
+        + date
+        + ", sizeLabel="
+        + sizeLabel
+        + ", tags="
+        + tags
+        + ", albums="
+        + albums
+        + ", favorite="
+        + favorite
+        + "]";
+  }
+
+  /**
+   * Instance partagee d'une liste: les photos d'un meme dossier ont les memes albums, la plupart
+   * n'ont aucun tag.
+   */
+  private static List<String> sharedList(List<String> source) {
+    if (source == null || source.isEmpty()) {
+      return List.of();
+    }
+    List<String> copy = List.copyOf(source);
+    return WeakCache.intern(SHARED_LISTS, copy);
   }
 
   private static String normalize(String value) {
     return value == null ? "" : value.toLowerCase(Locale.ROOT);
   }
 
-  private static List<String> normalizeList(List<String> values) {
+  private static List<String> normalizedList(List<String> values) {
     if (values == null || values.isEmpty()) {
       return List.of();
     }
-    return values.stream().filter(Objects::nonNull).map(PhotoItem::normalize).toList();
+    // Valeur elle-meme partagee: c'est l'instance que les photos tiennent
+    return NORMALIZED_LISTS.computeIfAbsent(
+        sharedList(values),
+        key ->
+            sharedList(key.stream().filter(Objects::nonNull).map(PhotoItem::normalize).toList()));
   }
 }
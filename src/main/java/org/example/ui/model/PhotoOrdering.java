@@ -0,0 +1,130 @@
+package org.example.ui.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ordre d'affichage des photos et fusions de sequences deja triees. Le scan produit des sequences
+ * triees (par racine, par lot); elles sont fusionnees ici en un seul passage au lieu d'etre
+ * concatenees puis retriees a chaque etape.
+ */
+public final class PhotoOrdering {
+
+  /** Ordre d'affichage commun: plus recentes d'abord, puis par titre. */
+  public static final Comparator<PhotoItem> MOST_RECENT =
+      Comparator.comparing(PhotoItem::date)
+          .reversed()
+          .thenComparing(PhotoItem::title, String.CASE_INSENSITIVE_ORDER);
+
+  private PhotoOrdering() {}
+
+  /** Verification lineaire, pour eviter un tri quand l'entree est deja ordonnee. */
+  public static boolean isSorted(List<PhotoItem> photos) {
+    for (int i = 1; i < photos.size(); i++) {
+      if (MOST_RECENT.compare(photos.get(i - 1), photos.get(i)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Trie {@code photos} sur place seulement si necessaire; retourne la meme liste. */
+  public static List<PhotoItem> sortIfNeeded(List<PhotoItem> photos) {
+    if (!isSorted(photos)) {
+      photos.sort(MOST_RECENT);
+    }
+    return photos;
+  }
+
+  /**
+   * Fusionne deux listes deja triees en un seul passage lineaire. A egalite, {@code left} passe
+   * d'abord.
+   */
+  public static List<PhotoItem> mergeSorted(List<PhotoItem> left, List<PhotoItem> right) {
+    if (left == null || left.isEmpty()) {
+      return right == null ? List.of() : right;
+    }
+    if (right == null || right.isEmpty()) {
+      return left;
+    }
+    List<PhotoItem> merged = new ArrayList<>(left.size() + right.size());
+    int i = 0;
+    int j = 0;
+    while (i < left.size() && j < right.size()) {
+      if (MOST_RECENT.compare(left.get(i), right.get(j)) <= 0) {
+        merged.add(left.get(i++));
+      } else {
+        merged.add(right.get(j++));
+      }
+    }
+    merged.addAll(left.subList(i, left.size()));
+    merged.addAll(right.subList(j, right.size()));
+    return merged;
+  }
+
+  /**
+   * Fusion a k voies par tas: O(n log k) pour n photos reparties en k sequences triees, une seule
+   * liste allouee. A egalite, l'ordre des sequences est conserve.
+   */
+  public static List<PhotoItem> mergeRuns(List<? extends List<PhotoItem>> runs) {
+    List<List<PhotoItem>> nonEmpty = new ArrayList<>(runs.size());
+    int total = 0;
+    for (List<PhotoItem> run : runs) {
+      if (run != null && !run.isEmpty()) {
+        nonEmpty.add(run);
+        total += run.size();
+      }
+    }
+    if (nonEmpty.isEmpty()) {
+      return List.of();
+    }
+    if (nonEmpty.size() == 1) {
+      return nonEmpty.get(0);
+    }
+    if (nonEmpty.size() == 2) {
+      return mergeSorted(nonEmpty.get(0), nonEmpty.get(1));
+    }
+    PriorityQueue<Cursor> heap = new PriorityQueue<>(nonEmpty.size());
+    for (int r = 0; r < nonEmpty.size(); r++) {
+      heap.add(new Cursor(nonEmpty.get(r), r));
+    }
+    List<PhotoItem> merged = new ArrayList<>(total);
+    while (!heap.isEmpty()) {
+      Cursor cursor = heap.poll();
+      merged.add(cursor.head);
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    return merged;
+  }
+
+  private static final class Cursor implements Comparable<Cursor> {
+    private final List<PhotoItem> run;
+    private final int order;
+    private int index;
+    private PhotoItem head;
+
+    private Cursor(List<PhotoItem> run, int order) {
+      this.run = run;
+      this.order = order;
+      this.head = run.get(0);
+    }
+
+    private boolean advance() {
+      if (++index >= run.size()) {
+        return false;
+      }
+      head = run.get(index);
+      return true;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      int byPhoto = MOST_RECENT.compare(head, other.head);
+      return byPhoto != 0 ? byPhoto : Integer.compare(order, other.order);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package org.example.ui.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Table de partage dont les entrees disparaissent avec la derniere photo qui les utilise: cle et
+ * valeur ne sont tenues que faiblement. Une bibliotheque remplacee, un scan abandonne ou un dossier
+ * retire ne restent donc pas en memoire pour toute la vie du processus.
+ *
+ * <p>La cle doit etre tenue par la valeur (ou etre la valeur) pour que l'entree vive aussi
+ * longtemps qu'elle. Les acces sont repartis sur plusieurs verrous pour les threads du scan.
+ */
+final class WeakCache<K, V> {
+  private static final int STRIPES = 16;
+
+  private final Map<K, WeakReference<V>>[] stripes;
+
+  @SuppressWarnings("unchecked")
+  WeakCache() {
+    stripes = new Map[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new WeakHashMap<>();
+    }
+  }
+
+  /** Valeur partagee de {@code key}, ou {@code null}. */
+  V get(K key) {
+    Map<K, WeakReference<V>> stripe = stripe(key);
+    synchronized (stripe) {
+      WeakReference<V> ref = stripe.get(key);
+      return ref == null ? null : ref.get();
+    }
+  }
+
+  /** Valeur deja partagee pour {@code key}, sinon {@code value} qui le devient. */
+  V putIfAbsent(K key, V value) {
+    Map<K, WeakReference<V>> stripe = stripe(key);
+    synchronized (stripe) {
+      WeakReference<V> ref = stripe.get(key);
+      V known = ref == null ? null : ref.get();
+      if (known != null) {
+        return known;
+      }
+      // Sans retrait, put garderait l'ancienne cle, qui n'est peut-etre plus tenue par personne
+      stripe.remove(key);
+      stripe.put(key, new WeakReference<>(value));
+      return value;
+    }
+  }
+
+  /** Comme {@link #putIfAbsent}, la valeur n'etant calculee qu'en cas d'absence (hors verrou). */
+  V computeIfAbsent(K key, Function<? super K, ? extends V> compute) {
+    V known = get(key);
+    return known != null ? known : putIfAbsent(key, compute.apply(key));
+  }
+
+  /** Partage de la valeur elle-meme: {@code intern(a) == intern(b)} si {@code a.equals(b)}. */
+  static <T> T intern(WeakCache<T, T> cache, T value) {
+    return cache.putIfAbsent(value, value);
+  }
+
+  /** Entrees encore presentes (diagnostic; peut compter des valeurs en cours de collecte). */
+  int size() {
+    int size = 0;
+    for (Map<K, WeakReference<V>> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  private Map<K, WeakReference<V>> stripe(K key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+  }
+}
@@ -0,0 +1,153 @@
+package org.example.ui.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
+import org.example.ui.service.PhotoLibraryService.AlbumInfo;
+
+/**
+ * Albums de la bibliotheque tenus a jour photo par photo: nombre de membres et couverture (le
+ * premier membre dans l'ordre d'affichage, donc le plus recent). Seule la sortie d'une couverture
+ * oblige a relire les membres de son album, et seulement de celui-la.
+ *
+ * <p>Etat de l'ecrivain, non synchronise; {@link #view(Function)} fournit la liste figee publiee
+ * avec un snapshot.
+ */
+final class AlbumIndex {
+  private final Map<String, Album> albums = new TreeMap<>();
+  private final Set<String> lostCovers = new HashSet<>();
+  private List<AlbumInfo> view = List.of();
+  private boolean dirty;
+
+  private static final class Album {
+    private final String name;
+    private int count;
+    private PhotoItem cover;
+
+    private Album(String name) {
+      this.name = name;
+    }
+  }
+
+  static AlbumIndex of(Collection<PhotoItem> items) {
+    AlbumIndex index = new AlbumIndex();
+    items.forEach(index::add);
+    return index;
+  }
+
+  void add(PhotoItem item) {
+    forEachAlbum(
+        item,
+        (key, name) -> {
+          Album album = albums.computeIfAbsent(key, k -> new Album(name));
+          album.count++;
+          if (!lostCovers.contains(key)
+              && (album.cover == null
+                  || PhotoOrdering.MOST_RECENT.compare(item, album.cover) < 0)) {
+            album.cover = item;
+          }
+        });
+    dirty = true;
+  }
+
+  void remove(PhotoItem item) {
+    forEachAlbum(
+        item,
+        (key, name) -> {
+          Album album = albums.get(key);
+          if (album == null) {
+            return;
+          }
+          if (--album.count == 0) {
+            albums.remove(key);
+            lostCovers.remove(key);
+          } else if (album.cover == item) {
+            album.cover = null;
+            lostCovers.add(key);
+          }
+        });
+    dirty = true;
+  }
+
+  void replace(PhotoItem previous, PhotoItem next) {
+    // Cas courant (favori): memes albums, meme place dans l'ordre; la couverture suit la photo
+    if (previous.normalizedAlbums().equals(next.normalizedAlbums())
+        && PhotoOrdering.MOST_RECENT.compare(previous, next) == 0) {
+      forEachAlbum(
+          previous,
+          (key, name) -> {
+            Album album = albums.get(key);
+            if (album != null && album.cover == previous) {
+              album.cover = next;
+            }
+          });
+      dirty = true;
+      return;
+    }
+    remove(previous);
+    add(next);
+  }
+
+  /**
+   * Liste triee par nom, recalculee seulement apres une modification. {@code members} donne les
+   * photos d'un album (cle normalisee) pour retrouver une couverture perdue.
+   */
+  List<AlbumInfo> view(Function<String, List<PhotoItem>> members) {
+    for (String key : lostCovers) {
+      Album album = albums.get(key);
+      if (album == null) {
+        continue;
+      }
+      for (PhotoItem member : members.apply(key)) {
+        if (album.cover == null || PhotoOrdering.MOST_RECENT.compare(member, album.cover) < 0) {
+          album.cover = member;
+        }
+      }
+    }
+    lostCovers.clear();
+    if (dirty) {
+      List<AlbumInfo> infos = new ArrayList<>(albums.size());
+      for (Album album : albums.values()) {
+        infos.add(
+            new AlbumInfo(
+                album.name,
+                album.count,
+                album.cover == null ? null : album.cover.date(),
+                album.cover));
+      }
+      view = List.copyOf(infos);
+      dirty = false;
+    }
+    return view;
+  }
+
+  /** Albums non vides de la photo, une fois chacun, avec leur cle normalisee. */
+  private static void forEachAlbum(PhotoItem item, AlbumVisitor visitor) {
+    List<String> names = item.albums();
+    if (names.isEmpty()) {
+      return;
+    }
+    Set<String> seen = names.size() > 1 ? new HashSet<>() : null;
+    for (String name : names) {
+      if (name == null || name.isBlank()) {
+        continue;
+      }
+      String key = name.toLowerCase(Locale.ROOT);
+      if (seen == null || seen.add(key)) {
+        visitor.visit(key, name);
+      }
+    }
+  }
+
+  private interface AlbumVisitor {
+    void visit(String key, String name);
+  }
+}
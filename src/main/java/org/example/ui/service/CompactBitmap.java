@@ -0,0 +1,332 @@
+package org.example.ui.service;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble d'entiers positifs immuable, compresse a la maniere de Roaring: les valeurs sont
+ * groupees par blocs de 65536 (16 bits de poids fort), chaque bloc etant un tableau trie s'il est
+ * creux ou une table de bits s'il est dense. Cardinalite et selection sautent les blocs entiers;
+ * {@link #with} ne recopie que le bloc touche.
+ */
+final class CompactBitmap {
+  private static final int ARRAY_MAX = 4096;
+  private static final int WORDS = 1024;
+  static final CompactBitmap EMPTY = new CompactBitmap(new char[0], new Container[0], 0);
+
+  private final char[] keys;
+  private final Container[] containers;
+  private final int cardinality;
+
+  private CompactBitmap(char[] keys, Container[] containers, int cardinality) {
+    this.keys = keys;
+    this.containers = containers;
+    this.cardinality = cardinality;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  int cardinality() {
+    return cardinality;
+  }
+
+  boolean contains(int value) {
+    int index = Arrays.binarySearch(keys, high(value));
+    return index >= 0 && containers[index].contains(low(value));
+  }
+
+  /** Plus petite valeur {@code >= from}, ou -1. */
+  int next(int from) {
+    if (from < 0) {
+      from = 0;
+    }
+    int index = Arrays.binarySearch(keys, high(from));
+    if (index >= 0) {
+      int found = containers[index].next(low(from));
+      if (found >= 0) {
+        return (keys[index] << 16) | found;
+      }
+      index++;
+    } else {
+      index = -index - 1;
+    }
+    return index < keys.length ? (keys[index] << 16) | containers[index].next(0) : -1;
+  }
+
+  /** Valeur de rang {@code rank} (la premiere a le rang 0), ou -1. */
+  int select(int rank) {
+    if (rank < 0 || rank >= cardinality) {
+      return -1;
+    }
+    int remaining = rank;
+    for (int i = 0; i < keys.length; i++) {
+      int size = containers[i].cardinality();
+      if (remaining < size) {
+        return (keys[i] << 16) | containers[i].select(remaining);
+      }
+      remaining -= size;
+    }
+    return -1;
+  }
+
+  /**
+   * Copie avec {@code value} present ou absent; seuls le bloc concerne et l'index sont recopies.
+   */
+  CompactBitmap with(int value, boolean present) {
+    if (contains(value) == present) {
+      return this;
+    }
+    char key = high(value);
+    int index = Arrays.binarySearch(keys, key);
+    if (index < 0) {
+      int insert = -index - 1;
+      char[] newKeys = new char[keys.length + 1];
+      Container[] newContainers = new Container[containers.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insert);
+      System.arraycopy(containers, 0, newContainers, 0, insert);
+      newKeys[insert] = key;
+      newContainers[insert] = new ArrayContainer(new char[] {low(value)});
+      System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+      System.arraycopy(containers, insert, newContainers, insert + 1, keys.length - insert);
+      return new CompactBitmap(newKeys, newContainers, cardinality + 1);
+    }
+    Container updated = containers[index].with(low(value), present);
+    if (updated == null) {
+      char[] newKeys = new char[keys.length - 1];
+      Container[] newContainers = new Container[containers.length - 1];
+      System.arraycopy(keys, 0, newKeys, 0, index);
+      System.arraycopy(containers, 0, newContainers, 0, index);
+      System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+      System.arraycopy(containers, index + 1, newContainers, index, keys.length - index - 1);
+      return new CompactBitmap(newKeys, newContainers, cardinality - 1);
+    }
+    Container[] newContainers = containers.clone();
+    newContainers[index] = updated;
+    return new CompactBitmap(keys, newContainers, cardinality + (present ? 1 : -1));
+  }
+
+  private static char high(int value) {
+    return (char) (value >>> 16);
+  }
+
+  private static char low(int value) {
+    return (char) value;
+  }
+
+  /** Construction par valeurs croissantes, en un passage. */
+  static final class Builder {
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int count;
+    private int cardinality;
+    private int currentKey = -1;
+    private char[] values = new char[16];
+    private long[] words;
+    private int size;
+
+    private Builder() {}
+
+    void add(int value) {
+      int key = value >>> 16;
+      if (key != currentKey) {
+        flush();
+        currentKey = key;
+      }
+      char low = low(value);
+      if (words != null) {
+        words[low >>> 6] |= 1L << low;
+      } else if (size < ARRAY_MAX) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = low;
+      } else {
+        // Bloc devenu dense: passage en table de bits
+        words = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+          words[values[i] >>> 6] |= 1L << values[i];
+        }
+        words[low >>> 6] |= 1L << low;
+      }
+      size++;
+    }
+
+    CompactBitmap build() {
+      flush();
+      return count == 0
+          ? EMPTY
+          : new CompactBitmap(
+              Arrays.copyOf(keys, count), Arrays.copyOf(containers, count), cardinality);
+    }
+
+    private void flush() {
+      if (size == 0) {
+        return;
+      }
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+        containers = Arrays.copyOf(containers, count * 2);
+      }
+      keys[count] = (char) currentKey;
+      containers[count] =
+          words != null
+              ? new BitmapContainer(words, size)
+              : new ArrayContainer(Arrays.copyOf(values, size));
+      count++;
+      cardinality += size;
+      words = null;
+      size = 0;
+    }
+  }
+
+  /** Bloc de 65536 valeurs possibles; {@code with} rend {@code null} pour un bloc vide. */
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    /** Plus petite valeur {@code >= from} du bloc, ou -1. */
+    abstract int next(int from);
+
+    abstract int select(int rank);
+
+    abstract Container with(char value, boolean present);
+  }
+
+  private static final class ArrayContainer extends Container {
+    private final char[] values;
+
+    private ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    @Override
+    int cardinality() {
+      return values.length;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    int next(int from) {
+      int index = Arrays.binarySearch(values, (char) from);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < values.length ? values[index] : -1;
+    }
+
+    @Override
+    int select(int rank) {
+      return values[rank];
+    }
+
+    @Override
+    Container with(char value, boolean present) {
+      int index = Arrays.binarySearch(values, value);
+      if (present) {
+        int insert = -index - 1;
+        if (values.length == ARRAY_MAX) {
+          long[] words = new long[WORDS];
+          for (char existing : values) {
+            words[existing >>> 6] |= 1L << existing;
+          }
+          words[value >>> 6] |= 1L << value;
+          return new BitmapContainer(words, values.length + 1);
+        }
+        char[] grown = new char[values.length + 1];
+        System.arraycopy(values, 0, grown, 0, insert);
+        grown[insert] = value;
+        System.arraycopy(values, insert, grown, insert + 1, values.length - insert);
+        return new ArrayContainer(grown);
+      }
+      if (values.length == 1) {
+        return null;
+      }
+      char[] shrunk = new char[values.length - 1];
+      System.arraycopy(values, 0, shrunk, 0, index);
+      System.arraycopy(values, index + 1, shrunk, index, values.length - index - 1);
+      return new ArrayContainer(shrunk);
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private final int cardinality;
+
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int next(int from) {
+      int word = from >>> 6;
+      if (word >= WORDS) {
+        return -1;
+      }
+      long bits = words[word] & (-1L << from);
+      while (true) {
+        if (bits != 0) {
+          return word * 64 + Long.numberOfTrailingZeros(bits);
+        }
+        if (++word == WORDS) {
+          return -1;
+        }
+        bits = words[word];
+      }
+    }
+
+    @Override
+    int select(int rank) {
+      int remaining = rank;
+      for (int i = 0; i < WORDS; i++) {
+        int bits = Long.bitCount(words[i]);
+        if (remaining < bits) {
+          long word = words[i];
+          for (int j = 0; j < remaining; j++) {
+            word &= word - 1;
+          }
+          return i * 64 + Long.numberOfTrailingZeros(word);
+        }
+        remaining -= bits;
+      }
+      return -1;
+    }
+
+    @Override
+    Container with(char value, boolean present) {
+      if (!present && cardinality - 1 <= ARRAY_MAX) {
+        char[] values = new char[cardinality - 1];
+        int count = 0;
+        for (int v = next(0); v >= 0; v = next(v + 1)) {
+          if (v != value) {
+            values[count++] = (char) v;
+          }
+        }
+        return new ArrayContainer(values);
+      }
+      long[] copy = words.clone();
+      if (present) {
+        copy[value >>> 6] |= 1L << value;
+      } else {
+        copy[value >>> 6] &= ~(1L << value);
+      }
+      return new BitmapContainer(copy, cardinality + (present ? 1 : -1));
+    }
+  }
+}
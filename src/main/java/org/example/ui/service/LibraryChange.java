@@ -0,0 +1,90 @@
+package org.example.ui.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.ui.model.PhotoItem;
+
+/**
+ * Changement publie par {@link PhotoLibraryService} pour chaque nouvelle version de la
+ * bibliotheque: photos ajoutees, retirees (etat avant le changement) et modifiees, identifiees par
+ * leur chemin. {@code reset} signale un remplacement complet, sans detail. Des changements
+ * consecutifs se fusionnent avec {@link #then}.
+ */
+public record LibraryChange(
+    long previousVersion,
+    long version,
+    List<PhotoItem> added,
+    List<PhotoItem> removed,
+    List<Update> updated,
+    boolean reset) {
+
+  /** Photo modifiee sur place: meme chemin, etat d'avant et d'apres. */
+  public record Update(PhotoItem previous, PhotoItem current) {}
+
+  static LibraryChange reset(long previousVersion, long version) {
+    return new LibraryChange(previousVersion, version, List.of(), List.of(), List.of(), true);
+  }
+
+  /**
+   * Changement equivalent a {@code this} suivi de {@code next}: une photo ajoutee puis retiree
+   * disparait, retiree puis ajoutee devient une modification.
+   */
+  public LibraryChange then(LibraryChange next) {
+    if (reset || next.reset) {
+      return reset(previousVersion, next.version);
+    }
+    Map<Path, Entry> entries = new LinkedHashMap<>();
+    for (PhotoItem item : added) {
+      entries.put(item.path(), new Entry(null, item));
+    }
+    for (PhotoItem item : removed) {
+      entries.put(item.path(), new Entry(item, null));
+    }
+    for (Update update : updated) {
+      entries.put(update.current().path(), new Entry(update.previous(), update.current()));
+    }
+    for (PhotoItem item : next.added) {
+      Entry known = entries.get(item.path());
+      entries.put(item.path(), new Entry(known == null ? null : known.before, item));
+    }
+    for (PhotoItem item : next.removed) {
+      Entry known = entries.get(item.path());
+      if (known != null && known.before == null) {
+        entries.remove(item.path());
+      } else {
+        entries.put(item.path(), new Entry(known == null ? item : known.before, null));
+      }
+    }
+    for (Update update : next.updated) {
+      Path path = update.current().path();
+      Entry known = entries.get(path);
+      entries.put(
+          path, new Entry(known == null ? update.previous() : known.before, update.current()));
+    }
+    List<PhotoItem> allAdded = new ArrayList<>();
+    List<PhotoItem> allRemoved = new ArrayList<>();
+    List<Update> allUpdated = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (entry.before == null) {
+        allAdded.add(entry.after);
+      } else if (entry.after == null) {
+        allRemoved.add(entry.before);
+      } else {
+        allUpdated.add(new Update(entry.before, entry.after));
+      }
+    }
+    return new LibraryChange(
+        previousVersion,
+        next.version,
+        List.copyOf(allAdded),
+        List.copyOf(allRemoved),
+        List.copyOf(allUpdated),
+        false);
+  }
+
+  /** Etat d'une photo avant le premier et apres le dernier changement ({@code null}: absente). */
+  private record Entry(PhotoItem before, PhotoItem after) {}
+}
@@ -0,0 +1,154 @@
+package org.example.ui.service;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import org.example.ui.model.DirectoryTrie;
+import org.example.ui.model.PhotoItem;
+
+/**
+ * Table de hachage chemin -> identifiant ({@link SearchIndex}), a adressage ouvert sur des {@code
+ * int}. La cle est le couple (repertoire partage, nom de fichier) d'un {@link PhotoItem}: ni {@code
+ * Path} ni objet par entree. Les pages sont copiees a l'ecriture: {@link #freeze()} donne une vue
+ * figee pour un snapshot et l'ecrivain ne recopie ensuite que les pages qu'il modifie.
+ *
+ * <p>Non synchronisee; les vues figees se lisent sans verrou.
+ */
+final class PathTable {
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int EMPTY = -1;
+  private static final int DELETED = -2;
+
+  private int[][] pages;
+  private boolean[] owned;
+  private int mask;
+  private int size;
+  private int used;
+
+  PathTable() {
+    allocate(PAGE_SIZE);
+  }
+
+  void put(PhotoItem item, int id, IntFunction<PhotoItem> docs) {
+    if ((used + 1) * 2 > mask + 1) {
+      // Trop d'emplacements occupes (ou marques supprimes): on rehache
+      rehash(size * 4 > mask + 1 ? (mask + 1) * 2 : mask + 1, docs);
+    }
+    int slot = hash(item.directory(), item.fileName()) & mask;
+    while (true) {
+      int value = read(pages, slot);
+      if (value < 0) {
+        write(slot, id);
+        size++;
+        if (value == EMPTY) {
+          used++;
+        }
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  void remove(PhotoItem item, int id) {
+    int slot = hash(item.directory(), item.fileName()) & mask;
+    while (true) {
+      int value = read(pages, slot);
+      if (value == EMPTY) {
+        return;
+      }
+      if (value == id) {
+        write(slot, DELETED);
+        size--;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /** Etat courant, fige: les ecritures suivantes recopient les pages touchees. */
+  Frozen freeze() {
+    Arrays.fill(owned, false);
+    return new Frozen(pages.clone(), mask);
+  }
+
+  /** Vue en lecture seule d'un snapshot. */
+  static final class Frozen {
+    private final int[][] pages;
+    private final int mask;
+
+    private Frozen(int[][] pages, int mask) {
+      this.pages = pages;
+      this.mask = mask;
+    }
+
+    /** Identifiant de la photo {@code fileName} dans {@code directory}, ou -1. */
+    int find(DirectoryTrie.Node directory, String fileName, IntFunction<PhotoItem> docs) {
+      int slot = hash(directory, fileName) & mask;
+      while (true) {
+        int value = read(pages, slot);
+        if (value == EMPTY) {
+          return -1;
+        }
+        if (value >= 0) {
+          PhotoItem item = docs.apply(value);
+          if (item.directory() == directory && item.fileName().equals(fileName)) {
+            return value;
+          }
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+  }
+
+  private void rehash(int capacity, IntFunction<PhotoItem> docs) {
+    int[][] previous = pages;
+    int previousCapacity = mask + 1;
+    allocate(capacity);
+    for (int slot = 0; slot < previousCapacity; slot++) {
+      int id = read(previous, slot);
+      if (id >= 0) {
+        PhotoItem item = docs.apply(id);
+        int target = hash(item.directory(), item.fileName()) & mask;
+        while (read(pages, target) != EMPTY) {
+          target = (target + 1) & mask;
+        }
+        write(target, id);
+        size++;
+        used++;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    int pageCount = Math.max(1, capacity >>> PAGE_BITS);
+    pages = new int[pageCount][];
+    owned = new boolean[pageCount];
+    for (int p = 0; p < pageCount; p++) {
+      pages[p] = new int[PAGE_SIZE];
+      Arrays.fill(pages[p], EMPTY);
+      owned[p] = true;
+    }
+    mask = pageCount * PAGE_SIZE - 1;
+    size = 0;
+    used = 0;
+  }
+
+  private void write(int slot, int value) {
+    int page = slot >>> PAGE_BITS;
+    if (!owned[page]) {
+      pages[page] = pages[page].clone();
+      owned[page] = true;
+    }
+    pages[page][slot & (PAGE_SIZE - 1)] = value;
+  }
+
+  private static int read(int[][] pages, int slot) {
+    return pages[slot >>> PAGE_BITS][slot & (PAGE_SIZE - 1)];
+  }
+
+  static int hash(DirectoryTrie.Node directory, String fileName) {
+    int h = System.identityHashCode(directory) * 31 + fileName.hashCode();
+    // Brassage des bits faibles, utilises par le masque
+    return h ^ (h >>> 16) ^ (h >>> 7);
+  }
+}
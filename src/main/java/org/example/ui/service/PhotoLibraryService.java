@@ -3,162 +3,585 @@ package org.example.ui.service;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import org.example.ui.model.DirectoryTrie;
 import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Bibliotheque en memoire. Les lectures ({@link #filter}, {@link #listAlbums}, {@link #contains},
+ * {@link #all}) travaillent sans verrou sur le {@link Snapshot} courant; les ecritures sont
+ * serialisees, construisent un nouvel etat et le publient d'un coup. Une requete de l'interface
+ * n'attend donc jamais la fin d'un import.
+ */
 public class PhotoLibraryService {
   private static final Logger log = LoggerFactory.getLogger(PhotoLibraryService.class);
-  private static final Comparator<PhotoItem> MOST_RECENT =
-      Comparator.comparing(PhotoItem::date)
-          .reversed()
-          .thenComparing(PhotoItem::title, String.CASE_INSENSITIVE_ORDER);
-  private final List<PhotoItem> items;
+  // En dessous, un parcours lineaire coute moins que l'index
+  private static final int MIN_INDEXED_SEARCH = 256;
+  private static final int RECENT_MONTHS = 3;
+  // Au-dela, les bitmaps des presets sont reconstruits plutot que retouches bit a bit
+  private static final int MAX_BITMAP_PATCHES = 64;
+
+  private volatile Snapshot published;
+  // Etat des ecrivains, sous le verrou de l'instance
+  private SearchIndex searchIndex = new SearchIndex();
+  private AlbumIndex albumIndex = new AlbumIndex();
+  private final List<Consumer<LibraryChange>> listeners = new CopyOnWriteArrayList<>();
 
   public PhotoLibraryService() {
-    this.items = new ArrayList<>();
+    this.published =
+        new Snapshot(
+            0, List.of(), searchIndex.view(), List.of(), CompactBitmap.EMPTY, CompactBitmap.EMPTY);
     log.info("PhotoLibraryService initialise sans contenu; en attente d'import ou de scan");
   }
 
-  public synchronized List<PhotoItem> all() {
-    return List.copyOf(items);
+  /**
+   * Etat publie de la bibliotheque: photos triees par {@link PhotoOrdering#MOST_RECENT}, index de
+   * recherche et albums correspondants. Jamais modifie; chaque ecriture publie un nouveau snapshot
+   * de version superieure.
+   */
+  public static final class Snapshot {
+    private final long version;
+    private final List<PhotoItem> items;
+    private final SearchIndex.View search;
+    private final List<AlbumInfo> albums;
+    // Positions dans items des favoris et des photos rangees dans un album
+    private final CompactBitmap favorites;
+    private final CompactBitmap inAlbums;
+
+    private Snapshot(
+        long version,
+        List<PhotoItem> items,
+        SearchIndex.View search,
+        List<AlbumInfo> albums,
+        CompactBitmap favorites,
+        CompactBitmap inAlbums) {
+      this.version = version;
+      this.items = items;
+      this.search = search;
+      this.albums = albums;
+      this.favorites = favorites;
+      this.inAlbums = inAlbums;
+    }
+
+    public long version() {
+      return version;
+    }
+
+    /** Liste non modifiable, partagee sans copie. */
+    public List<PhotoItem> items() {
+      return items;
+    }
+
+    public int size() {
+      return items.size();
+    }
+
+    public boolean isEmpty() {
+      return items.isEmpty();
+    }
   }
 
-  public synchronized List<PhotoItem> filter(String search, Filter preset) {
-    String normalized = search == null ? "" : search.trim().toLowerCase(Locale.ROOT);
-    return items.stream()
-        .filter(
-            item ->
-                switch (preset) {
-                  case FAVORITES -> item.favorite();
-                  case RECENTS -> item.date().isAfter(LocalDate.now().minusMonths(3));
-                  case ALBUMS -> !item.albums().isEmpty();
-                  case ALL -> true;
-                })
-        .filter(
-            item ->
-                normalized.isEmpty()
-                    || item.normalizedTitle().contains(normalized)
-                    || item.normalizedTags().stream().anyMatch(tag -> tag.contains(normalized))
-                    || item.normalizedAlbums().stream()
-                        .anyMatch(album -> album.contains(normalized)))
-        .toList();
+  /**
+   * Ecoute les changements de la bibliotheque: un {@link LibraryChange} par snapshot publie, appele
+   * sur le thread de l'ecriture et sous son verrou. L'ecouteur doit donc rendre la main vite (par
+   * exemple en reportant le travail sur le thread JavaFX).
+   */
+  public void addChangeListener(Consumer<LibraryChange> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeChangeListener(Consumer<LibraryChange> listener) {
+    listeners.remove(listener);
+  }
+
+  public Snapshot snapshot() {
+    return published;
+  }
+
+  /** Photos du snapshot courant, sans copie (liste non modifiable). */
+  public List<PhotoItem> all() {
+    return published.items();
+  }
+
+  public boolean isEmpty() {
+    return published.isEmpty();
+  }
+
+  public List<PhotoItem> filter(String search, Filter preset) {
+    return query(search, preset, 0, Integer.MAX_VALUE, 0).items();
+  }
+
+  /**
+   * Une page du resultat de {@link #filter}: les photos {@code [offset, offset + limit)} et les
+   * chemins des {@code prefetch} suivantes. Les presets ne parcourent que leurs positions (bitmap
+   * des favoris ou des photos en album, prefixe des photos recentes), la recherche texte que les
+   * candidats de l'index. Le parcours s'arrete des que la page et le prefetch sont remplis; sans
+   * recherche le total est une cardinalite, sinon il n'est calcule qu'a la demande ({@link
+   * Page#totalCount()}), en comptant sans rien copier.
+   */
+  public Page query(String search, Filter preset, int offset, int limit, int prefetch) {
+    Snapshot snapshot = published;
+    String normalized = normalizeSearch(search);
+    int from = Math.max(0, offset);
+    int pageEnd = (int) Math.min(Integer.MAX_VALUE, (long) from + Math.max(0, limit));
+    int end = (int) Math.min(Integer.MAX_VALUE, (long) pageEnd + Math.max(0, prefetch));
+    LocalDate recentAfter = LocalDate.now().minusMonths(RECENT_MONTHS);
+    if (!normalized.isEmpty()) {
+      List<PhotoItem> candidates =
+          snapshot.search.candidates(
+              normalized, Math.max(MIN_INDEXED_SEARCH, snapshot.size() / 8), preset);
+      if (candidates != null) {
+        // Candidats de l'index verifies puis remis dans l'ordre d'affichage
+        candidates.sort(PhotoOrdering.MOST_RECENT);
+        return scan(
+            snapshot.version(),
+            candidates,
+            candidates.size(),
+            null,
+            matcher(normalized, preset, recentAfter),
+            from,
+            pageEnd,
+            end);
+      }
+    }
+    List<PhotoItem> items = snapshot.items();
+    int limitPosition = preset == Filter.RECENTS ? recentCount(items, recentAfter) : items.size();
+    CompactBitmap only =
+        switch (preset) {
+          case FAVORITES -> snapshot.favorites;
+          case ALBUMS -> snapshot.inAlbums;
+          case ALL, RECENTS -> null;
+        };
+    Predicate<PhotoItem> textMatch =
+        normalized.isEmpty() ? null : matcher(normalized, Filter.ALL, recentAfter);
+    return scan(snapshot.version(), items, limitPosition, only, textMatch, from, pageEnd, end);
+  }
+
+  /** Page d'un resultat, lue sur un seul snapshot (voir {@link #query}). */
+  public static final class Page {
+    private final long version;
+    private final List<PhotoItem> items;
+    private final List<Path> prefetch;
+    private final IntSupplier counter;
+    private final int seen;
+    private volatile int totalCount;
+
+    private Page(
+        long version,
+        List<PhotoItem> items,
+        List<Path> prefetch,
+        int seen,
+        int totalCount,
+        IntSupplier counter) {
+      this.version = version;
+      this.items = items;
+      this.prefetch = prefetch;
+      this.seen = seen;
+      this.totalCount = totalCount;
+      this.counter = counter;
+    }
+
+    /** Version du snapshot interroge. */
+    public long version() {
+      return version;
+    }
+
+    public List<PhotoItem> items() {
+      return items;
+    }
+
+    /** Chemins des photos qui suivent la page, a precharger. */
+    public List<Path> prefetch() {
+      return prefetch;
+    }
+
+    /**
+     * Vrai si le total est deja connu sans parcours: cardinalite, ou resultat epuise par la page.
+     */
+    public boolean isCounted() {
+      return totalCount >= 0;
+    }
+
+    /** Resultats deja vus (page et prefetch compris): borne basse du total. */
+    public int seenCount() {
+      return seen;
+    }
+
+    /**
+     * Nombre total de resultats, calcule au premier appel puis memorise. Peut parcourir toute la
+     * liste si {@link #isCounted()} est faux: a appeler hors du thread JavaFX dans ce cas.
+     */
+    public int totalCount() {
+      if (totalCount < 0) {
+        totalCount = counter.getAsInt();
+      }
+      return totalCount;
+    }
+  }
+
+  private static String normalizeSearch(String search) {
+    return search == null ? "" : search.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Parcourt {@code items} jusqu'a {@code limit}, restreint aux positions de {@code only} s'il est
+   * donne, et retient les elements acceptes par {@code match} ({@code null}: tous).
+   */
+  private static Page scan(
+      long version,
+      List<PhotoItem> items,
+      int limit,
+      CompactBitmap only,
+      Predicate<PhotoItem> match,
+      int from,
+      int pageEnd,
+      int end) {
+    int matched = 0;
+    int position = only == null ? 0 : only.next(0);
+    if (match == null) {
+      // Chaque position retenue est un resultat: saut direct au debut de la page
+      int total = only == null ? limit : only.cardinality();
+      if (from >= total) {
+        return new Page(version, List.of(), List.of(), total, total, () -> total);
+      }
+      matched = from;
+      position = only == null ? from : only.select(from);
+    }
+    List<PhotoItem> pageItems = new ArrayList<>();
+    List<Path> next = new ArrayList<>();
+    while (position >= 0 && position < limit && matched < end) {
+      PhotoItem item = items.get(position);
+      if (match == null || match.test(item)) {
+        if (matched >= pageEnd) {
+          next.add(item.path());
+        } else if (matched >= from) {
+          pageItems.add(item);
+        }
+        matched++;
+      }
+      position = only == null ? position + 1 : only.next(position + 1);
+    }
+    IntSupplier counter;
+    int known = -1;
+    if (match == null) {
+      int total = only == null ? limit : only.cardinality();
+      known = total;
+      counter = () -> total;
+    } else if (position < 0 || position >= limit) {
+      // Liste epuisee avant de remplir la page: le total est deja compte
+      known = matched;
+      int total = matched;
+      counter = () -> total;
+    } else {
+      int matchedSoFar = matched;
+      int resumeAt = position;
+      counter =
+          () -> {
+            int count = matchedSoFar;
+            for (int p = resumeAt;
+                p >= 0 && p < limit;
+                p = only == null ? p + 1 : only.next(p + 1)) {
+              if (match.test(items.get(p))) {
+                count++;
+              }
+            }
+            return count;
+          };
+    }
+    return new Page(
+        version,
+        Collections.unmodifiableList(pageItems),
+        List.copyOf(next),
+        matched,
+        known,
+        counter);
+  }
+
+  /** Nombre de photos posterieures a {@code after}: un prefixe, la liste etant triee par date. */
+  private static int recentCount(List<PhotoItem> items, LocalDate after) {
+    int low = 0;
+    int high = items.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (items.get(middle).date().isAfter(after)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static Predicate<PhotoItem> matcher(
+      String normalized, Filter preset, LocalDate recentAfter) {
+    Predicate<PhotoItem> presetMatch =
+        item ->
+            switch (preset) {
+              case FAVORITES -> item.favorite();
+              case RECENTS -> item.date().isAfter(recentAfter);
+              case ALBUMS -> !item.albums().isEmpty();
+              case ALL -> true;
+            };
+    Predicate<PhotoItem> textMatch = item -> matchesText(item, normalized);
+    return preset == Filter.ALL ? textMatch : presetMatch.and(textMatch);
+  }
+
+  /** Recherche texte sur titre, tags et albums; des boucles simples, rien n'est alloue. */
+  private static boolean matchesText(PhotoItem item, String normalized) {
+    if (item.normalizedTitle().contains(normalized)) {
+      return true;
+    }
+    for (String tag : item.normalizedTags()) {
+      if (tag.contains(normalized)) {
+        return true;
+      }
+    }
+    for (String album : item.normalizedAlbums()) {
+      if (album.contains(normalized)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public synchronized void replaceAll(List<PhotoItem> newItems) {
-    items.clear();
+    List<PhotoItem> items = new ArrayList<>();
     if (newItems != null) {
+      // Le scan livre une liste deja triee: verification lineaire plutot qu'un nouveau tri
       items.addAll(enrichAlbums(newItems));
-      items.sort(MOST_RECENT);
+      PhotoOrdering.sortIfNeeded(items);
     }
+    searchIndex = SearchIndex.of(items);
+    albumIndex = AlbumIndex.of(items);
+    publish(items, Delta.RESET);
     log.info("Bibliotheque mise a jour: {} elements", items.size());
   }
 
+  /**
+   * Remplace le contenu par des photos sauvegardees, telles quelles: contrairement a {@link
+   * #replaceAll}, aucun album n'est deduit du dossier (une photo retiree de ses albums le reste).
+   */
+  public synchronized void restore(List<PhotoItem> savedItems) {
+    List<PhotoItem> items = new ArrayList<>(savedItems);
+    PhotoOrdering.sortIfNeeded(items);
+    searchIndex = SearchIndex.of(items);
+    albumIndex = AlbumIndex.of(items);
+    publish(items, Delta.RESET);
+    log.info("Bibliotheque rechargee: {} elements", items.size());
+  }
+
   public synchronized AddResult addPhotos(List<PhotoItem> newItems, String albumName) {
     if (newItems == null || newItems.isEmpty()) {
       log.info("Ajout ignore: aucune photo selectionnee");
       return new AddResult(0, 0, Set.of());
     }
     String normalizedAlbum = albumName == null ? "" : albumName.trim();
-    Set<Path> existingPaths = items.stream().map(PhotoItem::path).collect(Collectors.toSet());
+    Snapshot snapshot = published;
+    List<PhotoItem> items = snapshot.items();
+    // Doublons du lot reperes par (repertoire partage, nom): aucun Path construit
+    Set<PathKey> batchPaths = new HashSet<>();
+    // Les photos d'un meme dossier partagent leur liste d'albums: un calcul par liste
+    Map<List<String>, List<String>> enrichedAlbums = new IdentityHashMap<>();
 
     int duplicateCount = 0;
+    List<PhotoItem> accepted = new ArrayList<>(newItems.size());
     Set<String> affectedAlbums = new HashSet<>();
     if (!normalizedAlbum.isBlank()) {
       affectedAlbums.add(normalizedAlbum);
     }
 
     for (PhotoItem candidate : newItems) {
-      if (existingPaths.contains(candidate.path())) {
+      if (snapshot.search.contains(candidate)
+          || !batchPaths.add(new PathKey(candidate.directory(), candidate.fileName()))) {
         duplicateCount++;
         continue;
       }
-      List<String> albums = candidate.albums();
-      if (!normalizedAlbum.isBlank()
-          && candidate.albums().stream()
-              .noneMatch(existing -> existing.equalsIgnoreCase(normalizedAlbum))) {
-        albums = new ArrayList<>(albums);
-        albums.add(normalizedAlbum);
-      }
-      PhotoItem enriched =
-          new PhotoItem(
-              candidate.path(),
-              candidate.title(),
-              candidate.date(),
-              candidate.sizeLabel(),
-              candidate.tags(),
-              albums,
-              candidate.favorite());
-      insertSorted(enriched);
-      existingPaths.add(candidate.path());
-    }
-
-    log.info("Ajout termine: {} doublons ignores, taille finale {}", duplicateCount, items.size());
+      accepted.add(
+          normalizedAlbum.isBlank()
+              ? candidate
+              : candidate.withAlbums(
+                  enrichedAlbums.computeIfAbsent(
+                      candidate.albums(), albums -> withAlbum(albums, normalizedAlbum))));
+    }
+    // Une fusion lineaire plutot qu'une insertion (et un decalage) par photo
+    List<PhotoItem> merged = PhotoOrdering.mergeSorted(items, PhotoOrdering.sortIfNeeded(accepted));
+    if (merged != items) {
+      accepted.forEach(this::indexAdd);
+      publish(merged, new Delta(accepted, List.of(), List.of()));
+    }
+
+    log.info("Ajout termine: {} doublons ignores, taille finale {}", duplicateCount, merged.size());
     return new AddResult(
         newItems.size() - duplicateCount, duplicateCount, Set.copyOf(affectedAlbums));
   }
 
-  public synchronized Set<String> albumNames() {
-    return items.stream()
-        .flatMap(item -> item.albums().stream())
-        .collect(
-            Collectors.toCollection(() -> new java.util.TreeSet<>(String.CASE_INSENSITIVE_ORDER)));
+  /**
+   * Applique un diff de scan sans tout remplacer: les chemins retires disparaissent, les photos
+   * connues sont mises a jour en conservant favori, tags et albums, les nouvelles sont inserees.
+   * Seules les photos du diff sont cherchees (index des chemins, puis dichotomie): aucun chemin
+   * n'est construit pour le reste de la bibliotheque.
+   */
+  public synchronized ChangeResult applyChanges(
+      Collection<PhotoItem> upserts, Collection<Path> removals) {
+    Snapshot snapshot = published;
+    List<PhotoItem> items = snapshot.items();
+    // Positions a retirer de la liste: photos supprimees ou deplacees par leur mise a jour
+    BitSet dropped = new BitSet(items.size());
+    Set<Path> removedPaths = new HashSet<>();
+    List<PhotoItem> removedItems = new ArrayList<>();
+    if (removals != null) {
+      for (Path path : removals) {
+        PhotoItem current = snapshot.search.find(path);
+        if (current != null && removedPaths.add(path)) {
+          dropped.set(positionOf(items, current));
+          indexRemove(current);
+          removedItems.add(current);
+        }
+      }
+    }
+    Map<Path, PhotoItem> incoming = new LinkedHashMap<>();
+    if (upserts != null) {
+      for (PhotoItem item : upserts) {
+        incoming.put(item.path(), item);
+      }
+    }
+    if (removedItems.isEmpty() && incoming.isEmpty()) {
+      return new ChangeResult(0, 0, 0);
+    }
+
+    List<PhotoItem> reinserted = new ArrayList<>();
+    List<PhotoItem> newcomers = new ArrayList<>();
+    List<LibraryChange.Update> updates = new ArrayList<>();
+    List<PhotoItem> patched = null;
+    for (Map.Entry<Path, PhotoItem> entry : incoming.entrySet()) {
+      PhotoItem current =
+          removedPaths.contains(entry.getKey()) ? null : snapshot.search.find(entry.getKey());
+      if (current == null) {
+        newcomers.add(entry.getValue());
+        continue;
+      }
+      PhotoItem merged = mergeUpdate(current, entry.getValue());
+      int position = positionOf(items, current);
+      indexReplace(current, merged);
+      updates.add(new LibraryChange.Update(current, merged));
+      if (PhotoOrdering.MOST_RECENT.compare(current, merged) == 0) {
+        // Meme titre et meme date: la photo garde sa place
+        if (patched == null) {
+          patched = new ArrayList<>(items);
+        }
+        patched.set(position, merged);
+      } else {
+        dropped.set(position);
+        reinserted.add(merged);
+      }
+    }
+    List<PhotoItem> base = patched == null ? items : patched;
+    List<PhotoItem> kept = base;
+    if (!dropped.isEmpty()) {
+      kept = new ArrayList<>(base.size() - dropped.cardinality());
+      int from = 0;
+      for (int at = dropped.nextSetBit(0); at >= 0; at = dropped.nextSetBit(at + 1)) {
+        kept.addAll(base.subList(from, at));
+        from = at + 1;
+      }
+      kept.addAll(base.subList(from, base.size()));
+    }
+    int removedCount = removedItems.size();
+    int updatedCount = updates.size();
+    int addedCount = newcomers.size();
+    List<PhotoItem> added = enrichAlbums(newcomers);
+    added.forEach(this::indexAdd);
+    reinserted.addAll(added);
+    PhotoOrdering.sortIfNeeded(reinserted);
+
+    publish(PhotoOrdering.mergeSorted(kept, reinserted), new Delta(added, removedItems, updates));
+    log.info(
+        "Bibliotheque mise a jour par diff: {} ajouts, {} mises a jour, {} suppressions",
+        addedCount,
+        updatedCount,
+        removedCount);
+    return new ChangeResult(addedCount, updatedCount, removedCount);
+  }
+
+  public Set<String> albumNames() {
+    Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    for (AlbumInfo album : published.albums) {
+      names.add(album.name());
+    }
+    return names;
   }
 
   // Resume d'un album pour l'affichage
   public record AlbumInfo(String name, int photoCount, LocalDate mostRecentDate, PhotoItem cover) {}
 
-  /** Retourne la liste des albums presents, avec le nombre de photos et une couverture. */
-  public synchronized List<AlbumInfo> listAlbums(String search) {
+  /**
+   * Retourne la liste des albums presents, avec le nombre de photos et une couverture. Sans
+   * recherche, c'est la liste tenue a jour par les ecritures, sans aucun calcul.
+   */
+  public List<AlbumInfo> listAlbums(String search) {
+    List<AlbumInfo> albums = published.albums;
     String normalized = search == null ? "" : search.trim().toLowerCase(Locale.ROOT);
+    if (normalized.isEmpty()) {
+      return albums;
+    }
+    return albums.stream()
+        .filter(info -> info.name().toLowerCase(Locale.ROOT).contains(normalized))
+        .toList();
+  }
 
-    Map<String, List<PhotoItem>> byAlbum =
-        new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  public boolean contains(Path path) {
+    return published.search.find(path) != null;
+  }
 
-    for (PhotoItem item : items) {
-      for (String album : item.albums()) {
-        if (album == null || album.isBlank()) {
-          continue;
-        }
-        byAlbum.computeIfAbsent(album, k -> new ArrayList<>()).add(item);
+  /** Photos situees sous {@code directory}, a toute profondeur, sans construire de chemin. */
+  public List<PhotoItem> photosUnder(Path directory) {
+    DirectoryTrie.Node node = directory == null ? null : DirectoryTrie.shared().find(directory);
+    if (node == null) {
+      return List.of();
+    }
+    List<PhotoItem> result = new ArrayList<>();
+    for (PhotoItem item : published.items) {
+      if (item.directory().isWithin(node)) {
+        result.add(item);
       }
     }
-
-    return byAlbum.entrySet().stream()
-        .map(
-            entry -> {
-              String albumName = entry.getKey();
-              List<PhotoItem> photos = entry.getValue();
-
-              // On recupere la photo la plus recente pour la couverture
-              PhotoItem mostRecent =
-                  photos.stream()
-                      .max(Comparator.comparing(PhotoItem::date))
-                      .orElse(null);
-
-              LocalDate mostRecentDate = mostRecent != null ? mostRecent.date() : null;
-
-              int count = photos.size();
-              return new AlbumInfo(albumName, count, mostRecentDate, mostRecent);
-            })
-        .filter(
-            info ->
-                normalized.isEmpty()
-                    || info.name().toLowerCase(Locale.ROOT).contains(normalized))
-        .toList();
+    return result;
   }
 
-  public synchronized boolean contains(Path path) {
-    return items.stream().anyMatch(item -> item.path().equals(path));
+  /**
+   * Presence de chaque chemin dans la bibliotheque, en une passe sur un meme snapshot: le bit
+   * {@code i} vaut {@code true} si le {@code i}-eme chemin (ordre d'iteration) est connu.
+   */
+  public BitSet containsAll(Collection<Path> paths) {
+    Snapshot snapshot = published;
+    BitSet known = new BitSet(paths.size());
+    int index = 0;
+    for (Path path : paths) {
+      if (snapshot.search.find(path) != null) {
+        known.set(index);
+      }
+      index++;
+    }
+    return known;
   }
 
   public synchronized boolean toggleFavorite(Path path) {
@@ -166,68 +589,194 @@ public class PhotoLibraryService {
       log.warn("Impossible de basculer le favori: chemin null");
       return false;
     }
-    for (int i = 0; i < items.size(); i++) {
-      PhotoItem current = items.get(i);
-      if (current.path().equals(path)) {
-        boolean newStatus = !current.favorite();
-        items.set(
-            i,
-            new PhotoItem(
-                current.path(),
-                current.title(),
-                current.date(),
-                current.sizeLabel(),
-                current.tags(),
-                current.albums(),
-                newStatus));
-        log.info("Statut favori mis a jour pour {}: {}", path.getFileName(), newStatus);
-        return newStatus;
+    PhotoItem current = published.search.find(path);
+    if (current == null) {
+      log.warn("Photo introuvable pour basculer le favori: {}", path);
+      return false;
+    }
+    boolean newStatus = !current.favorite();
+    applyEdits(new Batch().favorite(List.of(path), newStatus));
+    log.info("Statut favori mis a jour pour {}: {}", path.getFileName(), newStatus);
+    return newStatus;
+  }
+
+  /** Pose ou retire le favori de toutes les photos de {@code paths}, en une seule publication. */
+  public BatchResult setFavorite(Collection<Path> paths, boolean favorite) {
+    return apply(new Batch().favorite(paths, favorite));
+  }
+
+  /**
+   * Applique toutes les modifications de {@code batch} comme une seule ecriture: chaque photo
+   * concernee est recopiee une fois (modifications appliquees dans l'ordre du lot), les index sont
+   * mis a jour une fois par photo et un seul snapshot est publie. Les chemins inconnus sont ignores
+   * et comptes.
+   */
+  public synchronized BatchResult apply(Batch batch) {
+    BatchResult result = applyEdits(batch);
+    log.info(
+        "Modification groupee: {} photos modifiees, {} chemins introuvables",
+        result.updatedCount(),
+        result.missingCount());
+    return result;
+  }
+
+  private BatchResult applyEdits(Batch batch) {
+    Snapshot snapshot = published;
+    Map<PhotoItem, PhotoItem> changes = new IdentityHashMap<>();
+    Set<Path> missing = new HashSet<>();
+    for (Edit edit : batch.edits) {
+      for (Path path : edit.paths()) {
+        PhotoItem current = snapshot.search.find(path);
+        if (current == null) {
+          missing.add(path);
+          continue;
+        }
+        changes.put(current, edit.change().apply(changes.getOrDefault(current, current)));
       }
     }
-    log.warn("Photo introuvable pour basculer le favori: {}", path);
-    return false;
+    changes.entrySet().removeIf(change -> change.getKey() == change.getValue());
+    if (changes.isEmpty()) {
+      return new BatchResult(0, missing.size(), snapshot.version());
+    }
+    // Titre et date inchanges: chaque photo garde sa position
+    List<PhotoItem> items = new ArrayList<>(snapshot.items());
+    boolean patchBitmaps = changes.size() <= MAX_BITMAP_PATCHES;
+    CompactBitmap favorites = snapshot.favorites;
+    CompactBitmap inAlbums = snapshot.inAlbums;
+    List<LibraryChange.Update> updates = new ArrayList<>(changes.size());
+    for (Map.Entry<PhotoItem, PhotoItem> change : changes.entrySet()) {
+      PhotoItem current = change.getKey();
+      PhotoItem updated = change.getValue();
+      updates.add(new LibraryChange.Update(current, updated));
+      int position = positionOf(items, current);
+      items.set(position, updated);
+      indexReplace(current, updated);
+      if (patchBitmaps) {
+        favorites = favorites.with(position, updated.favorite());
+        inAlbums = inAlbums.with(position, !updated.albums().isEmpty());
+      }
+    }
+    Delta delta = new Delta(List.of(), List.of(), updates);
+    if (patchBitmaps) {
+      publish(items, favorites, inAlbums, delta);
+    } else {
+      publish(items, delta);
+    }
+    return new BatchResult(changes.size(), missing.size(), published.version());
   }
 
-  public synchronized List<PhotoItem> createAlbum(String albumName, List<PhotoItem> photos) {
+  /**
+   * Lot de modifications pour {@link #apply}: favoris et appartenance aux albums de photos
+   * designees par leur chemin. Les noms d'albums sont compares sans tenir compte de la casse.
+   */
+  public static final class Batch {
+    private final List<Edit> edits = new ArrayList<>();
+
+    public Batch favorite(Collection<Path> paths, boolean favorite) {
+      edits.add(new Edit(List.copyOf(paths), item -> item.withFavorite(favorite)));
+      return this;
+    }
+
+    public Batch addToAlbums(Collection<Path> paths, Collection<String> albums) {
+      List<String> names = albumNames(albums);
+      edits.add(new Edit(List.copyOf(paths), item -> withAlbums(item, names)));
+      return this;
+    }
+
+    public Batch removeFromAlbums(Collection<Path> paths, Collection<String> albums) {
+      List<String> names = albumNames(albums);
+      edits.add(new Edit(List.copyOf(paths), item -> withoutAlbums(item, names)));
+      return this;
+    }
+
+    public boolean isEmpty() {
+      return edits.isEmpty();
+    }
+
+    private static List<String> albumNames(Collection<String> albums) {
+      return albums.stream()
+          .filter(name -> name != null && !name.isBlank())
+          .map(String::trim)
+          .toList();
+    }
+
+    private static PhotoItem withAlbums(PhotoItem item, List<String> names) {
+      List<String> albums = item.albums();
+      for (String name : names) {
+        albums = withAlbum(albums, name);
+      }
+      return item.withAlbums(albums);
+    }
+
+    private static PhotoItem withoutAlbums(PhotoItem item, List<String> names) {
+      List<String> albums =
+          item.albums().stream()
+              .filter(album -> names.stream().noneMatch(album::equalsIgnoreCase))
+              .toList();
+      return albums.size() == item.albums().size() ? item : item.withAlbums(albums);
+    }
+  }
+
+  private record Edit(List<Path> paths, UnaryOperator<PhotoItem> change) {}
+
+  /** Position de {@code item} dans la liste triee: dichotomie, puis les egalites voisines. */
+  private static int positionOf(List<PhotoItem> items, PhotoItem item) {
+    int found = Collections.binarySearch(items, item, PhotoOrdering.MOST_RECENT);
+    if (found < 0) {
+      return -1;
+    }
+    for (int i = found; i >= 0 && PhotoOrdering.MOST_RECENT.compare(items.get(i), item) == 0; i--) {
+      if (items.get(i) == item) {
+        return i;
+      }
+    }
+    for (int i = found + 1;
+        i < items.size() && PhotoOrdering.MOST_RECENT.compare(items.get(i), item) == 0;
+        i++) {
+      if (items.get(i) == item) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public synchronized BatchResult createAlbum(String albumName, List<PhotoItem> photos) {
     if (albumName == null || albumName.isBlank()) {
       log.warn("Creation d'album ignoree: nom vide");
-      return List.copyOf(items);
+      return new BatchResult(0, 0, published.version());
     }
     if (photos == null || photos.isEmpty()) {
       log.warn("Creation d'album ignoree: aucune photo selectionnee");
-      return List.copyOf(items);
+      return new BatchResult(0, 0, published.version());
     }
 
     String normalized = albumName.trim();
-    Set<Path> selectedPaths = photos.stream().map(PhotoItem::path).collect(Collectors.toSet());
+    BatchResult result =
+        applyEdits(
+            new Batch()
+                .addToAlbums(photos.stream().map(PhotoItem::path).toList(), List.of(normalized)));
+    log.info("Album '{}' cree avec {} photos", normalized, photos.size());
+    return result;
+  }
 
-    for (int i = 0; i < items.size(); i++) {
-      PhotoItem current = items.get(i);
-      if (selectedPaths.contains(current.path())) {
-        List<String> albums = new ArrayList<>(current.albums());
-        boolean alreadyPresent =
-            albums.stream().anyMatch(existing -> existing.equalsIgnoreCase(normalized));
-        if (!alreadyPresent) {
-          albums.add(normalized);
-          items.set(
-              i,
-              new PhotoItem(
-                  current.path(),
-                  current.title(),
-                  current.date(),
-                  current.sizeLabel(),
-                  current.tags(),
-                  albums,
-                  current.favorite()));
-        }
-      }
+  private record PathKey(DirectoryTrie.Node directory, String fileName) {}
+
+  private static List<String> withAlbum(List<String> albums, String album) {
+    if (albums.stream().anyMatch(existing -> existing.equalsIgnoreCase(album))) {
+      return albums;
     }
-    log.info("Album '{}' cree avec {} photos", normalized, selectedPaths.size());
-    return List.copyOf(items);
+    List<String> extended = new ArrayList<>(albums);
+    extended.add(album);
+    return extended;
   }
 
   public record AddResult(int addedCount, int duplicateCount, Set<String> affectedAlbums) {}
 
+  /** Bilan d'une modification groupee; {@code version} est celle du snapshot resultant. */
+  public record BatchResult(int updatedCount, int missingCount, long version) {}
+
+  public record ChangeResult(int addedCount, int updatedCount, int removedCount) {}
+
   public enum Filter {
     ALL,
     FAVORITES,
@@ -235,35 +784,110 @@ public class PhotoLibraryService {
     ALBUMS
   }
 
+  /**
+   * Publie {@code items}, une liste neuve que plus personne ne modifie, puis previent les ecouteurs
+   * avec {@code delta}. Appele sous le verrou, apres mise a jour des index.
+   */
+  private void publish(List<PhotoItem> items, Delta delta) {
+    CompactBitmap.Builder favorites = CompactBitmap.builder();
+    CompactBitmap.Builder inAlbums = CompactBitmap.builder();
+    for (int i = 0; i < items.size(); i++) {
+      PhotoItem item = items.get(i);
+      if (item.favorite()) {
+        favorites.add(i);
+      }
+      if (!item.albums().isEmpty()) {
+        inAlbums.add(i);
+      }
+    }
+    publish(items, favorites.build(), inAlbums.build(), delta);
+  }
+
+  /** Variante pour une ecriture qui a deja mis a jour les bitmaps des presets. */
+  private void publish(
+      List<PhotoItem> items, CompactBitmap favorites, CompactBitmap inAlbums, Delta delta) {
+    if (searchIndex.needsRebuild()) {
+      searchIndex = SearchIndex.of(items);
+    }
+    long previousVersion = published.version();
+    published =
+        new Snapshot(
+            previousVersion + 1,
+            Collections.unmodifiableList(items),
+            searchIndex.view(),
+            albumIndex.view(searchIndex::albumMembers),
+            favorites,
+            inAlbums);
+    if (listeners.isEmpty()) {
+      return;
+    }
+    LibraryChange change =
+        delta == Delta.RESET
+            ? LibraryChange.reset(previousVersion, published.version())
+            : new LibraryChange(
+                previousVersion,
+                published.version(),
+                List.copyOf(delta.added()),
+                List.copyOf(delta.removed()),
+                List.copyOf(delta.updated()),
+                false);
+    for (Consumer<LibraryChange> listener : listeners) {
+      try {
+        listener.accept(change);
+      } catch (RuntimeException e) {
+        log.warn("Ecouteur de la bibliotheque en erreur: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  /** Contenu d'un {@link LibraryChange}, fourni par chaque ecriture a {@link #publish}. */
+  private record Delta(
+      List<PhotoItem> added, List<PhotoItem> removed, List<LibraryChange.Update> updated) {
+    static final Delta RESET = new Delta(List.of(), List.of(), List.of());
+  }
+
+  private void indexAdd(PhotoItem item) {
+    searchIndex.add(item);
+    albumIndex.add(item);
+  }
+
+  private void indexRemove(PhotoItem item) {
+    searchIndex.remove(item);
+    albumIndex.remove(item);
+  }
+
+  private void indexReplace(PhotoItem previous, PhotoItem next) {
+    searchIndex.replace(previous, next);
+    albumIndex.replace(previous, next);
+  }
+
   private List<PhotoItem> enrichAlbums(List<PhotoItem> source) {
     return source.stream()
         .map(
             item ->
                 item.albums() != null && !item.albums().isEmpty()
                     ? item
-                    : new PhotoItem(
-                        item.path(),
-                        item.title(),
-                        item.date(),
-                        item.sizeLabel(),
-                        item.tags(),
-                        deriveAlbumFromPath(item.path()),
-                        item.favorite()))
+                    : item.withAlbums(deriveAlbumFromPath(item)))
         .toList();
   }
 
-  private void insertSorted(PhotoItem item) {
-    int index = Collections.binarySearch(items, item, MOST_RECENT);
-    if (index < 0) {
-      index = -index - 1;
-    }
-    items.add(index, item);
+  private PhotoItem mergeUpdate(PhotoItem current, PhotoItem update) {
+    Set<String> albums = new LinkedHashSet<>(current.albums());
+    albums.addAll(update.albums());
+    Set<String> tags = new LinkedHashSet<>(current.tags());
+    tags.addAll(update.tags());
+    return new PhotoItem(
+        current.path(),
+        update.title(),
+        update.date(),
+        update.sizeLabel(),
+        List.copyOf(tags),
+        List.copyOf(albums),
+        current.favorite() || update.favorite());
   }
 
-  private List<String> deriveAlbumFromPath(Path path) {
-    if (path == null || path.getParent() == null) {
-      return List.of();
-    }
-    return List.of(path.getParent().getFileName().toString());
+  /** Nom du dossier parent, lu dans l'arbre partage plutot que recopie pour chaque photo. */
+  private List<String> deriveAlbumFromPath(PhotoItem item) {
+    return item.directory().nameAsAlbum();
   }
 }
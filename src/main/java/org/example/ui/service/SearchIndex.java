@@ -0,0 +1,331 @@
+package org.example.ui.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.example.ui.model.DirectoryTrie;
+import org.example.ui.model.PhotoItem;
+
+/**
+ * Index inverse de la recherche texte de {@link PhotoLibraryService#filter}. Les titres sont
+ * decoupes en trigrammes; les albums et tags, peu nombreux et partages entre photos, sont indexes
+ * par terme entier. Une requete donne des candidats (listes triees d'identifiants, intersectees
+ * avant toute lecture de photo) que l'appelant verifie avec le predicat exact.
+ *
+ * <p>L'index ne fait qu'ajouter: une photo modifiee recoit un nouvel identifiant, l'ancien est
+ * simplement retire de l'ensemble des identifiants vivants. Les listes ne sont donc jamais
+ * reecrites et une {@link View} publiee reste valable pendant que l'ecrivain (unique, sous le
+ * verrou du service) continue d'ajouter. L'index est reconstruit quand les identifiants morts
+ * deviennent trop nombreux.
+ */
+final class SearchIndex {
+  static final int GRAM = 3;
+  private static final int MIN_STALE_FOR_REBUILD = 1024;
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  // Etat de l'ecrivain
+  private final Map<PhotoItem, Integer> ids = new IdentityHashMap<>();
+  private final BitSet live = new BitSet();
+  private final PathTable paths = new PathTable();
+  private PhotoItem[][] docs = new PhotoItem[16][];
+  private int docCount;
+  private int stale;
+
+  // Lu sans verrou par les vues
+  private final Map<Long, Postings> titleGrams = new ConcurrentHashMap<>();
+  private final Map<String, Postings> terms = new ConcurrentHashMap<>();
+  // Identifiants des favoris et des photos en album, pour filtrer les candidats par preset
+  private final Postings favorites = new Postings();
+  private final Postings inAlbums = new Postings();
+
+  static SearchIndex of(Collection<PhotoItem> items) {
+    SearchIndex index = new SearchIndex();
+    for (PhotoItem item : items) {
+      index.add(item);
+    }
+    return index;
+  }
+
+  void add(PhotoItem item) {
+    int id = docCount++;
+    int chunk = id >>> CHUNK_BITS;
+    if (chunk == docs.length) {
+      docs = Arrays.copyOf(docs, chunk * 2);
+    }
+    if (docs[chunk] == null) {
+      docs[chunk] = new PhotoItem[CHUNK_SIZE];
+    }
+    docs[chunk][id & (CHUNK_SIZE - 1)] = item;
+    ids.put(item, id);
+    live.set(id);
+    paths.put(item, id, this::doc);
+    indexTitle(item.normalizedTitle(), id);
+    indexTerms(item.normalizedAlbums(), id);
+    indexTerms(item.normalizedTags(), id);
+    if (item.favorite()) {
+      favorites.append(id);
+    }
+    if (!item.albums().isEmpty()) {
+      inAlbums.append(id);
+    }
+  }
+
+  void remove(PhotoItem item) {
+    Integer id = ids.remove(item);
+    if (id != null) {
+      live.clear(id);
+      paths.remove(item, id);
+      stale++;
+    }
+  }
+
+  void replace(PhotoItem previous, PhotoItem next) {
+    remove(previous);
+    add(next);
+  }
+
+  boolean needsRebuild() {
+    return stale > MIN_STALE_FOR_REBUILD && stale > ids.size();
+  }
+
+  /** Photos vivantes de l'album {@code album} (nom normalise), pour l'ecrivain. */
+  List<PhotoItem> albumMembers(String album) {
+    Postings postings = terms.get(album);
+    if (postings == null) {
+      return List.of();
+    }
+    Run run = postings.read();
+    List<PhotoItem> result = new ArrayList<>();
+    for (int i = 0; i < run.size(); i++) {
+      int id = run.ids()[i];
+      PhotoItem item = doc(id);
+      // Un tag de meme nom partage la liste
+      if (live.get(id) && item.normalizedAlbums().contains(album)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  /** Etat courant fige pour les lecteurs: seuls les identifiants vivants a cet instant comptent. */
+  View view() {
+    return new View(docs, docCount, (BitSet) live.clone(), paths.freeze());
+  }
+
+  private PhotoItem doc(int id) {
+    return docs[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+  }
+
+  private void indexTitle(String title, int id) {
+    for (int i = 0; i + GRAM <= title.length(); i++) {
+      titleGrams.computeIfAbsent(gram(title, i), key -> new Postings()).append(id);
+    }
+  }
+
+  private void indexTerms(List<String> values, int id) {
+    for (String value : values) {
+      terms.computeIfAbsent(value, key -> new Postings()).append(id);
+    }
+  }
+
+  private static long gram(String value, int start) {
+    return ((long) value.charAt(start) << 32)
+        | ((long) value.charAt(start + 1) << 16)
+        | value.charAt(start + 2);
+  }
+
+  /** Lecture sans verrou de l'index tel qu'il etait a la publication d'un snapshot. */
+  final class View {
+    private final PhotoItem[][] docs;
+    private final int docCount;
+    private final BitSet live;
+    private final PathTable.Frozen paths;
+
+    private View(PhotoItem[][] docs, int docCount, BitSet live, PathTable.Frozen paths) {
+      this.docs = docs;
+      this.docCount = docCount;
+      this.live = live;
+      this.paths = paths;
+    }
+
+    /**
+     * Photo de chemin {@code path}, ou {@code null}: une recherche dans la table, sans parcours.
+     */
+    PhotoItem find(Path path) {
+      if (path == null) {
+        return null;
+      }
+      Path name = path.getFileName();
+      Path parent = path.getParent();
+      DirectoryTrie.Node directory;
+      String fileName;
+      if (name == null) {
+        directory = DirectoryTrie.shared().find(path);
+        fileName = "";
+      } else {
+        directory =
+            DirectoryTrie.shared().find(parent != null ? parent : path.getFileSystem().getPath(""));
+        fileName = name.toString();
+      }
+      if (directory == null) {
+        // Repertoire jamais vu: aucune photo ne peut s'y trouver
+        return null;
+      }
+      int id = paths.find(directory, fileName, this::doc);
+      return id < 0 ? null : doc(id);
+    }
+
+    /** Une photo de meme chemin que {@code item} est-elle presente? Sans construire de Path. */
+    boolean contains(PhotoItem item) {
+      return paths.find(item.directory(), item.fileName(), this::doc) >= 0;
+    }
+
+    /**
+     * Photos pouvant contenir {@code query} (deja normalisee) dans leur titre, un tag ou un album,
+     * sans ordre particulier et a verifier. Pour les favoris et les albums, les identifiants sont
+     * intersectes avec ceux du preset avant toute lecture de photo. {@code null} si la requete est
+     * trop courte ou trop peu selective (plus de {@code maxCandidates} candidats, ou plus que de
+     * photos dans le preset): un parcours lineaire est alors plus rapide.
+     */
+    List<PhotoItem> candidates(String query, int maxCandidates, PhotoLibraryService.Filter preset) {
+      if (query.length() < GRAM) {
+        return null;
+      }
+      int[] fromTitles = titleCandidates(query, maxCandidates);
+      if (fromTitles == null) {
+        return null;
+      }
+      List<int[]> parts = new ArrayList<>();
+      parts.add(fromTitles);
+      int total = fromTitles.length;
+      for (Map.Entry<String, Postings> term : terms.entrySet()) {
+        if (term.getKey().contains(query)) {
+          Run run = term.getValue().read();
+          total += run.size();
+          if (total > maxCandidates) {
+            return null;
+          }
+          parts.add(Arrays.copyOf(run.ids(), run.size()));
+        }
+      }
+      Run restriction =
+          switch (preset) {
+            case FAVORITES -> favorites.read();
+            case ALBUMS -> inAlbums.read();
+            case ALL, RECENTS -> null;
+          };
+      if (restriction != null && restriction.size() < total) {
+        // Le preset est plus selectif que le texte: mieux vaut parcourir ses seules photos
+        return null;
+      }
+      int[] merged = union(parts, total);
+      List<PhotoItem> result = new ArrayList<>(merged.length);
+      for (int id : merged) {
+        // Les identifiants ajoutes apres la publication sont ignores
+        if (id < docCount
+            && live.get(id)
+            && (restriction == null
+                || Arrays.binarySearch(restriction.ids(), 0, restriction.size(), id) >= 0)) {
+          result.add(doc(id));
+        }
+      }
+      return result;
+    }
+
+    private int[] titleCandidates(String query, int maxCandidates) {
+      List<Run> runs = new ArrayList<>();
+      for (int i = 0; i + GRAM <= query.length(); i++) {
+        Postings postings = titleGrams.get(gram(query, i));
+        if (postings == null) {
+          return new int[0];
+        }
+        runs.add(postings.read());
+      }
+      runs.sort(Comparator.comparingInt(Run::size));
+      Run smallest = runs.get(0);
+      if (smallest.size() > maxCandidates) {
+        return null;
+      }
+      // Intersection: chaque identifiant de la plus courte liste est cherche dans les autres
+      int[] result = new int[smallest.size()];
+      int count = 0;
+      outer:
+      for (int i = 0; i < smallest.size(); i++) {
+        int id = smallest.ids()[i];
+        for (int r = 1; r < runs.size(); r++) {
+          Run other = runs.get(r);
+          if (Arrays.binarySearch(other.ids(), 0, other.size(), id) < 0) {
+            continue outer;
+          }
+        }
+        result[count++] = id;
+      }
+      return Arrays.copyOf(result, count);
+    }
+
+    private PhotoItem doc(int id) {
+      return docs[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+  }
+
+  private static int[] union(List<int[]> parts, int total) {
+    if (parts.size() == 1) {
+      return parts.get(0);
+    }
+    int[] all = new int[total];
+    int offset = 0;
+    for (int[] part : parts) {
+      System.arraycopy(part, 0, all, offset, part.length);
+      offset += part.length;
+    }
+    Arrays.sort(all);
+    int distinct = 0;
+    for (int i = 0; i < all.length; i++) {
+      if (i == 0 || all[i] != all[i - 1]) {
+        all[distinct++] = all[i];
+      }
+    }
+    return Arrays.copyOf(all, distinct);
+  }
+
+  /**
+   * Liste croissante d'identifiants. Un seul ecrivain ajoute en fin de liste; un lecteur lit la
+   * taille puis le tableau, qui contient toujours au moins ces elements.
+   */
+  private static final class Postings {
+    private volatile int[] ids = new int[2];
+    private volatile int size;
+
+    void append(int id) {
+      int count = size;
+      int[] array = ids;
+      if (count > 0 && array[count - 1] == id) {
+        return;
+      }
+      if (count == array.length) {
+        array = Arrays.copyOf(array, count * 2);
+        array[count] = id;
+        ids = array;
+      } else {
+        array[count] = id;
+      }
+      size = count + 1;
+    }
+
+    Run read() {
+      int count = size;
+      return new Run(ids, count);
+    }
+  }
+
+  /** Prefixe stable d'une liste: les {@code size} premiers elements de {@code ids}. */
+  private record Run(int[] ids, int size) {}
+}
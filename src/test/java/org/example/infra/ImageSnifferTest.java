@@ -0,0 +1,83 @@
+package org.example.infra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.example.ui.model.PhotoItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageSnifferTest {
+  private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16};
+  private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0};
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldDetectSupportedSignatures() {
+    assertEquals(Optional.of(ImageSniffer.Format.JPEG), detect(JPEG));
+    assertEquals(Optional.of(ImageSniffer.Format.PNG), detect(PNG));
+    assertEquals(Optional.of(ImageSniffer.Format.GIF), detect(ascii("GIF89a\u0001\u0000")));
+    assertEquals(
+        Optional.of(ImageSniffer.Format.WEBP),
+        detect(ascii("RIFF\u0010\u0000\u0000\u0000WEBPVP8 ")));
+    assertEquals(
+        Optional.of(ImageSniffer.Format.HEIC), detect(ascii("\u0000\u0000\u0000\u0018ftypheic")));
+    byte[] bmp = new byte[32];
+    bmp[0] = 'B';
+    bmp[1] = 'M';
+    bmp[14] = 40;
+    assertEquals(Optional.of(ImageSniffer.Format.BMP), detect(bmp));
+    assertEquals(Optional.empty(), detect(ascii("%PDF-1.7 hello world")));
+    assertEquals(Optional.empty(), detect(new byte[] {(byte) 0xFF}));
+  }
+
+  @Test
+  void scanShouldTrustContentOverExtensionWhenSniffing() throws IOException {
+    Path real = Files.write(tempDir.resolve("photo.jpg"), JPEG);
+    Path fake = Files.write(tempDir.resolve("fausse.png"), ascii("<html>pas une image</html>"));
+    Path noExtension = Files.write(tempDir.resolve("IMG_0001"), PNG);
+    Path alternate = Files.write(tempDir.resolve("scan.jfif"), JPEG);
+    Files.write(tempDir.resolve("notes.txt"), JPEG);
+
+    PhotoFileScanner.ScanOptions sniffing =
+        new PhotoFileScanner.ScanOptions(true, true, Integer.MAX_VALUE, 0, null, true);
+    Set<Path> sniffed = paths(new PhotoFileScanner().scan(tempDir, null, null, sniffing).photos());
+    Set<Path> byExtension = paths(new PhotoFileScanner().scan(tempDir).photos());
+
+    assertEquals(Set.of(real, noExtension, alternate), sniffed);
+    assertEquals(Set.of(real, fake), byExtension);
+  }
+
+  @Test
+  void shouldCacheResultsUntilFileChanges() throws IOException {
+    Path file = Files.write(tempDir.resolve("photo.jpg"), JPEG);
+    ImageSniffer sniffer = new ImageSniffer();
+
+    assertEquals(Optional.of(ImageSniffer.Format.JPEG), sniffer.sniff(file));
+    Files.write(file, ascii("plus une image, et plus long"));
+    assertTrue(sniffer.sniff(file).isEmpty(), "A rewritten file should be sniffed again");
+    assertEquals(1, sniffer.cachedEntries());
+  }
+
+  private static Optional<ImageSniffer.Format> detect(byte[] bytes) {
+    return ImageSniffer.detect(ByteBuffer.wrap(bytes));
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static Set<Path> paths(List<PhotoItem> items) {
+    return items.stream().map(PhotoItem::path).collect(Collectors.toSet());
+  }
+}
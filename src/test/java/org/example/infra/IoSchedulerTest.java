@@ -0,0 +1,95 @@
+package org.example.infra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IoSchedulerTest {
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldCapConcurrentTasksPerDeviceAndShareStreamsWithScans() throws Exception {
+    IoScheduler scheduler = new IoScheduler(new IoScheduler.Limits(2, 2, 2, 2));
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(12);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      IoScheduler.Permit scan = scheduler.acquire(tempDir, 8, () -> false);
+      assertEquals(1, scan.streams(), "A scan should leave one stream for queued tasks");
+      for (int i = 0; i < 12; i++) {
+        scheduler.execute(
+            tempDir.resolve("photo-" + i + ".jpg"),
+            () -> {
+              peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+              try {
+                Thread.sleep(10);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              running.decrementAndGet();
+              done.countDown();
+            },
+            executor);
+      }
+      Thread.sleep(50);
+      assertEquals(1, peak.get(), "Only the stream left by the scan should be used");
+      scan.close();
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertEquals(2, peak.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void thumbnailTasksShouldProgressWhileScansHoldTheDevice() throws Exception {
+    IoScheduler scheduler = new IoScheduler(new IoScheduler.Limits(3, 3, 3, 3));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (IoScheduler.Permit scan = scheduler.acquire(tempDir, 8, () -> false)) {
+      assertEquals(2, scan.streams());
+      // Un second scan ne peut pas prendre le flux laisse aux miniatures
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+      try (IoScheduler.Permit second =
+          scheduler.acquire(tempDir, 8, () -> System.nanoTime() > deadline)) {
+        assertEquals(0, second.streams());
+      }
+      CountDownLatch thumbnail = new CountDownLatch(1);
+      scheduler.execute(tempDir.resolve("photo.jpg"), thumbnail::countDown, executor);
+      assertTrue(
+          thumbnail.await(5, TimeUnit.SECONDS), "A thumbnail should not wait for the scan to end");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void scannerShouldWaitForDeviceStreamsAndKeepResults() throws IOException {
+    Path library = Files.createDirectories(tempDir.resolve("library"));
+    for (int album = 0; album < 3; album++) {
+      Path albumDir = Files.createDirectories(library.resolve("Album" + album));
+      Files.createFile(albumDir.resolve("photo.jpg"));
+    }
+    IoScheduler scheduler = new IoScheduler(new IoScheduler.Limits(1, 1, 1, 1));
+    PhotoFileScanner scanner = new PhotoFileScanner(4, true, null, scheduler);
+
+    try (IoScheduler.Permit busy = scheduler.acquire(library, 1, () -> false)) {
+      PhotoFileScanner.ScanResult cancelled =
+          scanner.scan(List.of(library), () -> true, null, PhotoFileScanner.ScanOptions.defaults());
+      assertTrue(cancelled.photos().isEmpty(), "A cancelled scan should stop waiting");
+    }
+    assertEquals(3, scanner.scan(library).photos().size());
+  }
+}
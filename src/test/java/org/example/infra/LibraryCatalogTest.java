@@ -0,0 +1,166 @@
+package org.example.infra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.example.ui.model.PhotoItem;
+import org.example.ui.service.PhotoLibraryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryCatalogTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldRestoreEveryWriteAfterRestart() {
+    Path catalogDir = tempDir.resolve("catalog");
+    PhotoLibraryService library = new PhotoLibraryService();
+    LibraryCatalog catalog = new LibraryCatalog(catalogDir);
+    assertEquals(0, catalog.open(library));
+
+    library.replaceAll(List.of(photo("a.jpg", 1), photo("b.jpg", 2), photo("c.jpg", 3)));
+    library.addPhotos(List.of(photo("d.jpg", 4)), "Voyage");
+    library.toggleFavorite(tempDir.resolve("b.jpg"));
+    library.applyChanges(List.of(), List.of(tempDir.resolve("c.jpg")));
+    library.apply(
+        new PhotoLibraryService.Batch()
+            .addToAlbums(List.of(tempDir.resolve("a.jpg")), List.of("Famille")));
+    List<String> expected = summary(library);
+    catalog.close();
+
+    PhotoLibraryService restarted = new PhotoLibraryService();
+    LibraryCatalog reopened = new LibraryCatalog(catalogDir);
+    assertEquals(3, reopened.open(restarted));
+    reopened.close();
+
+    assertEquals(expected, summary(restarted));
+  }
+
+  @Test
+  void shouldIgnoreATornOrCorruptedJournalTail() throws IOException {
+    Path catalogDir = tempDir.resolve("catalog");
+    PhotoLibraryService first = new PhotoLibraryService();
+    LibraryCatalog initial = new LibraryCatalog(catalogDir);
+    initial.open(first);
+    // Le remplacement complet part en snapshot; la suite n'ira que dans le journal
+    first.replaceAll(List.of(photo("a.jpg", 1)));
+    initial.close();
+
+    PhotoLibraryService library = new PhotoLibraryService();
+    LibraryCatalog catalog = new LibraryCatalog(catalogDir);
+    catalog.open(library);
+    library.addPhotos(List.of(photo("b.jpg", 2)), null);
+    List<String> beforeLastWrite = summary(library);
+    library.addPhotos(List.of(photo("c.jpg", 3)), null);
+    catalog.close();
+
+    Path journal = catalogDir.resolve("library.journal");
+    long intactSize = Files.size(journal);
+    // Derniere ecriture abimee (un octet modifie) puis enregistrement a moitie ecrit
+    try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), intactSize - 1);
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}), intactSize);
+    }
+
+    PhotoLibraryService restarted = new PhotoLibraryService();
+    LibraryCatalog reopened = new LibraryCatalog(catalogDir);
+    reopened.open(restarted);
+    assertEquals(beforeLastWrite, summary(restarted));
+    assertTrue(Files.size(journal) < intactSize, "La fin abimee doit etre tronquee");
+
+    restarted.addPhotos(List.of(photo("d.jpg", 4)), null);
+    List<String> expected = summary(restarted);
+    reopened.close();
+
+    PhotoLibraryService again = new PhotoLibraryService();
+    LibraryCatalog third = new LibraryCatalog(catalogDir);
+    third.open(again);
+    third.close();
+    assertEquals(expected, summary(again));
+  }
+
+  @Test
+  void shouldCompactTheJournalIntoASnapshot() throws IOException {
+    Path catalogDir = tempDir.resolve("catalog");
+    PhotoLibraryService library = new PhotoLibraryService();
+    LibraryCatalog catalog = new LibraryCatalog(catalogDir, 512);
+    catalog.open(library);
+    for (int i = 0; i < 200; i++) {
+      library.addPhotos(List.of(photo("p" + i + ".jpg", i)), i % 2 == 0 ? "Pairs" : null);
+    }
+    List<String> expected = summary(library);
+    catalog.close();
+
+    long snapshotSize = Files.size(catalogDir.resolve("library.snapshot"));
+    assertTrue(
+        Files.size(catalogDir.resolve("library.journal")) <= Math.max(512, snapshotSize / 2),
+        "Le journal doit avoir ete compacte");
+
+    PhotoLibraryService restarted = new PhotoLibraryService();
+    LibraryCatalog reopened = new LibraryCatalog(catalogDir, 512);
+    assertEquals(200, reopened.open(restarted));
+    reopened.close();
+    assertEquals(expected, summary(restarted));
+  }
+
+  @Test
+  void shouldReportWhenChangesCanNoLongerBeSaved() throws IOException {
+    // Un fichier a la place du repertoire: le journal ne peut pas etre cree
+    Path catalogDir = Files.createFile(tempDir.resolve("catalog"));
+    List<IOException> failures = new ArrayList<>();
+    LibraryCatalog catalog = new LibraryCatalog(catalogDir);
+    catalog.setFailureListener(failures::add);
+    PhotoLibraryService library = new PhotoLibraryService();
+    assertEquals(0, catalog.open(library));
+
+    library.addPhotos(List.of(photo("a.jpg", 1)), null);
+    catalog.close();
+    assertTrue(catalog.isBroken());
+    assertEquals(1, failures.size());
+    assertEquals(1, library.all().size(), "La bibliotheque continue en memoire");
+  }
+
+  private PhotoItem photo(String name, int day) {
+    return new PhotoItem(
+        tempDir.resolve(name),
+        name,
+        LocalDate.of(2024, 1, 1).plusDays(day),
+        "1 MB",
+        List.of("tag"),
+        List.of(),
+        false);
+  }
+
+  /** Etat comparable d'une bibliotheque: chemin, date, albums et favori de chaque photo. */
+  private static List<String> summary(PhotoLibraryService library) {
+    List<String> lines = new ArrayList<>();
+    for (PhotoItem item : library.all()) {
+      Set<String> albums = item.albums().stream().collect(Collectors.toSet());
+      lines.add(
+          item.path()
+              + "|"
+              + item.title()
+              + "|"
+              + item.date()
+              + "|"
+              + item.tags()
+              + "|"
+              + albums
+              + "|"
+              + item.favorite());
+    }
+    return lines;
+  }
+}
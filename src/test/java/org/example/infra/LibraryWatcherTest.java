@@ -0,0 +1,64 @@
+package org.example.infra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.example.ui.model.PhotoItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryWatcherTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldPushDebouncedDiffForNewFilesAndDirectories() throws Exception {
+    Path album = Files.createDirectories(tempDir.resolve("Album"));
+    Files.createFile(album.resolve("a.jpg"));
+    PhotoFileScanner scanner = new PhotoFileScanner();
+    ScanManifest manifest = scanner.rescan(tempDir, null, null, null, null).manifest();
+    LinkedBlockingQueue<PhotoFileScanner.ScanDiff> diffs = new LinkedBlockingQueue<>();
+
+    try (LibraryWatcher watcher =
+        new LibraryWatcher(
+            scanner, null, Duration.ofMillis(200), (root, diff) -> diffs.add(diff))) {
+      watcher.watch(tempDir, manifest, null);
+
+      Files.createFile(album.resolve("b.jpg"));
+      Path nested = Files.createDirectories(album.resolve("Vacances"));
+      Files.createFile(nested.resolve("c.png"));
+
+      PhotoFileScanner.ScanDiff diff = awaitAdded(diffs, 2);
+      assertEquals(
+          List.of("b.jpg", "c.png"), diff.added().stream().map(PhotoItem::title).sorted().toList());
+
+      // Le nouveau sous-dossier est desormais surveille lui aussi
+      Files.delete(nested.resolve("c.png"));
+      PhotoFileScanner.ScanDiff removal = diffs.poll(10, TimeUnit.SECONDS);
+      assertNotNull(removal, "Removal should be detected in the new subdirectory");
+      assertEquals(List.of(nested.resolve("c.png")), removal.removed());
+    }
+  }
+
+  /** Les evenements peuvent arriver en plusieurs lots selon la plateforme: on les cumule. */
+  private static PhotoFileScanner.ScanDiff awaitAdded(
+      LinkedBlockingQueue<PhotoFileScanner.ScanDiff> diffs, int expected)
+      throws InterruptedException {
+    List<PhotoItem> added = new ArrayList<>();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (added.size() < expected && System.nanoTime() < deadline) {
+      PhotoFileScanner.ScanDiff diff = diffs.poll(500, TimeUnit.MILLISECONDS);
+      if (diff != null) {
+        added.addAll(diff.added());
+      }
+    }
+    return new PhotoFileScanner.ScanDiff(added, List.of(), List.of());
+  }
+}
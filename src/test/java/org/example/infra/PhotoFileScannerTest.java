@@ -1,10 +1,13 @@
 package org.example.infra;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
@@ -12,11 +15,23 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.example.core.Photo;
 import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -136,4 +151,483 @@ class PhotoFileScannerTest {
           "Unreadable directories should be reported as skipped");
     }
   }
+
+  @Test
+  void parallelScanShouldMatchSequentialScan() throws IOException {
+    for (int album = 0; album < 4; album++) {
+      Path albumDir = Files.createDirectories(tempDir.resolve("Album" + album + "/Sous" + album));
+      for (int i = 0; i < 6; i++) {
+        Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+        Files.createFile(albumDir.getParent().resolve("note-" + i + ".txt"));
+      }
+    }
+    Path hidden = Files.createDirectories(tempDir.resolve(".cache"));
+    Files.createFile(hidden.resolve("cachee.jpg"));
+
+    PhotoFileScanner.ScanResult sequential = new PhotoFileScanner().scan(tempDir);
+    AtomicLong visited = new AtomicLong(0);
+    PhotoFileScanner.ScanResult parallel =
+        new PhotoFileScanner(4)
+            .scan(
+                tempDir,
+                () -> false,
+                // Plusieurs workers rapportent: un compte plus petit peut arriver en dernier
+                count -> visited.accumulateAndGet(count, Math::max),
+                PhotoFileScanner.ScanOptions.defaults());
+
+    assertEquals(24, parallel.photos().size(), "Every visible image should be indexed");
+    assertEquals(
+        sequential.photos().stream().map(PhotoItem::path).collect(Collectors.toSet()),
+        parallel.photos().stream().map(PhotoItem::path).collect(Collectors.toSet()),
+        "Parallel and sequential scans should find the same images");
+    assertTrue(parallel.skippedDirectories().contains(hidden), "Hidden folder should be skipped");
+    assertEquals(48, visited.get(), "Every visible regular file should be counted once");
+    assertTrue(
+        parallel.photos().stream()
+            .allMatch(
+                item -> item.albums().size() == 2 && item.albums().get(0).startsWith("Album")),
+        "Albums should still be derived from the relative folders");
+  }
+
+  @Test
+  void parallelScanShouldHonorDepthAndCancellation() throws IOException {
+    Path nested = Files.createDirectories(tempDir.resolve("a/b/c"));
+    Files.createFile(tempDir.resolve("a/top.jpg"));
+    Files.createFile(nested.resolve("deep.jpg"));
+
+    PhotoFileScanner scanner = new PhotoFileScanner(3);
+    List<PhotoItem> shallow =
+        scanner
+            .scan(
+                tempDir,
+                () -> false,
+                null,
+                new PhotoFileScanner.ScanOptions(true, true, 3, 0, null))
+            .photos();
+    List<PhotoItem> cancelled = scanner.scan(tempDir, () -> true, null).photos();
+
+    assertEquals(1, shallow.size(), "Files deeper than maxDepth should be ignored");
+    assertEquals("top.jpg", shallow.get(0).title());
+    assertTrue(cancelled.isEmpty(), "A cancelled scan should not index anything");
+  }
+
+  @Test
+  void mergeSortedShouldInterleaveRunsByMostRecent() {
+    PhotoItem newest = photo("c.jpg", LocalDate.of(2024, 5, 3));
+    PhotoItem middle = photo("b.jpg", LocalDate.of(2024, 5, 2));
+    PhotoItem oldest = photo("a.jpg", LocalDate.of(2024, 5, 1));
+
+    List<PhotoItem> merged = PhotoFileScanner.mergeSorted(List.of(newest, oldest), List.of(middle));
+
+    assertEquals(List.of(newest, middle, oldest), merged);
+    assertEquals(List.of(middle), PhotoFileScanner.mergeSorted(List.of(), List.of(middle)));
+  }
+
+  @Test
+  void mergeRunsShouldProduceTheSameOrderAsAFullSort() {
+    Random random = new Random(42);
+    List<List<PhotoItem>> runs = new ArrayList<>();
+    List<PhotoItem> all = new ArrayList<>();
+    for (int run = 0; run < 7; run++) {
+      List<PhotoItem> items = new ArrayList<>();
+      for (int i = 0; i < 20 + run; i++) {
+        items.add(
+            photo("r" + run + "-" + i + ".jpg", LocalDate.of(2024, 1, 1 + random.nextInt(28))));
+      }
+      items.sort(PhotoFileScanner.MOST_RECENT);
+      runs.add(items);
+      all.addAll(items);
+    }
+    all.sort(PhotoFileScanner.MOST_RECENT);
+
+    List<PhotoItem> merged = PhotoOrdering.mergeRuns(runs);
+
+    assertEquals(all, merged);
+    assertTrue(PhotoOrdering.isSorted(merged));
+    assertEquals(List.of(), PhotoOrdering.mergeRuns(List.of(List.of(), List.of())));
+  }
+
+  @Test
+  void rescanShouldReportOnlyChangesSincePersistedManifest() throws IOException {
+    Path album = Files.createDirectories(tempDir.resolve("photos/Album"));
+    Path kept = Files.createFile(album.resolve("kept.jpg"));
+    Path edited = Files.writeString(album.resolve("edited.jpg"), "v1");
+    Path deleted = Files.createFile(tempDir.resolve("photos/deleted.png"));
+    Path root = tempDir.resolve("photos");
+    Path manifestFile = tempDir.resolve("state/photos.manifest");
+
+    PhotoFileScanner scanner = new PhotoFileScanner(2);
+    PhotoFileScanner.RescanResult first =
+        scanner.rescan(root, ScanManifest.empty(), null, null, null);
+    first.manifest().save(manifestFile, root);
+
+    assertTrue(first.complete());
+    assertEquals(3, first.diff().added().size(), "First rescan should report every image");
+
+    ScanManifest reloaded = ScanManifest.load(manifestFile, root);
+    assertEquals(3, reloaded.fileCount(), "Manifest should survive a save/load cycle");
+    PhotoFileScanner.RescanResult unchanged = scanner.rescan(root, reloaded, null, null, null);
+    assertTrue(unchanged.diff().isEmpty(), "Nothing changed, nothing should be reported");
+
+    Files.writeString(edited, "version-2");
+    Files.setLastModifiedTime(edited, FileTime.from(Instant.now().plusSeconds(60)));
+    Files.setLastModifiedTime(album, FileTime.from(Instant.now().plusSeconds(60)));
+    Files.delete(deleted);
+    Path added = Files.createFile(album.resolve("added.jpg"));
+
+    PhotoFileScanner.ScanDiff diff =
+        scanner.rescan(root, unchanged.manifest(), null, null, null).diff();
+
+    assertEquals(List.of(added), diff.added().stream().map(PhotoItem::path).toList());
+    assertEquals(List.of(edited), diff.modified().stream().map(PhotoItem::path).toList());
+    assertEquals(List.of(deleted), diff.removed());
+    assertTrue(diff.upserts().stream().noneMatch(item -> item.path().equals(kept)));
+  }
+
+  @Test
+  void rescanShouldSkipDirectoriesWhoseModificationTimeIsUnchanged() throws IOException {
+    Path album = Files.createDirectories(tempDir.resolve("Album"));
+    Files.createFile(album.resolve("photo.jpg"));
+    PhotoFileScanner scanner = new PhotoFileScanner();
+    ScanManifest manifest = scanner.rescan(tempDir, null, null, null, null).manifest();
+    FileTime albumTime = Files.getLastModifiedTime(album);
+
+    // Ajout puis restauration de la date du dossier: le sous-arbre est considere inchange
+    Files.createFile(album.resolve("invisible.jpg"));
+    Files.setLastModifiedTime(album, albumTime);
+
+    PhotoFileScanner.RescanResult result = scanner.rescan(tempDir, manifest, null, null, null);
+    assertTrue(result.diff().isEmpty(), "Unchanged directories should not be listed again");
+    assertEquals(1, result.manifest().fileCount());
+  }
+
+  private static PhotoItem photo(String name, LocalDate date) {
+    return new PhotoItem(Path.of(name), name, date, "1 KB", List.of(), List.of(), false);
+  }
+
+  @Test
+  void rescanDirectoriesShouldOnlyRelistTargetedDirectories() throws IOException {
+    Path album = Files.createDirectories(tempDir.resolve("Album"));
+    Path other = Files.createDirectories(tempDir.resolve("Autre"));
+    Files.createFile(album.resolve("a.jpg"));
+    Files.createFile(other.resolve("b.jpg"));
+    PhotoFileScanner scanner = new PhotoFileScanner();
+    ScanManifest manifest = scanner.rescan(tempDir, null, null, null, null).manifest();
+
+    Files.createFile(album.resolve("c.jpg"));
+    Files.delete(album.resolve("a.jpg"));
+    Path nested = Files.createDirectories(album.resolve("Nouveau"));
+    Files.createFile(nested.resolve("d.png"));
+    Files.createFile(other.resolve("hors-cible.jpg"));
+
+    PhotoFileScanner.RescanResult result =
+        scanner.rescanDirectories(tempDir, manifest, Map.of(album, false), null);
+
+    assertTrue(result.complete());
+    assertEquals(
+        List.of("c.jpg", "d.png"),
+        result.diff().added().stream().map(PhotoItem::title).sorted().toList());
+    assertEquals(List.of(album.resolve("a.jpg")), result.diff().removed());
+    assertTrue(result.rescannedDirectories().contains(nested));
+    // Le dossier non cible garde son etat precedent dans le manifeste
+    assertEquals(1, result.manifest().directory(other).files().size());
+    assertEquals(3, result.manifest().fileCount());
+  }
+
+  @Test
+  void scanInBatchesShouldDeliverBoundedSortedBatches() throws IOException {
+    for (int album = 0; album < 3; album++) {
+      Path albumDir = Files.createDirectories(tempDir.resolve("Album" + album));
+      for (int i = 0; i < 7; i++) {
+        Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+      }
+    }
+    for (PhotoFileScanner scanner : List.of(new PhotoFileScanner(), new PhotoFileScanner(3))) {
+      List<List<PhotoItem>> batches = new ArrayList<>();
+      PhotoFileScanner.StreamResult result =
+          scanner.scanInBatches(List.of(tempDir), null, null, null, 5, batches::add);
+
+      assertTrue(result.complete());
+      assertEquals(21, result.photoCount());
+      assertTrue(batches.stream().allMatch(batch -> !batch.isEmpty() && batch.size() <= 5));
+      assertTrue(
+          batches.stream()
+              .allMatch(
+                  batch ->
+                      batch.equals(batch.stream().sorted(PhotoFileScanner.MOST_RECENT).toList())),
+          "Each batch should already be sorted");
+      assertEquals(
+          scanner.scan(tempDir).photos().stream().map(PhotoItem::path).collect(Collectors.toSet()),
+          batches.stream().flatMap(List::stream).map(PhotoItem::path).collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  void publisherShouldHonorDemandAndStopWhenCancelled() throws Exception {
+    Path albumDir = Files.createDirectories(tempDir.resolve("Album"));
+    for (int i = 0; i < 40; i++) {
+      Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+    }
+    List<List<PhotoItem>> received = new CopyOnWriteArrayList<>();
+    CountDownLatch firstBatch = new CountDownLatch(1);
+    CountDownLatch completed = new CountDownLatch(1);
+    AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+
+    new PhotoFileScanner()
+        .publish(List.of(tempDir), null, 4)
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(1);
+              }
+
+              @Override
+              public void onNext(List<PhotoItem> batch) {
+                received.add(batch);
+                firstBatch.countDown();
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                completed.countDown();
+              }
+
+              @Override
+              public void onComplete() {
+                completed.countDown();
+              }
+            });
+
+    assertTrue(firstBatch.await(5, TimeUnit.SECONDS), "First batch should be delivered");
+    Thread.sleep(200);
+    assertEquals(1, received.size(), "No batch should be pushed beyond the requested demand");
+    subscription.get().request(Long.MAX_VALUE);
+    assertTrue(completed.await(5, TimeUnit.SECONDS), "Stream should complete");
+    assertEquals(40, received.stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  void fastListingShouldOnlyStatImageCandidatesOnLinux() throws IOException {
+    Path documents = Files.createDirectories(tempDir.resolve("Documents"));
+    Path nested = Files.createDirectories(documents.resolve("Factures"));
+    for (int i = 0; i < 50; i++) {
+      Files.createFile(documents.resolve("doc-" + i + ".pdf"));
+      Files.createFile(nested.resolve("facture-" + i + ".txt"));
+    }
+    Files.createFile(documents.resolve("scan.jpg"));
+    Files.createFile(nested.resolve("recu.png"));
+    Object links = Files.getAttribute(documents, "unix:nlink");
+    assumeTrue(
+        System.getProperty("os.name").toLowerCase().contains("linux")
+            && Set.of("ext2", "ext3", "ext4", "xfs", "tmpfs")
+                .contains(Files.getFileStore(tempDir).type())
+            && links instanceof Integer count
+            && count == 3,
+        "Directory link counts are needed for the fast path");
+
+    AtomicLong fastVisited = new AtomicLong();
+    AtomicLong portableVisited = new AtomicLong();
+    PhotoFileScanner fast = new PhotoFileScanner(1, true);
+    PhotoFileScanner portable = new PhotoFileScanner(2, false);
+    List<PhotoItem> fastItems =
+        fast.scan(
+                tempDir,
+                () -> false,
+                count -> fastVisited.accumulateAndGet(count, Math::max),
+                PhotoFileScanner.ScanOptions.defaults())
+            .photos();
+    List<PhotoItem> portableItems =
+        portable
+            .scan(
+                tempDir,
+                () -> false,
+                count -> portableVisited.accumulateAndGet(count, Math::max),
+                PhotoFileScanner.ScanOptions.defaults())
+            .photos();
+
+    assertEquals(
+        portableItems.stream().map(PhotoItem::path).collect(Collectors.toSet()),
+        fastItems.stream().map(PhotoItem::path).collect(Collectors.toSet()));
+    assertEquals(102, fastVisited.get(), "Unread documents should still count as visited");
+    assertEquals(portableVisited.get(), fastVisited.get());
+    assertEquals(104, portable.attributeReads(), "Portable listing stats every entry");
+    assertTrue(
+        fast.attributeReads() < 15,
+        "Fast listing should stat only images and the entries needed to find subdirectories, got "
+            + fast.attributeReads());
+
+    // Premier import d'un dossier (sans manifeste): meme enumeration que le scan complet
+    PhotoFileScanner rescanner = new PhotoFileScanner(1, true);
+    PhotoFileScanner.RescanResult imported =
+        rescanner.rescan(
+            tempDir,
+            ScanManifest.empty(),
+            () -> false,
+            null,
+            PhotoFileScanner.ScanOptions.defaults());
+    assertEquals(
+        portableItems.stream().map(PhotoItem::path).collect(Collectors.toSet()),
+        imported.diff().added().stream().map(PhotoItem::path).collect(Collectors.toSet()));
+    assertTrue(
+        rescanner.attributeReads() < 15,
+        "A rescan should use the fast listing too, got " + rescanner.attributeReads());
+  }
+
+  @Test
+  void gatewayShouldShareTheScanEngineForCorePhotos() throws IOException {
+    Path albumDir = Files.createDirectories(tempDir.resolve("Album/Sous"));
+    Path hidden = Files.createDirectories(tempDir.resolve(".cache"));
+    Files.createFile(albumDir.resolve("b.jpg"));
+    Files.createFile(tempDir.resolve("a.png"));
+    Files.createFile(hidden.resolve("c.gif"));
+    Files.createFile(tempDir.resolve("note.txt"));
+
+    List<Photo> photos = new FileSystemGateway().listPhotos(tempDir);
+
+    assertEquals(
+        List.of(
+            tempDir.resolve(".cache/c.gif"),
+            tempDir.resolve("Album/Sous/b.jpg"),
+            tempDir.resolve("a.png")),
+        photos.stream().map(Photo::path).toList(),
+        "Gateway keeps its unfiltered behaviour, sorted by path");
+    List<Photo> cancelled = new FileSystemGateway().listPhotos(tempDir, () -> true, null);
+    assertTrue(cancelled.isEmpty(), "A cancelled scan should stop before visiting files");
+    assertThrows(
+        IllegalStateException.class,
+        () -> new FileSystemGateway().listPhotos(tempDir.resolve("absent")),
+        "An unreadable root is still reported to the caller");
+  }
+
+  @Test
+  void interruptedScanShouldResumeFromCheckpoint() throws IOException {
+    Path library = Files.createDirectories(tempDir.resolve("library"));
+    for (int album = 0; album < 6; album++) {
+      Path albumDir = Files.createDirectories(library.resolve("Album" + album));
+      for (int i = 0; i < 5; i++) {
+        Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+      }
+    }
+    ScanCheckpointStore store = new ScanCheckpointStore(tempDir.resolve("checkpoints"));
+    PhotoFileScanner scanner = new PhotoFileScanner(1, false, store);
+    Set<Path> expected =
+        new PhotoFileScanner()
+            .scan(library).photos().stream().map(PhotoItem::path).collect(Collectors.toSet());
+
+    AtomicLong firstVisited = new AtomicLong();
+    scanner.scan(
+        List.of(library),
+        () -> firstVisited.get() >= 12,
+        firstVisited::set,
+        PhotoFileScanner.ScanOptions.defaults());
+    assertTrue(Files.exists(store.fileFor(library)), "Cancelled scan should leave a checkpoint");
+
+    AtomicLong resumedVisited = new AtomicLong();
+    PhotoFileScanner.ScanResult resumed =
+        scanner.scan(
+            List.of(library),
+            () -> false,
+            resumedVisited::set,
+            PhotoFileScanner.ScanOptions.defaults());
+
+    assertEquals(
+        expected, resumed.photos().stream().map(PhotoItem::path).collect(Collectors.toSet()));
+    assertEquals(30, resumed.photos().size(), "Restored photos should not be duplicated");
+    assertTrue(resumedVisited.get() < 30, "Completed directories should not be listed again");
+    assertTrue(
+        Files.notExists(store.fileFor(library)), "Completed scan should drop its checkpoint");
+  }
+
+  @Test
+  void checkpointShouldKeepItsAgeAndDropVanishedPhotos() throws IOException {
+    Path library = Files.createDirectories(tempDir.resolve("library"));
+    List<Path> firstPhotos = new ArrayList<>();
+    for (int album = 0; album < 6; album++) {
+      Path albumDir = Files.createDirectories(library.resolve("Album" + album));
+      for (int i = 0; i < 5; i++) {
+        Path photo = Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+        if (i == 0) {
+          firstPhotos.add(photo);
+        }
+      }
+    }
+    ScanCheckpointStore store = new ScanCheckpointStore(tempDir.resolve("checkpoints"));
+    PhotoFileScanner scanner = new PhotoFileScanner(1, false, store);
+    AtomicLong visited = new AtomicLong();
+    scanner.scan(
+        List.of(library),
+        () -> visited.get() >= 12,
+        visited::set,
+        PhotoFileScanner.ScanOptions.defaults());
+    long created = checkpointCreation(store.fileFor(library));
+
+    visited.set(0);
+    scanner.scan(
+        List.of(library),
+        () -> visited.get() >= 4,
+        visited::set,
+        PhotoFileScanner.ScanOptions.defaults());
+    assertEquals(
+        created,
+        checkpointCreation(store.fileFor(library)),
+        "Reopening a checkpoint must not make it younger");
+
+    for (Path photo : firstPhotos) {
+      Files.delete(photo);
+    }
+    PhotoFileScanner.ScanResult resumed =
+        scanner.scan(List.of(library), () -> false, null, PhotoFileScanner.ScanOptions.defaults());
+    assertEquals(24, resumed.photos().size(), "Deleted photos must not be replayed");
+    assertTrue(
+        resumed.photos().stream().map(PhotoItem::path).noneMatch(firstPhotos::contains),
+        "Deleted photos must not be replayed");
+  }
+
+  @Test
+  void resumedScanShouldFindPhotosAddedToFinishedDirectories() throws Exception {
+    Path library = Files.createDirectories(tempDir.resolve("library"));
+    List<Path> albums = new ArrayList<>();
+    for (int album = 0; album < 6; album++) {
+      Path albumDir = Files.createDirectories(library.resolve("Album" + album));
+      albums.add(albumDir);
+      for (int i = 0; i < 5; i++) {
+        Files.createFile(albumDir.resolve("photo-" + i + ".jpg"));
+      }
+    }
+    ScanCheckpointStore store = new ScanCheckpointStore(tempDir.resolve("checkpoints"));
+    PhotoFileScanner scanner = new PhotoFileScanner(1, false, store);
+    AtomicLong visited = new AtomicLong();
+    scanner.scan(
+        List.of(library),
+        () -> visited.get() >= 17,
+        visited::set,
+        PhotoFileScanner.ScanOptions.defaults());
+
+    // Copies faites entre l'interruption et la reprise, dans des dossiers deja traites
+    Thread.sleep(20);
+    for (Path albumDir : albums) {
+      Files.createFile(albumDir.resolve("added.jpg"));
+    }
+    PhotoFileScanner.ScanResult resumed =
+        scanner.scan(List.of(library), () -> false, null, PhotoFileScanner.ScanOptions.defaults());
+    assertEquals(36, resumed.photos().size());
+    assertEquals(
+        6,
+        resumed.photos().stream()
+            .filter(item -> item.path().getFileName().toString().equals("added.jpg"))
+            .count(),
+        "Photos added after the interruption must be found");
+  }
+
+  private static long checkpointCreation(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      in.readInt();
+      in.readInt();
+      in.readUTF();
+      in.readUTF();
+      return in.readLong();
+    }
+  }
 }
@@ -0,0 +1,70 @@
+package org.example.infra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressTrackerTest {
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldAggregateConcurrentCountersIntoPeriodicSnapshots() throws InterruptedException {
+    List<ProgressTracker.Snapshot> snapshots = new CopyOnWriteArrayList<>();
+    try (ProgressTracker tracker = new ProgressTracker(Duration.ofMillis(20), snapshots::add)) {
+      tracker.setTotals(200, -1);
+      LongConsumer firstScan = tracker.visitedCounter();
+      LongConsumer secondScan = tracker.visitedCounter();
+      for (int i = 1; i <= 50; i++) {
+        firstScan.accept(i);
+        secondScan.accept(i);
+        // Un appel en retard (autre thread du scan) ne doit rien recompter
+        firstScan.accept(i - 1);
+      }
+      Thread.sleep(120);
+      ProgressTracker.Snapshot running = snapshots.get(snapshots.size() - 1);
+      assertEquals(100, running.files());
+      assertEquals(0.5, running.fraction());
+      assertNotNull(running.eta(), "Known totals should give an estimate once a rate exists");
+      tracker.addFiles(100);
+    }
+    ProgressTracker.Snapshot last = snapshots.get(snapshots.size() - 1);
+    assertTrue(last.finished());
+    assertEquals(200, last.files());
+    assertTrue(snapshots.size() < 20, "Snapshots should follow the period, not the updates");
+  }
+
+  @Test
+  void scanShouldReportFilesBytesAndDirectories() throws IOException {
+    Path library = Files.createDirectories(tempDir.resolve("library"));
+    for (int album = 0; album < 3; album++) {
+      Path albumDir = Files.createDirectories(library.resolve("Album" + album));
+      Files.write(albumDir.resolve("photo.jpg"), new byte[100]);
+      Files.write(albumDir.resolve("notes.txt"), new byte[10]);
+    }
+    List<ProgressTracker.Snapshot> snapshots = new CopyOnWriteArrayList<>();
+    try (ProgressTracker tracker = new ProgressTracker(snapshots::add)) {
+      new PhotoFileScanner(2)
+          .scanInBatches(
+              List.of(library),
+              null,
+              PhotoFileScanner.ScanOptions.defaults(),
+              16,
+              tracker,
+              batch -> {});
+    }
+    ProgressTracker.Snapshot last = snapshots.get(snapshots.size() - 1);
+    assertEquals(6, last.files());
+    assertEquals(300, last.bytes());
+    assertEquals(0, last.pendingDirectories());
+  }
+}
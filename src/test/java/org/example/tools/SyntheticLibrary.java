@@ -0,0 +1,352 @@
+package org.example.tools;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.example.infra.PhotoFileScanner;
+import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
+
+/**
+ * Bibliotheque synthetique pour les tests de charge et les benchmarks: une arborescence d'albums
+ * ecrite sur disque (vraies petites images JPEG/PNG, dossiers caches et systeme, dates de
+ * modification etalees) ou la meme bibliotheque directement en {@link PhotoItem}.
+ *
+ * <p>Tout est deduit de la graine: deux appels avec la meme graine et la meme {@link Shape}
+ * produisent les memes chemins, noms et dates, sur disque comme en memoire. Un scan de l'arbre
+ * ecrit retrouve donc exactement {@link #photoItems(Path)} (hors favoris et tags, que le scan ne
+ * connait pas).
+ */
+public final class SyntheticLibrary {
+  private static final String[] YEARS = {
+    "2015", "2016", "2017", "2018", "2019", "2020", "2021", "2022", "2023", "2024"
+  };
+  private static final String[] THEMES = {
+    "Vacances", "Famille", "Noel", "Anniversaire", "Voyage", "Mariage", "Week-end", "Jardin"
+  };
+  private static final String[] SYSTEM_FOLDERS = {"$RECYCLE.BIN", "System Volume Information"};
+  private static final String[] TAGS = {"famille", "plage", "montagne", "amis", "a trier"};
+  private static final int VARIANTS = 8;
+  private static final List<byte[]> JPEGS = encodeVariants("jpg");
+  private static final List<byte[]> PNGS = encodeVariants("png");
+
+  /**
+   * Forme de l'arbre. Les photos sont dans chaque dossier, a tous les niveaux sous la racine.
+   *
+   * @param collisionRate probabilite qu'un dossier reprenne la numerotation du precedent (memes
+   *     noms de fichiers, comme un appareil remis a zero)
+   * @param recentBias asymetrie des dates: 1 = uniforme sur {@code spanDays}, plus grand = photos
+   *     plus recentes
+   * @param favoriteRate part de favoris, en memoire seulement
+   * @param tagRate part de photos taguees, en memoire seulement
+   * @param maxPhotos arret apres ce nombre de photos
+   */
+  public record Shape(
+      int depth,
+      int fanOut,
+      int photosPerFolder,
+      int otherFilesPerFolder,
+      double collisionRate,
+      int hiddenFolders,
+      int systemFolders,
+      double pngShare,
+      LocalDate newest,
+      int spanDays,
+      double recentBias,
+      double favoriteRate,
+      double tagRate,
+      int maxPhotos) {
+
+    public static Shape defaults() {
+      return new Shape(
+          3,
+          4,
+          20,
+          2,
+          0.05,
+          1,
+          1,
+          0.2,
+          LocalDate.of(2024, 12, 31),
+          3650,
+          2.0,
+          0.05,
+          0.1,
+          Integer.MAX_VALUE);
+    }
+
+    /** Forme par defaut (3 niveaux, 40 photos par dossier) elargie pour atteindre {@code count}. */
+    public static Shape forPhotoCount(int count) {
+      Shape base = defaults().withLayout(3, 1, 40);
+      int fanOut = 1;
+      while (base.withLayout(3, fanOut, 40).capacity() < count) {
+        fanOut++;
+      }
+      return base.withLayout(3, fanOut, 40).withMaxPhotos(count);
+    }
+
+    public Shape withLayout(int newDepth, int newFanOut, int newPhotosPerFolder) {
+      return new Shape(
+          newDepth,
+          newFanOut,
+          newPhotosPerFolder,
+          otherFilesPerFolder,
+          collisionRate,
+          hiddenFolders,
+          systemFolders,
+          pngShare,
+          newest,
+          spanDays,
+          recentBias,
+          favoriteRate,
+          tagRate,
+          maxPhotos);
+    }
+
+    public Shape withMaxPhotos(int newMaxPhotos) {
+      return new Shape(
+          depth,
+          fanOut,
+          photosPerFolder,
+          otherFilesPerFolder,
+          collisionRate,
+          hiddenFolders,
+          systemFolders,
+          pngShare,
+          newest,
+          spanDays,
+          recentBias,
+          favoriteRate,
+          tagRate,
+          newMaxPhotos);
+    }
+
+    /** Photos visibles (hors dossiers caches et systeme), avant {@code maxPhotos}. */
+    public long capacity() {
+      long folders = 0;
+      long level = 1;
+      for (int i = 0; i < depth; i++) {
+        level *= fanOut;
+        folders += level;
+      }
+      return folders * photosPerFolder;
+    }
+
+    /** Nombre de photos visibles effectivement produites. */
+    public int photoCount() {
+      return (int) Math.min(capacity(), maxPhotos);
+    }
+  }
+
+  /** Bilan d'une ecriture sur disque. */
+  public record Tree(Path root, int photos, int hiddenPhotos, int otherFiles, int folders) {}
+
+  private final long seed;
+  private final Shape shape;
+
+  public SyntheticLibrary(long seed, Shape shape) {
+    this.seed = seed;
+    this.shape = shape;
+  }
+
+  /** Ecrit l'arbre sous {@code root} (disque ou Jimfs). */
+  public Tree writeTo(Path root) throws IOException {
+    Files.createDirectories(root);
+    int[] counts = new int[4];
+    try {
+      generate(
+          root,
+          new Sink() {
+            @Override
+            public void folder(Path dir) {
+              counts[3]++;
+              write(() -> Files.createDirectories(dir));
+            }
+
+            @Override
+            public void photo(Path file, byte[] content, LocalDate date, List<String> albums) {
+              write(() -> writeFile(file, content, date));
+              counts[0]++;
+            }
+
+            @Override
+            public void skippedPhoto(Path file, byte[] content, LocalDate date) {
+              write(() -> writeFile(file, content, date));
+              counts[1]++;
+            }
+
+            @Override
+            public void otherFile(Path file, byte[] content, LocalDate date) {
+              write(() -> writeFile(file, content, date));
+              counts[2]++;
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new Tree(root, counts[0], counts[1], counts[2], counts[3]);
+  }
+
+  /** La meme bibliotheque en memoire, triee comme un scan ({@link PhotoOrdering#MOST_RECENT}). */
+  public List<PhotoItem> photoItems(Path root) {
+    List<PhotoItem> items = new ArrayList<>(shape.photoCount());
+    Random extras = new Random(seed ^ 0x5DEECE66DL);
+    generate(
+        root,
+        new Sink() {
+          @Override
+          public void photo(Path file, byte[] content, LocalDate date, List<String> albums) {
+            boolean favorite = extras.nextDouble() < shape.favoriteRate();
+            List<String> tags =
+                extras.nextDouble() < shape.tagRate()
+                    ? List.of(TAGS[extras.nextInt(TAGS.length)])
+                    : List.of();
+            String name = file.getFileName().toString();
+            items.add(
+                new PhotoItem(
+                    file,
+                    name,
+                    date,
+                    PhotoFileScanner.humanSize(content.length),
+                    tags,
+                    albums,
+                    favorite));
+          }
+        });
+    return PhotoOrdering.sortIfNeeded(items);
+  }
+
+  /**
+   * Parcours unique, partage par les deux modes: les tirages aleatoires ne dependent que de la
+   * graine, jamais de ce que fait le {@link Sink}.
+   */
+  private void generate(Path root, Sink sink) {
+    Random random = new Random(seed);
+    int[] remaining = {shape.photoCount()};
+    int[] counter = {random.nextInt(9000)};
+    for (int i = 0; i < shape.hiddenFolders(); i++) {
+      Path hidden = root.resolve(i == 0 ? ".thumbnails" : ".thumbnails-" + i);
+      sink.folder(hidden);
+      for (int p = 0; p < 3; p++) {
+        sink.skippedPhoto(hidden.resolve("cache-" + p + ".jpg"), JPEGS.get(p), date(random));
+      }
+    }
+    for (int i = 0; i < shape.systemFolders(); i++) {
+      Path system = root.resolve(SYSTEM_FOLDERS[i % SYSTEM_FOLDERS.length]);
+      sink.folder(system);
+      sink.skippedPhoto(system.resolve("supprimee-" + i + ".jpg"), JPEGS.get(0), date(random));
+    }
+    folders(root, 1, List.of(), random, counter, remaining, sink);
+  }
+
+  private void folders(
+      Path parent,
+      int level,
+      List<String> albums,
+      Random random,
+      int[] counter,
+      int[] remaining,
+      Sink sink) {
+    for (int i = 0; i < shape.fanOut() && remaining[0] > 0; i++) {
+      String name = folderName(level, i);
+      Path dir = parent.resolve(name);
+      List<String> dirAlbums = new ArrayList<>(albums);
+      dirAlbums.add(name);
+      sink.folder(dir);
+      if (random.nextDouble() >= shape.collisionRate()) {
+        counter[0] = random.nextInt(9000);
+      }
+      for (int p = 0; p < shape.photosPerFolder() && remaining[0] > 0; p++) {
+        boolean png = random.nextDouble() < shape.pngShare();
+        byte[] content = (png ? PNGS : JPEGS).get(random.nextInt(VARIANTS));
+        String file =
+            String.format("%s_%04d.%s", png ? "SCR" : "IMG", counter[0] + p, png ? "png" : "jpg");
+        sink.photo(dir.resolve(file), content, date(random), List.copyOf(dirAlbums));
+        remaining[0]--;
+      }
+      for (int o = 0; o < shape.otherFilesPerFolder(); o++) {
+        byte[] notes = ("notes " + name + " " + o).getBytes(StandardCharsets.UTF_8);
+        sink.otherFile(dir.resolve("notes-" + o + ".txt"), notes, date(random));
+      }
+      if (level < shape.depth()) {
+        folders(dir, level + 1, dirAlbums, random, counter, remaining, sink);
+      }
+    }
+  }
+
+  private static String folderName(int level, int index) {
+    if (level > 2) {
+      return "Jour " + (index + 1);
+    }
+    String[] pool = level == 1 ? YEARS : THEMES;
+    String base = pool[index % pool.length];
+    return index < pool.length ? base : base + " " + (index / pool.length + 1);
+  }
+
+  private LocalDate date(Random random) {
+    double age = Math.pow(random.nextDouble(), shape.recentBias()) * shape.spanDays();
+    return shape.newest().minusDays((long) age);
+  }
+
+  private static void writeFile(Path file, byte[] content, LocalDate date) throws IOException {
+    Files.write(file, content);
+    // Midi local: le scan relit la meme date quel que soit le fuseau
+    Files.setLastModifiedTime(
+        file, FileTime.from(date.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant()));
+  }
+
+  private static void write(IoAction action) {
+    try {
+      action.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static List<byte[]> encodeVariants(String format) {
+    List<byte[]> variants = new ArrayList<>(VARIANTS);
+    for (int i = 0; i < VARIANTS; i++) {
+      BufferedImage image = new BufferedImage(16, 12, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      graphics.setPaint(new Color(i * 32, 255 - i * 24, 96 + i * 16));
+      graphics.fillRect(0, 0, 16, 12);
+      graphics.dispose();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        ImageIO.write(image, format, out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      variants.add(out.toByteArray());
+    }
+    return List.copyOf(variants);
+  }
+
+  private interface IoAction {
+    void run() throws IOException;
+  }
+
+  /** Recoit l'arbre genere; les fichiers ignores par un scan arrivent a part. */
+  private interface Sink {
+    default void folder(Path dir) {}
+
+    void photo(Path file, byte[] content, LocalDate date, List<String> albums);
+
+    default void skippedPhoto(Path file, byte[] content, LocalDate date) {}
+
+    default void otherFile(Path file, byte[] content, LocalDate date) {}
+  }
+}
@@ -0,0 +1,87 @@
+package org.example.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.example.infra.ImageSniffer;
+import org.example.infra.PhotoFileScanner;
+import org.example.ui.model.PhotoItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SyntheticLibraryTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void scanOfWrittenTreeShouldMatchInMemoryLibrary() throws IOException {
+    SyntheticLibrary.Shape shape = SyntheticLibrary.Shape.defaults().withLayout(2, 3, 7);
+    SyntheticLibrary library = new SyntheticLibrary(42, shape);
+    Path root = tempDir.resolve("library");
+
+    SyntheticLibrary.Tree tree = library.writeTo(root);
+    List<PhotoItem> expected = library.photoItems(root);
+    PhotoFileScanner.ScanResult scanned =
+        new PhotoFileScanner()
+            .scan(
+                List.of(root),
+                () -> false,
+                null,
+                new PhotoFileScanner.ScanOptions(true, true, Integer.MAX_VALUE, 0, null, true));
+
+    assertEquals(84, shape.photoCount());
+    assertEquals(84, tree.photos());
+    assertEquals(4, tree.hiddenPhotos(), "One hidden and one system folder by default");
+    assertEquals(summary(expected), summary(scanned.photos()));
+    assertTrue(scanned.skippedDirectories().contains(root.resolve(".thumbnails")));
+    try (Stream<Path> files = Files.walk(root)) {
+      ImageSniffer sniffer = new ImageSniffer();
+      assertTrue(
+          files
+              .filter(file -> file.toString().matches(".*\\.(jpg|png)"))
+              .allMatch(file -> sniffer.sniff(file).isPresent()),
+          "Generated images should carry a real signature");
+    }
+  }
+
+  @Test
+  void sameSeedShouldGiveTheSameLibraryOnAnyFileSystem() throws IOException {
+    SyntheticLibrary.Shape shape = SyntheticLibrary.Shape.forPhotoCount(500);
+    List<PhotoItem> first = new SyntheticLibrary(7, shape).photoItems(Path.of("/photos"));
+    List<PhotoItem> again = new SyntheticLibrary(7, shape).photoItems(Path.of("/photos"));
+    List<PhotoItem> other = new SyntheticLibrary(8, shape).photoItems(Path.of("/photos"));
+
+    assertEquals(500, first.size());
+    assertEquals(first, again);
+    assertTrue(!summary(first).equals(summary(other)), "Another seed should change the library");
+    assertTrue(
+        first.stream().map(PhotoItem::title).distinct().count() < first.size(),
+        "Camera-style names should collide across folders");
+    try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix())) {
+      Path root = fs.getPath("/photos");
+      assertEquals(500, new SyntheticLibrary(7, shape).writeTo(root).photos());
+      assertEquals(
+          first.stream().map(item -> item.path().toString()).collect(Collectors.toSet()),
+          new PhotoFileScanner()
+              .scan(root).photos().stream()
+                  .map(item -> item.path().toString())
+                  .collect(Collectors.toSet()));
+    }
+  }
+
+  private static List<String> summary(List<PhotoItem> items) {
+    return items.stream()
+        .map(item -> item.path() + "|" + item.date() + "|" + item.albums() + "|" + item.sizeLabel())
+        .sorted()
+        .toList();
+  }
+}
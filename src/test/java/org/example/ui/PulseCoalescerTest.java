@@ -0,0 +1,30 @@
+package org.example.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PulseCoalescerTest {
+
+  @Test
+  void shouldDeliverOneMergedEventPerPulse() {
+    List<Runnable> pulse = new ArrayList<>();
+    List<String> delivered = new ArrayList<>();
+    PulseCoalescer<String> coalescer =
+        new PulseCoalescer<>((first, next) -> first + "+" + next, delivered::add, pulse::add);
+
+    coalescer.offer("a");
+    coalescer.offer("b");
+    coalescer.offer("c");
+    assertEquals(1, pulse.size());
+    pulse.remove(0).run();
+    assertEquals(List.of("a+b+c"), delivered);
+
+    coalescer.offer("d");
+    assertEquals(1, pulse.size());
+    pulse.remove(0).run();
+    assertEquals(List.of("a+b+c", "d"), delivered);
+  }
+}
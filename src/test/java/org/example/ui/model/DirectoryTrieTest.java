@@ -0,0 +1,76 @@
+package org.example.ui.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DirectoryTrieTest {
+
+  @Test
+  void photosOfTheSameDirectoryShouldShareTheirNodeAndLists() {
+    Path dir = Path.of("/photos/Vacances/2023");
+    PhotoItem first = photo(dir.resolve("IMG_1.jpg"), List.of("Vacances", "2023"));
+    PhotoItem second = photo(dir.resolve("IMG_2.jpg"), List.of("Vacances", "2023"));
+
+    assertSame(first.directory(), second.directory());
+    assertSame(first.albums(), second.albums());
+    assertSame(first.normalizedAlbums(), second.normalizedAlbums());
+    assertSame(first.sizeLabel(), second.sizeLabel());
+    assertEquals(dir.resolve("IMG_2.jpg"), second.path());
+    assertEquals(first, photo(dir.resolve("IMG_1.jpg"), List.of("Vacances", "2023")));
+    assertEquals(List.of("2023"), first.directory().nameAsAlbum());
+  }
+
+  @Test
+  void albumsBelowShouldFollowTheScanRoot() throws IOException {
+    DirectoryTrie trie = new DirectoryTrie();
+    try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix())) {
+      DirectoryTrie.Node root = trie.intern(fs.getPath("/library"));
+      DirectoryTrie.Node leaf = trie.intern(fs.getPath("/library/Famille/Noel"));
+
+      assertEquals(List.of("Famille", "Noel"), leaf.albumsBelow(root));
+      assertSame(leaf.albumsBelow(root), leaf.albumsBelow(root));
+      assertEquals(List.of(), root.albumsBelow(root));
+      assertEquals(List.of(), root.albumsBelow(leaf));
+    }
+    assertEquals(Path.of("relatif/a.jpg"), photo(Path.of("relatif/a.jpg"), List.of()).path());
+    assertEquals(Path.of("a.jpg"), photo(Path.of("a.jpg"), List.of()).path());
+  }
+
+  @Test
+  void directoriesNoLongerHeldShouldBeReleased() throws InterruptedException {
+    DirectoryTrie trie = new DirectoryTrie();
+    DirectoryTrie.Node kept = trie.intern(Path.of("/photos/garde"));
+    for (int i = 0; i < 1000; i++) {
+      trie.intern(Path.of("/photos/abandon-" + i));
+    }
+    for (int attempt = 0; attempt < 50 && trie.size() > 100; attempt++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+
+    assertTrue(trie.size() < 100, "Unreferenced directories should be collected: " + trie.size());
+    assertSame(kept, trie.intern(Path.of("/photos/garde")));
+    assertSame(kept.parent(), trie.find(Path.of("/photos")));
+  }
+
+  private static PhotoItem photo(Path path, List<String> albums) {
+    return new PhotoItem(
+        path,
+        path.getFileName().toString(),
+        LocalDate.of(2023, 8, 1),
+        "1.2 MB",
+        List.of(),
+        albums,
+        false);
+  }
+}
@@ -0,0 +1,54 @@
+package org.example.ui.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompactBitmapTest {
+
+  @Test
+  void shouldMatchABitSetThroughBuildAndUpdates() {
+    Random random = new Random(3);
+    BitSet expected = new BitSet();
+    CompactBitmap.Builder builder = CompactBitmap.builder();
+    // Blocs creux, denses et absents, pour passer par les deux representations
+    for (int value = 0; value < 400_000; value++) {
+      double density = value < 65_536 ? 0.01 : value < 196_608 ? 0.5 : value < 262_144 ? 0 : 0.06;
+      if (random.nextDouble() < density) {
+        expected.set(value);
+        builder.add(value);
+      }
+    }
+    CompactBitmap bitmap = builder.build();
+    assertMatches(expected, bitmap);
+
+    for (int i = 0; i < 20_000; i++) {
+      int value = random.nextInt(420_000);
+      boolean present = random.nextBoolean();
+      CompactBitmap before = bitmap;
+      bitmap = bitmap.with(value, present);
+      if (expected.get(value) == present) {
+        assertSame(before, bitmap);
+      }
+      expected.set(value, present);
+    }
+    assertMatches(expected, bitmap);
+  }
+
+  private static void assertMatches(BitSet expected, CompactBitmap bitmap) {
+    assertEquals(expected.cardinality(), bitmap.cardinality());
+    int rank = 0;
+    for (int value = expected.nextSetBit(0); value >= 0; value = expected.nextSetBit(value + 1)) {
+      assertEquals(value, bitmap.select(rank++));
+    }
+    assertEquals(-1, bitmap.select(rank));
+    for (int from = 0; from < 430_000; from += 97) {
+      int next = expected.nextSetBit(from);
+      assertEquals(expected.get(from), bitmap.contains(from));
+      assertEquals(next, bitmap.next(from));
+    }
+  }
+}
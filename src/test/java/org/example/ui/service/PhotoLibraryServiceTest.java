@@ -0,0 +1,492 @@
+package org.example.ui.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.example.tools.SyntheticLibrary;
+import org.example.ui.model.PhotoItem;
+import org.example.ui.model.PhotoOrdering;
+import org.junit.jupiter.api.Test;
+
+class PhotoLibraryServiceTest {
+
+  @Test
+  void applyChangesShouldMergeDiffWithoutLosingUserState() {
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(
+        List.of(
+            photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of("Vacances")),
+            photo("lib/b.jpg", LocalDate.of(2024, 2, 1), List.of()),
+            photo("lib/c.jpg", LocalDate.of(2024, 3, 1), List.of())));
+    service.toggleFavorite(Path.of("lib/a.jpg"));
+
+    PhotoLibraryService.ChangeResult result =
+        service.applyChanges(
+            List.of(
+                photo("lib/a.jpg", LocalDate.of(2024, 4, 1), List.of()),
+                photo("lib/d.jpg", LocalDate.of(2023, 12, 1), List.of())),
+            List.of(Path.of("lib/b.jpg")));
+
+    assertEquals(new PhotoLibraryService.ChangeResult(1, 1, 1), result);
+    List<Path> paths = service.all().stream().map(PhotoItem::path).toList();
+    assertEquals(
+        List.of(Path.of("lib/a.jpg"), Path.of("lib/c.jpg"), Path.of("lib/d.jpg")),
+        paths,
+        "Library should stay sorted by most recent after the diff");
+    PhotoItem updated = service.all().get(0);
+    assertTrue(updated.favorite(), "Favorite flag should survive a modification");
+    assertTrue(updated.albums().contains("Vacances"), "User albums should survive a modification");
+    assertFalse(service.contains(Path.of("lib/b.jpg")));
+  }
+
+  @Test
+  void applyChangesShouldOnlyTouchTheDiffedPhotos() {
+    List<PhotoItem> library = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      library.add(photo("lib/p" + i + ".jpg", LocalDate.of(2024, 1, 1).plusDays(i), List.of()));
+    }
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    service.toggleFavorite(Path.of("lib/p10.jpg"));
+    service.toggleFavorite(Path.of("lib/p20.jpg"));
+
+    PhotoLibraryService.ChangeResult result =
+        service.applyChanges(
+            List.of(
+                // Meme date: mise a jour sur place
+                photo("lib/p10.jpg", LocalDate.of(2024, 1, 11), List.of("Retouches")),
+                // Date changee: la photo se deplace
+                photo("lib/p20.jpg", LocalDate.of(2023, 6, 1), List.of()),
+                photo("lib/new.jpg", LocalDate.of(2024, 1, 30).plusDays(1), List.of())),
+            List.of(Path.of("lib/p30.jpg"), Path.of("lib/inconnue.jpg")));
+
+    assertEquals(new PhotoLibraryService.ChangeResult(1, 2, 1), result);
+    List<PhotoItem> all = service.all();
+    assertEquals(50, all.size());
+    List<PhotoItem> sorted = new ArrayList<>(all);
+    sorted.sort(PhotoOrdering.MOST_RECENT);
+    assertEquals(sorted, all, "La bibliotheque doit rester triee");
+    assertFalse(service.contains(Path.of("lib/p30.jpg")));
+    assertEquals(Path.of("lib/p20.jpg"), all.get(all.size() - 1).path());
+    assertEquals(
+        List.of(Path.of("lib/p10.jpg"), Path.of("lib/p20.jpg")),
+        service.filter("", PhotoLibraryService.Filter.FAVORITES).stream()
+            .map(PhotoItem::path)
+            .sorted()
+            .toList());
+    assertTrue(
+        service.filter("retouches", PhotoLibraryService.Filter.ALBUMS).stream()
+            .anyMatch(item -> item.path().equals(Path.of("lib/p10.jpg"))));
+  }
+
+  @Test
+  void photosUnderShouldOnlyReturnTheFolderSubtree() {
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(
+        List.of(
+            photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of()),
+            photo("lib/sous/b.jpg", LocalDate.of(2024, 2, 1), List.of()),
+            photo("libre/c.jpg", LocalDate.of(2024, 3, 1), List.of())));
+
+    assertEquals(
+        Set.of(Path.of("lib/a.jpg"), Path.of("lib/sous/b.jpg")),
+        service.photosUnder(Path.of("lib")).stream()
+            .map(PhotoItem::path)
+            .collect(Collectors.toSet()));
+    assertEquals(1, service.photosUnder(Path.of("lib/sous")).size());
+    assertTrue(service.photosUnder(Path.of("inconnu")).isEmpty());
+  }
+
+  @Test
+  void addPhotosShouldMergeUnsortedInputIntoTheSortedLibrary() {
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(
+        List.of(
+            photo("lib/c.jpg", LocalDate.of(2024, 3, 1), List.of()),
+            photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of())));
+
+    PhotoLibraryService.AddResult result =
+        service.addPhotos(
+            List.of(
+                photo("lib/b.jpg", LocalDate.of(2024, 2, 1), List.of()),
+                photo("lib/d.jpg", LocalDate.of(2024, 4, 1), List.of()),
+                photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of())),
+            "Import");
+
+    assertEquals(2, result.addedCount());
+    assertEquals(1, result.duplicateCount());
+    assertEquals(
+        List.of("d.jpg", "c.jpg", "b.jpg", "a.jpg"),
+        service.all().stream().map(PhotoItem::title).toList());
+    assertTrue(service.all().get(0).albums().contains("Import"));
+  }
+
+  @Test
+  void addPhotosShouldIngestLargeBatchesAndCountEveryDuplicate() {
+    List<PhotoItem> all =
+        new SyntheticLibrary(21, SyntheticLibrary.Shape.forPhotoCount(30000))
+            .photoItems(Path.of("/photos"));
+    List<PhotoItem> library = new ArrayList<>();
+    List<PhotoItem> batch = new ArrayList<>();
+    for (int i = 0; i < all.size(); i++) {
+      (i % 3 == 0 ? batch : library).add(all.get(i));
+    }
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    List<PhotoItem> input = new ArrayList<>(batch);
+    input.addAll(library.subList(0, 500));
+    input.addAll(batch.subList(0, 250));
+    Collections.shuffle(input, new Random(4));
+
+    PhotoLibraryService.AddResult result = service.addPhotos(input, "Import");
+
+    assertEquals(batch.size(), result.addedCount());
+    assertEquals(750, result.duplicateCount());
+    assertEquals(all.size(), service.all().size());
+    assertTrue(PhotoOrdering.isSorted(service.all()));
+    PhotoItem added = batch.get(0);
+    PhotoItem addedStored =
+        service.all().stream().filter(item -> item.path().equals(added.path())).findFirst().get();
+    // Seuls les albums changent: titre normalise et tags sont repris tels quels
+    assertSame(added.normalizedTitle(), addedStored.normalizedTitle());
+    assertSame(added.normalizedTags(), addedStored.normalizedTags());
+    assertEquals(
+        List.of(batch.size()),
+        service.listAlbums("import").stream()
+            .map(PhotoLibraryService.AlbumInfo::photoCount)
+            .toList());
+  }
+
+  @Test
+  void indexedSearchShouldMatchLinearFilterAcrossMutations() {
+    List<PhotoItem> library =
+        new SyntheticLibrary(3, SyntheticLibrary.Shape.forPhotoCount(6000))
+            .photoItems(Path.of("/photos"));
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    service.createAlbum("Plage Ete", library.subList(100, 160));
+    service.toggleFavorite(library.get(120).path());
+    service.applyChanges(List.of(), List.of(library.get(130).path()));
+
+    for (String search : List.of("img_12", "vacances", "plage", "e e", "scr_0", "jour 2", "zzz")) {
+      for (PhotoLibraryService.Filter preset : PhotoLibraryService.Filter.values()) {
+        assertEquals(
+            linearFilter(service.all(), search, preset),
+            service.filter(search, preset),
+            search + " / " + preset);
+      }
+    }
+    assertEquals(59, service.filter("plage ete", PhotoLibraryService.Filter.ALL).size());
+    assertTrue(
+        service.filter("plage", PhotoLibraryService.Filter.FAVORITES).stream()
+            .anyMatch(item -> item.path().equals(library.get(120).path())),
+        "A toggled favorite should be found through its new album");
+  }
+
+  @Test
+  void readersShouldUseSnapshotsWithoutWaitingForWriters() throws Exception {
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(List.of(photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of())));
+    PhotoLibraryService.Snapshot before = service.snapshot();
+
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread writer =
+        new Thread(
+            () -> {
+              // Simule un import en cours: le verrou des ecrivains est pris
+              synchronized (service) {
+                locked.countDown();
+                try {
+                  release.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            });
+    writer.start();
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+    try {
+      CompletableFuture<Integer> read =
+          CompletableFuture.supplyAsync(
+              () ->
+                  service.filter("a.jpg", PhotoLibraryService.Filter.ALL).size()
+                      + service.listAlbums("").size()
+                      + (service.contains(Path.of("lib/a.jpg")) ? 1 : 0));
+      assertEquals(3, read.get(5, TimeUnit.SECONDS), "Reads should not wait for the writer");
+    } finally {
+      release.countDown();
+      writer.join();
+    }
+
+    service.addPhotos(List.of(photo("lib/b.jpg", LocalDate.of(2024, 2, 1), List.of())), "");
+    PhotoLibraryService.Snapshot after = service.snapshot();
+    assertEquals(1, before.size(), "A published snapshot should never change");
+    assertEquals(2, after.size());
+    assertTrue(after.version() > before.version());
+    assertSame(after.items(), service.all(), "all() should not copy the library");
+  }
+
+  @Test
+  void pathIndexShouldAnswerContainsAllAndFollowMutations() {
+    List<PhotoItem> library =
+        new SyntheticLibrary(11, SyntheticLibrary.Shape.forPhotoCount(20000))
+            .photoItems(Path.of("/photos"));
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    for (int i = 0; i < 3000; i++) {
+      PhotoItem item = library.get(i * 5);
+      assertEquals(!item.favorite(), service.toggleFavorite(item.path()));
+    }
+    Path removed = library.get(7).path();
+    PhotoLibraryService.Snapshot beforeRemoval = service.snapshot();
+    service.applyChanges(List.of(), List.of(removed));
+
+    List<Path> probe =
+        List.of(
+            library.get(0).path(),
+            Path.of("/photos/inconnu.jpg"),
+            removed,
+            library.get(19999).path(),
+            Path.of("/ailleurs/IMG_0001.jpg"));
+    BitSet known = service.containsAll(probe);
+    assertEquals(List.of(0, 3), known.stream().boxed().toList());
+    assertTrue(beforeRemoval.items().stream().anyMatch(item -> item.path().equals(removed)));
+    Map<Path, Boolean> favorites =
+        service.all().stream().collect(Collectors.toMap(PhotoItem::path, PhotoItem::favorite));
+    assertEquals(library.size() - 1, favorites.size());
+    for (int i = 0; i < library.size(); i++) {
+      PhotoItem item = library.get(i);
+      if (i != 7) {
+        assertEquals(item.favorite() ^ (i % 5 == 0 && i < 15000), favorites.get(item.path()));
+      }
+    }
+  }
+
+  @Test
+  void albumIndexShouldFollowMutationsLikeAFullRecount() {
+    List<PhotoItem> library =
+        new SyntheticLibrary(5, SyntheticLibrary.Shape.forPhotoCount(3000))
+            .photoItems(Path.of("/photos"));
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    assertEquals(recountAlbums(service.all()), summary(service.listAlbums("")));
+
+    service.createAlbum("Selection", List.of(library.get(3), library.get(40), library.get(900)));
+    for (PhotoLibraryService.AlbumInfo album : service.listAlbums("")) {
+      service.toggleFavorite(album.cover().path());
+    }
+    List<Path> covers =
+        service.listAlbums("vacances").stream().map(info -> info.cover().path()).toList();
+    service.applyChanges(List.of(), covers);
+    service.addPhotos(
+        List.of(
+            photo("/import/recente.jpg", LocalDate.of(2030, 1, 1), List.of()),
+            photo("/import/ancienne.jpg", LocalDate.of(2000, 1, 1), List.of("Vacances"))),
+        "selection");
+
+    List<String> expected = recountAlbums(service.all());
+    assertEquals(expected, summary(service.listAlbums("")));
+    assertTrue(expected.contains("selection|5|/import/recente.jpg"));
+    assertEquals(
+        expected.stream().map(line -> line.substring(0, line.indexOf('|'))).toList(),
+        service.albumNames().stream().map(name -> name.toLowerCase(Locale.ROOT)).toList());
+  }
+
+  @Test
+  void queryShouldReturnTheSamePagesAsTheFullFilter() {
+    List<PhotoItem> library =
+        new SyntheticLibrary(9, SyntheticLibrary.Shape.forPhotoCount(5000))
+            .photoItems(Path.of("/photos"));
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    for (int i = 0; i < 400; i += 7) {
+      service.toggleFavorite(library.get(i).path());
+    }
+    List<PhotoItem> recent = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      recent.add(
+          photo(
+              "/recentes/IMG_" + (1000 + i) + ".jpg",
+              LocalDate.now().minusDays(i * 7),
+              i % 3 == 0 ? List.of() : List.of("Noel")));
+    }
+    service.addPhotos(recent, null);
+    for (PhotoLibraryService.Filter preset : PhotoLibraryService.Filter.values()) {
+      for (String search : List.of("", "img_1", "noel", "introuvable")) {
+        List<PhotoItem> expected = linearFilter(service.all(), search, preset);
+        assertEquals(expected, service.filter(search, preset));
+        for (int offset : List.of(0, 20, expected.size() - 3, expected.size() + 5)) {
+          PhotoLibraryService.Page page = service.query(search, preset, offset, 20, 4);
+          int from = Math.max(0, Math.min(offset, expected.size()));
+          int to = Math.min(from + 20, expected.size());
+          assertEquals(expected.subList(from, to), page.items());
+          assertEquals(
+              expected.subList(to, Math.min(to + 4, expected.size())).stream()
+                  .map(PhotoItem::path)
+                  .toList(),
+              page.prefetch());
+          // Total non compte: seulement quand une page suivante existe, borne basse exacte
+          assertTrue(page.isCounted() || page.prefetch().size() == 4);
+          assertTrue(page.seenCount() <= expected.size());
+          assertEquals(expected.size(), page.totalCount());
+          assertTrue(page.isCounted());
+        }
+      }
+    }
+  }
+
+  @Test
+  void batchShouldApplyAllEditsInOnePublication() {
+    List<PhotoItem> library =
+        new SyntheticLibrary(13, SyntheticLibrary.Shape.forPhotoCount(8000))
+            .photoItems(Path.of("/photos"));
+    PhotoLibraryService service = new PhotoLibraryService();
+    service.replaceAll(library);
+    List<Path> selection = library.subList(1000, 3000).stream().map(PhotoItem::path).toList();
+    List<Path> few = library.subList(10, 20).stream().map(PhotoItem::path).toList();
+    String removedAlbum = library.get(1500).albums().get(0);
+    long version = service.snapshot().version();
+
+    PhotoLibraryService.BatchResult result =
+        service.apply(
+            new PhotoLibraryService.Batch()
+                .favorite(selection, true)
+                .addToAlbums(selection, List.of("Tri", "a revoir"))
+                .removeFromAlbums(selection, List.of(removedAlbum.toUpperCase(Locale.ROOT)))
+                .addToAlbums(List.of(Path.of("/ailleurs/x.jpg")), List.of("Tri")));
+
+    assertEquals(2000, result.updatedCount());
+    assertEquals(1, result.missingCount());
+    assertEquals(version + 1, result.version());
+    assertEquals(result.version(), service.snapshot().version());
+    for (PhotoItem item : service.all().subList(1000, 3000)) {
+      assertTrue(item.favorite());
+      assertTrue(item.albums().containsAll(List.of("Tri", "a revoir")));
+      assertFalse(item.albums().contains(removedAlbum));
+    }
+
+    // Petit lot: les bitmaps des presets sont retouches au lieu d'etre reconstruits
+    service.setFavorite(few, false);
+    service.apply(new PhotoLibraryService.Batch().addToAlbums(few, List.of("Tri")));
+    for (PhotoLibraryService.Filter preset : PhotoLibraryService.Filter.values()) {
+      assertEquals(
+          linearFilter(service.all(), "", preset), service.query("", preset, 0, 50000, 0).items());
+    }
+    assertEquals(recountAlbums(service.all()), summary(service.listAlbums("")));
+    assertEquals(2010, service.listAlbums("tri").get(0).photoCount());
+  }
+
+  @Test
+  void shouldPublishOneTypedChangePerWrite() {
+    PhotoLibraryService service = new PhotoLibraryService();
+    List<LibraryChange> changes = new ArrayList<>();
+    service.addChangeListener(changes::add);
+    PhotoItem a = photo("lib/a.jpg", LocalDate.of(2024, 1, 1), List.of("Noel"));
+    PhotoItem b = photo("lib/b.jpg", LocalDate.of(2024, 2, 1), List.of("Noel"));
+    PhotoItem c = photo("lib/c.jpg", LocalDate.of(2024, 3, 1), List.of());
+
+    service.replaceAll(List.of(a, b));
+    service.addPhotos(List.of(c, a), null);
+    service.setFavorite(List.of(a.path(), b.path()), true);
+    service.applyChanges(List.of(), List.of(b.path()));
+
+    assertEquals(4, changes.size());
+    assertTrue(changes.get(0).reset());
+    assertEquals(List.of(c), changes.get(1).added());
+    assertEquals(
+        List.of(a.path(), b.path()),
+        changes.get(2).updated().stream().map(update -> update.current().path()).sorted().toList());
+    assertTrue(changes.get(2).updated().stream().allMatch(update -> update.current().favorite()));
+    assertEquals(
+        List.of(b.path()), changes.get(3).removed().stream().map(PhotoItem::path).toList());
+    for (int i = 0; i < changes.size(); i++) {
+      assertEquals(i + 1, changes.get(i).version());
+      assertEquals(i, changes.get(i).previousVersion());
+    }
+
+    // Fusion: b modifie puis retire -> retire dans son etat initial; c ajoute reste ajoute
+    LibraryChange merged = changes.get(1).then(changes.get(2)).then(changes.get(3));
+    assertEquals(1, merged.previousVersion());
+    assertEquals(4, merged.version());
+    assertEquals(List.of(c), merged.added());
+    assertEquals(List.of(b), merged.removed());
+    assertEquals(1, merged.updated().size());
+    assertSame(a, merged.updated().get(0).previous());
+    assertTrue(changes.get(0).then(changes.get(1)).reset());
+  }
+
+  private static List<PhotoItem> linearFilter(
+      List<PhotoItem> items, String search, PhotoLibraryService.Filter preset) {
+    return items.stream()
+        .filter(
+            item ->
+                switch (preset) {
+                  case FAVORITES -> item.favorite();
+                  case RECENTS -> item.date().isAfter(LocalDate.now().minusMonths(3));
+                  case ALBUMS -> !item.albums().isEmpty();
+                  case ALL -> true;
+                })
+        .filter(
+            item ->
+                item.normalizedTitle().contains(search)
+                    || item.normalizedTags().stream().anyMatch(tag -> tag.contains(search))
+                    || item.normalizedAlbums().stream().anyMatch(album -> album.contains(search)))
+        .toList();
+  }
+
+  /** Nom (minuscules), nombre de photos et couverture de chaque album, recalcules de zero. */
+  private static List<String> recountAlbums(List<PhotoItem> items) {
+    Map<String, List<PhotoItem>> byAlbum = new TreeMap<>();
+    for (PhotoItem item : items) {
+      item.albums().stream()
+          .map(album -> album.toLowerCase(Locale.ROOT))
+          .distinct()
+          .forEach(album -> byAlbum.computeIfAbsent(album, key -> new ArrayList<>()).add(item));
+    }
+    return byAlbum.entrySet().stream()
+        .map(
+            entry ->
+                entry.getKey()
+                    + "|"
+                    + entry.getValue().size()
+                    + "|"
+                    + entry.getValue().get(0).path())
+        .toList();
+  }
+
+  private static List<String> summary(List<PhotoLibraryService.AlbumInfo> albums) {
+    return albums.stream()
+        .map(
+            info ->
+                info.name().toLowerCase(Locale.ROOT)
+                    + "|"
+                    + info.photoCount()
+                    + "|"
+                    + info.cover().path())
+        .toList();
+  }
+
+  private static PhotoItem photo(String path, LocalDate date, List<String> albums) {
+    Path file = Path.of(path);
+    return new PhotoItem(
+        file, file.getFileName().toString(), date, "1 MB", List.of(), albums, false);
+  }
+}